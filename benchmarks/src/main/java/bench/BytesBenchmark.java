@@ -0,0 +1,149 @@
+package bench;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.hbase.util.Bytes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import hbase.Generators;
+
+/**
+ * Baseline for {@link HSerializerBenchmark}: the same values and operations
+ * performed with {@link Bytes}, which is neither order-preserving for signed
+ * values nor sort-order aware. <code>write</code> and <code>read</code> use
+ * the <code>byte[]</code>/offset entry points, as <code>Bytes</code> has no
+ * <code>ByteBuffer</code> API; <code>read</code> decodes from a single array
+ * holding every sample back to back.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BytesBenchmark {
+
+  @Param({ "LONG", "INT", "SHORT", "DOUBLE", "FLOAT", "BOOLEAN", "VARCHAR", "DATETIME" })
+  public String type;
+
+  private Codec codec;
+  private Object[] values;
+  private byte[][] encoded;
+  private byte[] packed;
+  private int[] offsets;
+  private byte[] dst;
+  private int i;
+
+  @Setup
+  public void setUp() {
+    codec = codec(type);
+    values = Generators.values(type, HSerializerBenchmark.SAMPLE_SIZE);
+    encoded = new byte[values.length][];
+    offsets = new int[values.length + 1];
+    int max = 0;
+    for (int j = 0; j < values.length; j++) {
+      encoded[j] = codec.toBytes(values[j]);
+      offsets[j + 1] = offsets[j] + encoded[j].length;
+      max = Math.max(max, encoded[j].length);
+    }
+    packed = new byte[offsets[values.length]];
+    for (int j = 0; j < values.length; j++) {
+      System.arraycopy(encoded[j], 0, packed, offsets[j], encoded[j].length);
+    }
+    dst = new byte[max];
+  }
+
+  private int next() {
+    return i = (i + 1) & (HSerializerBenchmark.SAMPLE_SIZE - 1);
+  }
+
+  @Benchmark
+  public byte[] toBytes() {
+    return codec.toBytes(values[next()]);
+  }
+
+  @Benchmark
+  public Object fromBytes() {
+    return codec.fromBytes(encoded[next()], 0, encoded[i].length);
+  }
+
+  @Benchmark
+  public int write() {
+    return codec.put(dst, 0, values[next()]);
+  }
+
+  @Benchmark
+  public Object read() {
+    int j = next();
+    return codec.fromBytes(packed, offsets[j], offsets[j + 1] - offsets[j]);
+  }
+
+  /**
+   * Adapts the per-type {@link Bytes} methods to a common shape.
+   */
+  abstract static class Codec {
+    abstract byte[] toBytes(Object val);
+    abstract Object fromBytes(byte[] b, int offset, int length);
+    abstract int put(byte[] b, int offset, Object val);
+  }
+
+  private static Codec codec(String type) {
+    if ("LONG".equals(type)) return new Codec() {
+      byte[] toBytes(Object val) { return Bytes.toBytes((Long) val); }
+      Object fromBytes(byte[] b, int o, int l) { return Bytes.toLong(b, o); }
+      int put(byte[] b, int o, Object val) { return Bytes.putLong(b, o, (Long) val); }
+    };
+    if ("INT".equals(type)) return new Codec() {
+      byte[] toBytes(Object val) { return Bytes.toBytes((Integer) val); }
+      Object fromBytes(byte[] b, int o, int l) { return Bytes.toInt(b, o); }
+      int put(byte[] b, int o, Object val) { return Bytes.putInt(b, o, (Integer) val); }
+    };
+    if ("SHORT".equals(type)) return new Codec() {
+      byte[] toBytes(Object val) { return Bytes.toBytes((Short) val); }
+      Object fromBytes(byte[] b, int o, int l) { return Bytes.toShort(b, o); }
+      int put(byte[] b, int o, Object val) { return Bytes.putShort(b, o, (Short) val); }
+    };
+    if ("DOUBLE".equals(type)) return new Codec() {
+      byte[] toBytes(Object val) { return Bytes.toBytes((Double) val); }
+      Object fromBytes(byte[] b, int o, int l) { return Bytes.toDouble(b, o); }
+      int put(byte[] b, int o, Object val) { return Bytes.putDouble(b, o, (Double) val); }
+    };
+    if ("FLOAT".equals(type)) return new Codec() {
+      byte[] toBytes(Object val) { return Bytes.toBytes((Float) val); }
+      Object fromBytes(byte[] b, int o, int l) { return Bytes.toFloat(b, o); }
+      int put(byte[] b, int o, Object val) { return Bytes.putFloat(b, o, (Float) val); }
+    };
+    if ("BOOLEAN".equals(type)) return new Codec() {
+      byte[] toBytes(Object val) { return Bytes.toBytes((Boolean) val); }
+      Object fromBytes(byte[] b, int o, int l) { return b[o] != (byte) 0; }
+      int put(byte[] b, int o, Object val) {
+        return Bytes.putByte(b, o, (Boolean) val ? (byte) -1 : (byte) 0);
+      }
+    };
+    if ("VARCHAR".equals(type)) return new Codec() {
+      byte[] toBytes(Object val) { return Bytes.toBytes((String) val); }
+      Object fromBytes(byte[] b, int o, int l) { return Bytes.toString(b, o, l); }
+      int put(byte[] b, int o, Object val) {
+        byte[] s = Bytes.toBytes((String) val);
+        return Bytes.putBytes(b, o, s, 0, s.length);
+      }
+    };
+    if ("DATETIME".equals(type)) return new Codec() {
+      byte[] toBytes(Object val) { return Bytes.toBytes(((Date) val).getTime()); }
+      Object fromBytes(byte[] b, int o, int l) { return new Date(Bytes.toLong(b, o)); }
+      int put(byte[] b, int o, Object val) { return Bytes.putLong(b, o, ((Date) val).getTime()); }
+    };
+    throw new IllegalArgumentException("No Bytes equivalent for type " + type);
+  }
+}
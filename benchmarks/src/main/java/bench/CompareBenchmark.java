@@ -0,0 +1,91 @@
+package bench;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.hbase.util.Bytes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import util.HSerializer;
+
+/**
+ * {@link HSerializer#compare(byte[], byte[])} against {@link Bytes#compareTo}
+ * for keys of a given length sharing a common prefix of a given length.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompareBenchmark {
+
+  static final int SAMPLE_SIZE = 1024;
+
+  @Param({ "16", "64", "256" })
+  public int length;
+
+  /** Common prefix length, as a percentage of <code>length</code>. */
+  @Param({ "0", "50", "100" })
+  public int prefix;
+
+  private byte[][] left, right;
+  private ByteBuffer[] leftDirect, rightDirect;
+  private int i;
+
+  @Setup
+  public void setUp() {
+    Random r = new Random(Long.valueOf(System.getProperty("test.random.seed", "0")));
+    left = new byte[SAMPLE_SIZE][length];
+    right = new byte[SAMPLE_SIZE][length];
+    leftDirect = new ByteBuffer[SAMPLE_SIZE];
+    rightDirect = new ByteBuffer[SAMPLE_SIZE];
+    int common = length * prefix / 100;
+    for (int j = 0; j < SAMPLE_SIZE; j++) {
+      r.nextBytes(left[j]);
+      r.nextBytes(right[j]);
+      System.arraycopy(left[j], 0, right[j], 0, common);
+      leftDirect[j] = direct(left[j]);
+      rightDirect[j] = direct(right[j]);
+    }
+  }
+
+  private static ByteBuffer direct(byte[] b) {
+    ByteBuffer ret = ByteBuffer.allocateDirect(b.length);
+    ret.put(b).flip();
+    return ret;
+  }
+
+  private int next() {
+    return i = (i + 1) & (SAMPLE_SIZE - 1);
+  }
+
+  @Benchmark
+  public int bytesCompareTo() {
+    int j = next();
+    return Bytes.compareTo(left[j], right[j]);
+  }
+
+  @Benchmark
+  public int compareArrays() {
+    int j = next();
+    return HSerializer.compare(left[j], right[j]);
+  }
+
+  @Benchmark
+  public int compareDirectBuffers() {
+    int j = next();
+    return HSerializer.compare(leftDirect[j], rightDirect[j]);
+  }
+}
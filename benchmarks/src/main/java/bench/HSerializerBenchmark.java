@@ -0,0 +1,94 @@
+package bench;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import hbase.Generators;
+import util.HSerializer;
+import util.HSerializer.Order;
+
+/**
+ * Encode/decode throughput of every {@link HSerializer} in both sort orders.
+ * Each invocation operates on the next value of a pre-generated, cycled
+ * sample so that branch predictors see a realistic value distribution.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HSerializerBenchmark {
+
+  /** Number of distinct values cycled through; a power of 2. */
+  static final int SAMPLE_SIZE = 1024;
+
+  @Param({ "LONG", "INT", "SHORT", "DOUBLE", "FLOAT", "BOOLEAN", "VARCHAR", "CHAR",
+    "PADDED_CHAR", "DATETIME", "VARINT", "DECIMAL", "BYTE", "STRUCT" })
+  public String type;
+
+  @Param({ "ASCENDING", "DESCENDING" })
+  public Order order;
+
+  private HSerializer<Object> serde;
+  private Object[] values;
+  private byte[][] encoded;
+  private ByteBuffer[] encodedBuffers;
+  private ByteBuffer dst;
+  private int i;
+
+  @Setup
+  public void setUp() {
+    serde = Serializers.create(type, order);
+    values = Generators.values(type, SAMPLE_SIZE);
+    encoded = new byte[SAMPLE_SIZE][];
+    encodedBuffers = new ByteBuffer[SAMPLE_SIZE];
+    int max = 0;
+    for (int j = 0; j < SAMPLE_SIZE; j++) {
+      encoded[j] = serde.toBytes(values[j]);
+      encodedBuffers[j] = ByteBuffer.wrap(encoded[j]);
+      max = Math.max(max, encoded[j].length);
+    }
+    dst = ByteBuffer.allocate(max);
+  }
+
+  private int next() {
+    return i = (i + 1) & (SAMPLE_SIZE - 1);
+  }
+
+  @Benchmark
+  public byte[] toBytes() {
+    return serde.toBytes(values[next()]);
+  }
+
+  @Benchmark
+  public Object fromBytes() {
+    return serde.fromBytes(encoded[next()]);
+  }
+
+  @Benchmark
+  public ByteBuffer write() {
+    dst.clear();
+    serde.write(dst, values[next()]);
+    return dst;
+  }
+
+  @Benchmark
+  public Object read() {
+    ByteBuffer buff = encodedBuffers[next()];
+    buff.clear();
+    return serde.read(buff);
+  }
+}
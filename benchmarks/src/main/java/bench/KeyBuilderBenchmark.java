@@ -0,0 +1,95 @@
+package bench;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import hbase.Generators;
+import types.DATETIME;
+import types.INT;
+import types.KeyBuilder;
+import types.LONG;
+import types.VARCHAR;
+import util.HSerializer.Order;
+
+/**
+ * Composite key construction for the (LONG, VARCHAR, INT, DATETIME) row:
+ * concatenating per-field <code>toBytes</code> results against appending to
+ * a reused {@link KeyBuilder}. Run with <code>-prof gc</code> to compare
+ * allocation rates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeyBuilderBenchmark {
+
+  static final int SAMPLE_SIZE = 1024;
+
+  @Param({ "ASCENDING", "DESCENDING" })
+  public Order order;
+
+  private List<Object>[] rows;
+  private int i;
+
+  @Setup
+  @SuppressWarnings("unchecked")
+  public void setUp() {
+    Object[] values = Generators.values("STRUCT", SAMPLE_SIZE);
+    rows = new List[SAMPLE_SIZE];
+    for (int j = 0; j < SAMPLE_SIZE; j++) rows[j] = (List<Object>) values[j];
+  }
+
+  private int next() {
+    return i = (i + 1) & (SAMPLE_SIZE - 1);
+  }
+
+  @Benchmark
+  public byte[] concat() {
+    List<Object> row = rows[next()];
+    byte[][] parts = new byte[][] {
+        LONG.toBytes((Long) row.get(0), order),
+        VARCHAR.toBytes((String) row.get(1), order),
+        INT.toBytes((Integer) row.get(2), order),
+        DATETIME.toBytes(((Date) row.get(3)).getTime(), order) };
+    int len = 0;
+    for (byte[] part : parts) len += part.length;
+    byte[] ret = new byte[len];
+    int p = 0;
+    for (byte[] part : parts) {
+      System.arraycopy(part, 0, ret, p, part.length);
+      p += part.length;
+    }
+    return ret;
+  }
+
+  @Benchmark
+  public int builder() {
+    List<Object> row = rows[next()];
+    return KeyBuilder.local().appendLong((Long) row.get(0), order)
+        .appendString((String) row.get(1), order).appendInt((Integer) row.get(2), order)
+        .appendDate((Date) row.get(3), order).length();
+  }
+
+  @Benchmark
+  public byte[] builderCopy() {
+    List<Object> row = rows[next()];
+    return KeyBuilder.local().appendLong((Long) row.get(0), order)
+        .appendString((String) row.get(1), order).appendInt((Integer) row.get(2), order)
+        .appendDate((Date) row.get(3), order).toBytes();
+  }
+}
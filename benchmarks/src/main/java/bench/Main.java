@@ -0,0 +1,23 @@
+package bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Benchmark entry point. Accepts the standard JMH command line and always
+ * attaches the GC profiler, so results include allocated bytes/op.
+ */
+public class Main {
+
+  public static void main(String[] args) throws Exception {
+    CommandLineOptions cli = new CommandLineOptions(args);
+    ChainedOptionsBuilder opts = new OptionsBuilder().parent(cli);
+    if (cli.getProfilers().isEmpty()) {
+      opts.addProfiler(GCProfiler.class);
+    }
+    new Runner(opts.build()).run();
+  }
+}
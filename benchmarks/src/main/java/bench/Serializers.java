@@ -0,0 +1,59 @@
+package bench;
+
+import java.util.Arrays;
+import java.util.List;
+
+import types.BOOLEAN;
+import types.BYTE;
+import types.CHAR;
+import types.DATETIME;
+import types.DECIMAL;
+import types.DOUBLE;
+import types.FLOAT;
+import types.INT;
+import types.LONG;
+import types.SHORT;
+import types.STRUCT;
+import types.VARCHAR;
+import types.VARINT;
+import util.HSerializer;
+import util.HSerializer.Order;
+
+/**
+ * Factory for the serializers under benchmark, keyed by type name.
+ */
+@SuppressWarnings({ "rawtypes", "unchecked" })
+final class Serializers {
+
+  /** Large enough for any value produced by the VARCHAR generator. */
+  static final int CHAR_LENGTH = 4096;
+
+  private Serializers() {}
+
+  static HSerializer<Object> create(String type, Order order) {
+    return (HSerializer<Object>) (HSerializer) raw(type, order);
+  }
+
+  private static HSerializer<?> raw(String type, Order order) {
+    if ("LONG".equals(type)) return new LONG(order);
+    if ("INT".equals(type)) return new INT(order);
+    if ("SHORT".equals(type)) return new SHORT(order);
+    if ("DOUBLE".equals(type)) return new DOUBLE(order);
+    if ("FLOAT".equals(type)) return new FLOAT(order);
+    if ("BOOLEAN".equals(type)) return new BOOLEAN(order);
+    if ("VARCHAR".equals(type)) return new VARCHAR(order);
+    if ("CHAR".equals(type)) return new CHAR(CHAR_LENGTH, order);
+    if ("PADDED_CHAR".equals(type)) return new CHAR(CHAR_LENGTH, order, true);
+    if ("DATETIME".equals(type)) return new DATETIME(order);
+    if ("VARINT".equals(type)) return new VARINT(order);
+    if ("DECIMAL".equals(type)) return new DECIMAL(order);
+    if ("BYTE".equals(type)) return new BYTE(order);
+    if ("STRUCT".equals(type)) {
+      // matches the row shape produced by hbase.Generators
+      List<HSerializer> schema = Arrays.<HSerializer> asList(
+        new LONG(order), new VARCHAR(order), new INT(order), new DATETIME(order));
+      return new STRUCT(schema, order);
+    }
+    throw new IllegalArgumentException("Unknown type " + type);
+  }
+}
@@ -0,0 +1,102 @@
+package bench;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import hbase.Generators;
+import types.DATETIME;
+import types.INT;
+import types.LONG;
+import types.STRUCT;
+import types.StructCodec;
+import types.VARCHAR;
+import util.HSerializer.Order;
+
+/**
+ * Composite key encoding through a {@link StructCodec} against a
+ * hand-written encoder for the same (LONG, VARCHAR, INT, DATETIME) row.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StructCodecBenchmark {
+
+  static final int SAMPLE_SIZE = 1024;
+
+  @Param({ "ASCENDING", "DESCENDING" })
+  public Order order;
+
+  private StructCodec codec;
+  private LONG l;
+  private INT n;
+  private DATETIME d;
+  private byte notNull;
+  private List<Object>[] rows;
+  private byte[][] encoded;
+  private int i;
+
+  @Setup
+  @SuppressWarnings("unchecked")
+  public void setUp() {
+    STRUCT struct = (STRUCT) (Object) Serializers.create("STRUCT", order);
+    codec = struct.codec();
+    l = new LONG(order);
+    n = new INT(order);
+    d = new DATETIME(order);
+    notNull = (byte) (0xFF ^ order.mask());
+    Object[] values = Generators.values("STRUCT", SAMPLE_SIZE);
+    rows = new List[SAMPLE_SIZE];
+    encoded = new byte[SAMPLE_SIZE][];
+    for (int j = 0; j < SAMPLE_SIZE; j++) {
+      rows[j] = (List<Object>) values[j];
+      encoded[j] = codec.encode(rows[j]);
+    }
+  }
+
+  private int next() {
+    return i = (i + 1) & (SAMPLE_SIZE - 1);
+  }
+
+  @Benchmark
+  public byte[] codecEncode() {
+    return codec.encode(rows[next()]);
+  }
+
+  @Benchmark
+  public List<Object> codecDecode() {
+    return codec.decode(encoded[next()]);
+  }
+
+  @Benchmark
+  public byte[] handWrittenEncode() {
+    List<Object> row = rows[next()];
+    String s = (String) row.get(1);
+    byte[] ret = new byte[1 + 8 + VARCHAR.utf8Length(s) + 1 + 1 + 4 + 1 + 8];
+    int p = 0;
+    ret[p++] = notNull;
+    p += l.encodeLong((Long) row.get(0), ret, p);
+    VARCHAR.putBytes(ret, p, s, order);
+    p += VARCHAR.utf8Length(s) + 1;
+    ret[p++] = notNull;
+    p += n.encodeInt((Integer) row.get(2), ret, p);
+    ret[p++] = notNull;
+    d.encodeLong(((Date) row.get(3)).getTime(), ret, p);
+    return ret;
+  }
+}
@@ -0,0 +1,79 @@
+package bench;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import types.DATETIME;
+import types.INT;
+import types.LONG;
+import types.STRUCT;
+import types.StructCodec;
+import util.HSerializer;
+import util.HSerializer.Order;
+
+/**
+ * Changing the leading bucket field of a fixed-width (INT, LONG, DATETIME)
+ * key, by decoding and re-encoding it against overwriting the field in place.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StructRekeyBenchmark {
+
+  static final int SAMPLE_SIZE = 1024;
+
+  private STRUCT struct;
+  private StructCodec codec;
+  private byte[][] encoded;
+  private int i;
+
+  @Setup
+  @SuppressWarnings("rawtypes")
+  public void setUp() {
+    struct = new STRUCT(Arrays.<HSerializer> asList(new INT(Order.ASCENDING),
+      new LONG(Order.ASCENDING), new DATETIME(Order.DESCENDING)), Order.ASCENDING, 0, 1, 2);
+    codec = struct.codec();
+    Random r = new Random(0);
+    encoded = new byte[SAMPLE_SIZE][];
+    for (int j = 0; j < SAMPLE_SIZE; j++) {
+      encoded[j] = codec.encode(Arrays.<Object> asList(r.nextInt(64), r.nextLong(),
+        new Date(r.nextLong())));
+    }
+  }
+
+  private int next() {
+    return i = (i + 1) & (SAMPLE_SIZE - 1);
+  }
+
+  @Benchmark
+  public byte[] reencode() {
+    int j = next();
+    List<Object> row = codec.decode(encoded[j]);
+    row.set(0, j);
+    return codec.encode(row);
+  }
+
+  @Benchmark
+  public byte[] setInPlace() {
+    int j = next();
+    struct.set(encoded[j], 0, 0, j);
+    return encoded[j];
+  }
+}
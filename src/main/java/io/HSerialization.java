@@ -0,0 +1,187 @@
+package io;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.hadoop.io.serializer.Deserializer;
+import org.apache.hadoop.io.serializer.Serialization;
+import org.apache.hadoop.io.serializer.Serializer;
+
+import types.KeyBuilder;
+import types.STRUCT;
+import util.HSerializer;
+
+/**
+ * A Hadoop {@link Serialization} writing values of registered classes with
+ * an {@link HSerializer}, so jobs may emit <code>Long</code>,
+ * <code>String</code> or <code>List&lt;Object&gt;</code> keys directly.
+ * <p>
+ * Each value is written as a variable-length int length followed by its
+ * encoding, the same layout as {@link KeyWritable}. Sort such keys with
+ * {@link KeyWritable.Comparator}, which compares them without
+ * deserializing:
+ * </p>
+ * <pre>
+ * HSerialization.register(conf, ArrayList.class, "STRUCT(VARCHAR, LONG DESC)");
+ * job.setMapOutputKeyClass(ArrayList.class);
+ * job.setSortComparatorClass(KeyWritable.Comparator.class);
+ * </pre>
+ * <p>
+ * A class is handled when it, a superclass or an implemented interface has
+ * been registered. Deserializing a STRUCT into a mutable <code>List</code>
+ * refills that list rather than allocating another.
+ * </p>
+ */
+@SuppressWarnings({ "rawtypes", "unchecked" })
+public class HSerialization extends Configured implements Serialization<Object> {
+
+  static final String SERIALIZATIONS_KEY = "io.serializations";
+  static final String TYPE_KEY_PREFIX = "hserialization.type.";
+
+  private final Map<Class<?>, HSerializer> serializers = new HashMap<Class<?>, HSerializer>();
+
+  /**
+   * Serialize values of class <code>c</code> with the serializer described
+   * by <code>spec</code>, and add this Serialization to
+   * <code>io.serializations</code>.
+   * @see TypeSpec
+   */
+  public static void register(Configuration conf, Class<?> c, String spec) {
+    TypeSpec.parse(spec);
+    conf.set(TYPE_KEY_PREFIX + c.getName(), spec);
+    String[] current = conf.getStrings(SERIALIZATIONS_KEY);
+    if (null != current) {
+      for (String s : current) {
+        if (HSerialization.class.getName().equals(s.trim())) return;
+      }
+    }
+    String name = HSerialization.class.getName();
+    conf.set(SERIALIZATIONS_KEY, null == current ? name : conf.get(SERIALIZATIONS_KEY) + "," + name);
+  }
+
+  @Override
+  public boolean accept(Class<?> c) {
+    return null != serializer(c);
+  }
+
+  @Override
+  public Serializer<Object> getSerializer(Class<Object> c) {
+    return new HSerializerSerializer(serializer(c));
+  }
+
+  @Override
+  public Deserializer<Object> getDeserializer(Class<Object> c) {
+    return new HSerializerDeserializer(serializer(c));
+  }
+
+  /**
+   * The serializer registered for <code>c</code>, or one of its supertypes;
+   * null when there is none.
+   */
+  private synchronized HSerializer serializer(Class<?> c) {
+    if (serializers.containsKey(c)) return serializers.get(c);
+    String spec = lookup(c);
+    HSerializer ret = null == spec ? null : TypeSpec.parse(spec);
+    serializers.put(c, ret);
+    return ret;
+  }
+
+  private String lookup(Class<?> c) {
+    if (null == c || null == getConf()) return null;
+    String spec = getConf().get(TYPE_KEY_PREFIX + c.getName());
+    if (null != spec) return spec;
+    for (Class<?> i : c.getInterfaces()) {
+      spec = lookup(i);
+      if (null != spec) return spec;
+    }
+    return lookup(c.getSuperclass());
+  }
+
+  static class HSerializerSerializer implements Serializer<Object> {
+
+    private final HSerializer serde;
+    private final KeyBuilder builder = new KeyBuilder();
+    private DataOutputStream out;
+
+    HSerializerSerializer(HSerializer serde) {
+      this.serde = serde;
+    }
+
+    @Override
+    public void open(OutputStream out) {
+      this.out = out instanceof DataOutputStream
+          ? (DataOutputStream) out : new DataOutputStream(out);
+    }
+
+    @Override
+    public void serialize(Object t) throws IOException {
+      builder.reset();
+      if (serde instanceof STRUCT) builder.append((STRUCT) serde, (List<Object>) t);
+      else builder.append(serde, t);
+      WritableUtils.writeVInt(out, builder.length());
+      out.write(builder.array(), 0, builder.length());
+    }
+
+    @Override
+    public void close() throws IOException {
+      out.close();
+    }
+  }
+
+  static class HSerializerDeserializer implements Deserializer<Object> {
+
+    private final HSerializer serde;
+    private byte[] buf = new byte[64];
+    private ByteBuffer view = ByteBuffer.wrap(buf);
+    private DataInputStream in;
+
+    HSerializerDeserializer(HSerializer serde) {
+      this.serde = serde;
+    }
+
+    @Override
+    public void open(InputStream in) {
+      this.in = in instanceof DataInputStream ? (DataInputStream) in : new DataInputStream(in);
+    }
+
+    @Override
+    public Object deserialize(Object t) throws IOException {
+      int len = WritableUtils.readVInt(in);
+      if (buf.length < len) {
+        buf = new byte[Math.max(len, buf.length << 1)];
+        view = ByteBuffer.wrap(buf);
+      }
+      in.readFully(buf, 0, len);
+
+      if (serde instanceof STRUCT) {
+        STRUCT struct = (STRUCT) serde;
+        if (t instanceof List) {
+          try {
+            return struct.codec().decode(buf, 0, len, (List<Object>) t);
+          } catch (UnsupportedOperationException e) {
+            // an immutable List; fall through to a fresh one.
+          }
+        }
+        return struct.codec().decode(buf, 0, len);
+      }
+      view.clear();
+      view.limit(len);
+      return serde.read(view);
+    }
+
+    @Override
+    public void close() throws IOException {
+      in.close();
+    }
+  }
+}
@@ -0,0 +1,160 @@
+package io;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.io.WritableComparator;
+import org.apache.hadoop.io.WritableUtils;
+
+import types.STRUCT;
+import types.StructView;
+import util.HSerializer;
+
+/**
+ * A {@link WritableComparable} holding a value encoded by any
+ * {@link HSerializer}, including a {@link STRUCT}, for use as a MapReduce key.
+ * <p>
+ * The encoded bytes are serialized as a variable-length int length followed
+ * by the bytes themselves. Every HSerializer encoding sorts as its unsigned
+ * bytes, so the registered {@link Comparator} orders serialized keys by
+ * comparing those bytes in place, without deserializing either key.
+ * </p>
+ */
+public class KeyWritable implements WritableComparable<KeyWritable> {
+
+  private static final byte[] EMPTY = new byte[0];
+
+  private byte[] bytes = EMPTY;
+  private int length;
+
+  public KeyWritable() {}
+
+  public KeyWritable(byte[] bytes) {
+    set(bytes, 0, bytes.length);
+  }
+
+  /**
+   * Replace the contents with a copy of
+   * <code>bytes[offset, offset + length)</code>, an encoded value.
+   */
+  public KeyWritable set(byte[] bytes, int offset, int length) {
+    ensure(length);
+    System.arraycopy(bytes, offset, this.bytes, 0, length);
+    this.length = length;
+    return this;
+  }
+
+  /**
+   * Replace the contents with <code>val</code> encoded by
+   * <code>serde</code>.
+   */
+  public <T> KeyWritable set(HSerializer<T> serde, T val) {
+    byte[] encoded = serde.toBytes(val);
+    return set(encoded, 0, encoded.length);
+  }
+
+  /**
+   * Replace the contents with the STRUCT value <code>val</code>, encoded
+   * directly into the retained buffer.
+   */
+  public KeyWritable set(STRUCT struct, List<Object> val) {
+    int len = struct.codec().encodedLength(val);
+    ensure(len);
+    struct.codec().encode(val, bytes, 0);
+    this.length = len;
+    return this;
+  }
+
+  /**
+   * Decode the contents with <code>serde</code>.
+   */
+  public <T> T get(HSerializer<T> serde) {
+    return serde.fromBytes(getBytes());
+  }
+
+  /**
+   * A lazy view over the contents, decoded as <code>struct</code>.
+   */
+  public StructView view(STRUCT struct) {
+    return struct.view(ByteBuffer.wrap(bytes, 0, length));
+  }
+
+  /**
+   * A copy of the encoded bytes.
+   */
+  public byte[] getBytes() {
+    return Arrays.copyOf(bytes, length);
+  }
+
+  /**
+   * The backing array. Only the first {@link #getLength()} bytes are valid.
+   */
+  public byte[] array() { return bytes; }
+
+  public int getLength() { return length; }
+
+  private void ensure(int len) {
+    if (bytes.length < len) bytes = new byte[Math.max(len, bytes.length << 1)];
+  }
+
+  @Override
+  public void write(DataOutput out) throws IOException {
+    WritableUtils.writeVInt(out, length);
+    out.write(bytes, 0, length);
+  }
+
+  @Override
+  public void readFields(DataInput in) throws IOException {
+    int len = WritableUtils.readVInt(in);
+    ensure(len);
+    in.readFully(bytes, 0, len);
+    length = len;
+  }
+
+  @Override
+  public int compareTo(KeyWritable o) {
+    return HSerializer.compare(bytes, 0, length, o.bytes, 0, o.length);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    return o instanceof KeyWritable && compareTo((KeyWritable) o) == 0;
+  }
+
+  @Override
+  public int hashCode() {
+    return WritableComparator.hashBytes(bytes, length);
+  }
+
+  @Override
+  public String toString() {
+    return Bytes.toStringBinary(bytes, 0, length);
+  }
+
+  /**
+   * Compares serialized {@link KeyWritable}s by their encoded bytes.
+   */
+  public static class Comparator extends WritableComparator {
+
+    public Comparator() {
+      super(KeyWritable.class);
+    }
+
+    @Override
+    public int compare(byte[] b1, int s1, int l1, byte[] b2, int s2, int l2) {
+      int n1 = WritableUtils.decodeVIntSize(b1[s1]);
+      int n2 = WritableUtils.decodeVIntSize(b2[s2]);
+      return HSerializer.compare(b1, s1 + n1, l1 - n1, b2, s2 + n2, l2 - n2);
+    }
+  }
+
+  static {
+    WritableComparator.define(KeyWritable.class, new Comparator());
+  }
+}
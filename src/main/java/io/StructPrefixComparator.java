@@ -0,0 +1,56 @@
+package io;
+
+import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.io.WritableComparator;
+import org.apache.hadoop.io.WritableUtils;
+
+import types.STRUCT;
+import util.HSerializer;
+
+/**
+ * Compares serialized {@link KeyWritable}s holding {@link STRUCT} values by
+ * their first <code>n</code> fields only, for use as a grouping comparator
+ * in a secondary sort.
+ * <p>
+ * Field encodings are self-delimiting, so the bytes of the leading fields
+ * are located by skipping over them and compared in place. This ordering is
+ * consistent with {@link KeyWritable.Comparator}: keys equal under it are
+ * adjacent in the sort.
+ * </p>
+ * <p>
+ * Hadoop instantiates grouping comparators by class, so declare a subclass
+ * with a nullary constructor:
+ * </p>
+ * <pre>
+ * public static class ByTenant extends StructPrefixComparator {
+ *   public ByTenant() { super(SCHEMA, 1); }
+ * }
+ * job.setGroupingComparatorClass(ByTenant.class);
+ * </pre>
+ */
+public class StructPrefixComparator extends WritableComparator {
+
+  private final STRUCT struct;
+  private final int n;
+
+  public StructPrefixComparator(STRUCT struct, int n) {
+    super(KeyWritable.class);
+    this.struct = struct;
+    this.n = n;
+  }
+
+  @Override
+  public int compare(byte[] b1, int s1, int l1, byte[] b2, int s2, int l2) {
+    s1 += WritableUtils.decodeVIntSize(b1[s1]);
+    s2 += WritableUtils.decodeVIntSize(b2[s2]);
+    return HSerializer.compare(b1, s1, struct.skip(b1, s1, n), b2, s2, struct.skip(b2, s2, n));
+  }
+
+  @Override
+  @SuppressWarnings("rawtypes")
+  public int compare(WritableComparable a, WritableComparable b) {
+    KeyWritable k1 = (KeyWritable) a, k2 = (KeyWritable) b;
+    return HSerializer.compare(k1.array(), 0, struct.skip(k1.array(), 0, n),
+      k2.array(), 0, struct.skip(k2.array(), 0, n));
+  }
+}
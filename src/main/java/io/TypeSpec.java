@@ -0,0 +1,163 @@
+package io;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import types.BOOLEAN;
+import types.BYTE;
+import types.CHAR;
+import types.DATETIME;
+import types.DECIMAL;
+import types.DOUBLE;
+import types.FLOAT;
+import types.INT;
+import types.LONG;
+import types.SHORT;
+import types.STRUCT;
+import types.VARCHAR;
+import types.VARINT;
+import util.HSerializer;
+import util.HSerializer.Order;
+
+/**
+ * Parses textual serializer specifications, as stored in a job
+ * <code>Configuration</code>, into {@link HSerializer}s.
+ * <p>
+ * A specification is a type name, any arguments in parentheses, and an
+ * optional <code>ASC</code> or <code>DESC</code> order:
+ * </p>
+ * <pre>
+ * LONG
+ * VARCHAR DESC
+ * CHAR(16)
+ * CHAR(16, PADDED) DESC
+ * STRUCT(VARCHAR, INT DESC, DATETIME)
+ * STRUCT(VARCHAR NOT NULL, DATETIME DESC NOT NULL, LONG)
+ * </pre>
+ * <p>
+ * <code>CHAR</code> takes its length and optionally <code>PADDED</code>,
+ * <code>STRUCT</code> its field
+ * specifications. A STRUCT takes no order of its own; its fields carry
+ * theirs. A STRUCT field may be declared <code>NOT NULL</code> after its
+ * order. Names, orders and flags are case-insensitive.
+ * </p>
+ */
+@SuppressWarnings("rawtypes")
+public class TypeSpec {
+
+  private final String spec;
+  private int pos;
+
+  private TypeSpec(String spec) {
+    this.spec = spec;
+  }
+
+  /**
+   * @throws IllegalArgumentException when <code>spec</code> is malformed.
+   */
+  public static HSerializer parse(String spec) {
+    TypeSpec p = new TypeSpec(spec);
+    HSerializer ret = p.type();
+    p.skipSpace();
+    if (p.pos < spec.length()) throw p.error("unexpected '" + spec.charAt(p.pos) + "'");
+    return ret;
+  }
+
+  private HSerializer type() {
+    String name = word().toUpperCase();
+    if (name.isEmpty()) throw error("expected a type name");
+    List<String> args = new ArrayList<String>();
+    List<HSerializer> fields = new ArrayList<HSerializer>();
+    List<Integer> notNull = new ArrayList<Integer>();
+    if (peek() == '(') {
+      pos++;
+      do {
+        if ("STRUCT".equals(name)) {
+          fields.add(type());
+          if (notNull()) notNull.add(fields.size() - 1);
+        } else {
+          args.add(word());
+        }
+      } while (accept(','));
+      if (!accept(')')) throw error("expected ')'");
+    }
+    int mark = pos;
+    Order o = order();
+
+    if ("CHAR".equals(name)) {
+      if (args.size() < 1 || args.size() > 2) throw error("CHAR takes a length");
+      boolean padded = args.size() == 2;
+      if (padded && !"PADDED".equals(args.get(1).toUpperCase()))
+        throw error("unknown CHAR option '" + args.get(1) + "'");
+      try {
+        return new CHAR(Integer.parseInt(args.get(0)), o, padded);
+      } catch (NumberFormatException e) {
+        throw error("invalid CHAR length '" + args.get(0) + "'");
+      }
+    }
+    if (!args.isEmpty()) throw error(name + " takes no arguments");
+    if ("STRUCT".equals(name)) {
+      if (pos != mark) throw error("STRUCT takes no order; order its fields");
+      int[] indexes = new int[notNull.size()];
+      for (int i = 0; i < indexes.length; i++) indexes[i] = notNull.get(i);
+      return new STRUCT(fields, o, indexes);
+    }
+    if ("LONG".equals(name)) return new LONG(o);
+    if ("INT".equals(name)) return new INT(o);
+    if ("SHORT".equals(name)) return new SHORT(o);
+    if ("DOUBLE".equals(name)) return new DOUBLE(o);
+    if ("FLOAT".equals(name)) return new FLOAT(o);
+    if ("DATETIME".equals(name)) return new DATETIME(o);
+    if ("BOOLEAN".equals(name)) return new BOOLEAN(o);
+    if ("VARCHAR".equals(name)) return new VARCHAR(o);
+    if ("BYTE".equals(name)) return new BYTE(o);
+    if ("VARINT".equals(name)) return new VARINT(o);
+    if ("DECIMAL".equals(name)) return new DECIMAL(o);
+    throw error("unknown type " + name);
+  }
+
+  private Order order() {
+    int mark = pos;
+    String w = word().toUpperCase();
+    if ("ASC".equals(w) || "ASCENDING".equals(w)) return Order.ASCENDING;
+    if ("DESC".equals(w) || "DESCENDING".equals(w)) return Order.DESCENDING;
+    pos = mark;
+    return HSerializer.DEFAULT_ORDER;
+  }
+
+  private boolean notNull() {
+    int mark = pos;
+    if (!"NOT".equals(word().toUpperCase())) {
+      pos = mark;
+      return false;
+    }
+    if (!"NULL".equals(word().toUpperCase())) throw error("expected NULL");
+    return true;
+  }
+
+  private String word() {
+    skipSpace();
+    int start = pos;
+    while (pos < spec.length() && Character.isLetterOrDigit(spec.charAt(pos))) pos++;
+    return spec.substring(start, pos);
+  }
+
+  private boolean accept(char c) {
+    if (peek() != c) return false;
+    pos++;
+    return true;
+  }
+
+  private char peek() {
+    skipSpace();
+    return pos < spec.length() ? spec.charAt(pos) : 0;
+  }
+
+  private void skipSpace() {
+    while (pos < spec.length() && Character.isWhitespace(spec.charAt(pos))) pos++;
+  }
+
+  private IllegalArgumentException error(String msg) {
+    return new IllegalArgumentException("Invalid type spec \"" + spec + "\" at " + pos + ": " + msg);
+  }
+}
@@ -2,8 +2,6 @@ package types;
 
 import java.nio.ByteBuffer;
 
-import org.apache.hadoop.hbase.util.Bytes;
-
 import util.HSerializer;
 
 /**
@@ -38,7 +36,7 @@ public class BOOLEAN extends HSerializer<Boolean> {
   @Override
   public void write(ByteBuffer buff, Boolean val) {
     if (null == val)
-      buff.put(new byte[] { (byte) (NULL ^ order.mask()) });
+      buff.put((byte) (NULL ^ order.mask()));
     else
       putBytes(buff, val, order);
   }
@@ -73,6 +71,28 @@ public class BOOLEAN extends HSerializer<Boolean> {
     }
   }
 
+  @Override
+  public int skip(ByteBuffer buff) {
+    buff.position(buff.position() + SIZEOF_BOOLEAN);
+    return SIZEOF_BOOLEAN;
+  }
+
+  @Override
+  public int skip(byte[] bytes, int offset) {
+    assert bytes.length >= offset + SIZEOF_BOOLEAN;
+    return SIZEOF_BOOLEAN;
+  }
+
+  @Override
+  public int encodedLength(Boolean val) {
+    return SIZEOF_BOOLEAN;
+  }
+
+  @Override
+  public int encodedWidth() {
+    return SIZEOF_BOOLEAN;
+  }
+
   //
   // Helper methods to mimic {@link Bytes}
   //
@@ -95,6 +115,24 @@ public class BOOLEAN extends HSerializer<Boolean> {
     }
   }
 
+  public static boolean toBoolean(ByteBuffer buff) {
+    return toBoolean(buff, DEFAULT_ORDER);
+  }
+
+  public static boolean toBoolean(ByteBuffer buff, Order order) {
+    byte b = buff.get();
+    switch (b ^ order.mask()) {
+    case NULL:
+      throw new IllegalArgumentException("primitive interface does not support NULL values.");
+    case FALSE:
+      return false;
+    case TRUE:
+      return true;
+    default:
+      throw new IllegalArgumentException("Unexpected byte value " + toBinaryString(b));
+    }
+  }
+
   public static byte[] toBytes(final boolean val) {
     return toBytes(val, DEFAULT_ORDER);
   }
@@ -108,8 +146,6 @@ public class BOOLEAN extends HSerializer<Boolean> {
   }
 
   public static void putBytes(final ByteBuffer buff, final boolean val, final Order order) {
-    Bytes.putByte(buff.array(), buff.arrayOffset() + buff.position(),
-      (byte) ((val ? TRUE : FALSE) ^ order.mask()));
-    buff.position(buff.position() + SIZEOF_BOOLEAN);
+    buff.put((byte) ((val ? TRUE : FALSE) ^ order.mask()));
   }
 }
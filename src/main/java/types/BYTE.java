@@ -4,39 +4,337 @@ import java.nio.ByteBuffer;
 
 import util.HSerializer;
 
+/**
+ * Serializer for opaque, variable-length <code>byte[]</code> values.
+ * <p>
+ * Values are written as-is, except that each <code>0x00</code> byte is
+ * escaped as <code>0x00 0xFF</code>. The value is terminated by
+ * <code>0x00 0x01</code>, so a value sorts before any value it is a proper
+ * prefix of. NULL is encoded as <code>0x00 0x00</code>, sorting before the
+ * empty value. For DESCENDING sort order, the encoded value is logically
+ * inverted.
+ * </p>
+ * <p>
+ * Escapes and terminators are located 8 bytes at a time. An ASCENDING value
+ * containing no <code>0x00</code> bytes may be decoded without a copy; see
+ * {@link #readSlice(ByteBuffer)}.
+ * </p>
+ */
 public class BYTE extends HSerializer<byte[]> {
 
+  static final byte ESC = 0x00;
+  static final byte NULL = 0x00;
+  static final byte TERM = 0x01;
+  static final byte ESCAPED = (byte) 0xFF;
+
+  private static final long ONES = 0x0101010101010101L;
+  private static final long LOWS = 0x7F7F7F7F7F7F7F7FL;
+
   public BYTE() { super(); }
   public BYTE(Order order) { super(order); }
 
   @Override
-  public boolean supportsNull() {
-    // TODO
-    throw new RuntimeException("Not yet implemented.");
-  }
+  public boolean supportsNull() { return true; }
 
   @Override
   public byte[] toBytes(byte[] val) {
-    // TODO
-    throw new RuntimeException("Not yet implemented.");
+    return toBytes(val, order);
   }
 
   @Override
   public void write(ByteBuffer buff, byte[] val) {
-    // TODO
-    throw new RuntimeException("Not yet implemented.");
+    putBytes(buff, val, order);
   }
 
   @Override
   public byte[] fromBytes(byte[] bytes) {
-    // TODO
-    throw new RuntimeException("Not yet implemented.");
+    return decode(bytes, 0, order);
   }
 
   @Override
   public byte[] read(ByteBuffer buff) {
-    // TODO
-    throw new RuntimeException("Not yet implemented.");
+    return decode(buff, order);
   }
 
+  /**
+   * Read the value at <code>buff</code>'s position. When the value contains
+   * no escapes and this serializer is ASCENDING, the returned buffer shares
+   * content with <code>buff</code>; otherwise it wraps a decoded copy. The
+   * returned buffer spans exactly the value.
+   * @return the value, or null for a NULL value.
+   */
+  public ByteBuffer readSlice(ByteBuffer buff) {
+    return slice(buff, order);
+  }
+
+  @Override
+  public int skip(ByteBuffer buff) {
+    int len = length(buff, buff.position(), order.mask());
+    buff.position(buff.position() + len);
+    return len;
+  }
+
+  @Override
+  public int skip(byte[] bytes, int offset) {
+    return length(bytes, offset, order.mask());
+  }
+
+  @Override
+  public int encodedLength(byte[] val) {
+    if (null == val) return 2;
+    return val.length + count(val, 0, val.length, ESC) + 2;
+  }
+
+  //
+  // Helper methods to mimic {@link Bytes}
+  //
+
+  public static byte[] toBytes(byte[] val, Order order) {
+    byte mask = order.mask();
+    if (null == val) return new byte[] { (byte) (NULL ^ mask), (byte) (NULL ^ mask) };
+    byte[] ret = new byte[val.length + count(val, 0, val.length, ESC) + 2];
+    int p = putEscaped(ret, 0, val, mask);
+    ret[p++] = (byte) (ESC ^ mask);
+    ret[p] = (byte) (TERM ^ mask);
+    return ret;
+  }
+
+  public static void putBytes(ByteBuffer buff, byte[] val, Order order) {
+    byte mask = order.mask();
+    if (null == val) {
+      buff.put((byte) (NULL ^ mask));
+      buff.put((byte) (NULL ^ mask));
+      return;
+    }
+
+    if (buff.hasArray()) {
+      assert buff.remaining() >= val.length + count(val, 0, val.length, ESC) + 2;
+      int pos = buff.arrayOffset() + buff.position();
+      buff.position(putEscaped(buff.array(), pos, val, mask) - buff.arrayOffset());
+    } else {
+      for (int i = 0, z; i <= val.length; i = z + 1) {
+        z = indexOf(val, i, val.length, ESC);
+        if (z < 0) z = val.length;
+        if (mask == 0) {
+          buff.put(val, i, z - i);
+        } else {
+          for (int j = i; j < z; j++) buff.put((byte) (val[j] ^ mask));
+        }
+        if (z < val.length) {
+          buff.put((byte) (ESC ^ mask));
+          buff.put((byte) (ESCAPED ^ mask));
+        }
+      }
+    }
+    buff.put((byte) (ESC ^ mask));
+    buff.put((byte) (TERM ^ mask));
+  }
+
+  public static byte[] decode(byte[] bytes, int offset, Order order) {
+    ByteBuffer buff = ByteBuffer.wrap(bytes);
+    buff.position(offset);
+    return decode(buff, order);
+  }
+
+  public static byte[] decode(ByteBuffer buff, Order order) {
+    byte mask = order.mask();
+    int start = buff.position();
+    if (isNull(buff, start, mask)) {
+      buff.position(start + 2);
+      return null;
+    }
+
+    byte esc = (byte) (ESC ^ mask);
+    int term = terminator(buff, start, mask);
+    int escapes = count(buff, start, term, esc);
+    byte[] ret = new byte[term - start - escapes];
+
+    // copy the runs between escapes still masked, then unmask in one pass.
+    ByteBuffer src = buff.duplicate();
+    for (int i = start, p = 0, z; i < term; i = z + 2) {
+      z = escapes == 0 ? -1 : indexOf(buff, i, term, esc);
+      if (z < 0) z = term;
+      src.limit(z);
+      src.position(i);
+      src.get(ret, p, z - i);
+      p += z - i;
+      if (z < term) ret[p++] = esc;
+    }
+    if (mask != 0) {
+      for (int i = 0; i < ret.length; i++) ret[i] ^= mask;
+    }
+    buff.position(term + 2);
+    return ret;
+  }
+
+  /**
+   * Read the value at <code>buff</code>'s position, sharing content with
+   * <code>buff</code> where no decoding is required.
+   * @see #readSlice(ByteBuffer)
+   */
+  public static ByteBuffer slice(ByteBuffer buff, Order order) {
+    byte mask = order.mask();
+    int start = buff.position();
+    if (mask != 0 || isNull(buff, start, mask)) {
+      byte[] val = decode(buff, order);
+      return null == val ? null : ByteBuffer.wrap(val);
+    }
+
+    int term = terminator(buff, start, mask);
+    if (indexOf(buff, start, term, ESC) >= 0) {
+      byte[] val = decode(buff, order);
+      return ByteBuffer.wrap(val);
+    }
+    ByteBuffer ret = buff.duplicate();
+    ret.limit(term);
+    buff.position(term + 2);
+    return ret.slice();
+  }
+
+  //
+  // Escape scanning helpers.
+  //
+
+  private static boolean isNull(ByteBuffer buff, int pos, byte mask) {
+    return buff.limit() - pos >= 2
+        && buff.get(pos) == (byte) (NULL ^ mask)
+        && buff.get(pos + 1) == (byte) (NULL ^ mask);
+  }
+
+  /**
+   * Copy <code>val</code> into <code>dst</code> at <code>offset</code>,
+   * escaping <code>0x00</code> bytes and applying <code>mask</code>.
+   * @return the offset in <code>dst</code> following the last byte written.
+   */
+  private static int putEscaped(byte[] dst, int offset, byte[] val, byte mask) {
+    int p = offset;
+    for (int i = 0, z; i <= val.length; i = z + 1) {
+      z = indexOf(val, i, val.length, ESC);
+      if (z < 0) z = val.length;
+      if (mask == 0) {
+        System.arraycopy(val, i, dst, p, z - i);
+        p += z - i;
+      } else {
+        for (int j = i; j < z; j++) dst[p++] = (byte) (val[j] ^ mask);
+      }
+      if (z < val.length) {
+        dst[p++] = (byte) (ESC ^ mask);
+        dst[p++] = (byte) (ESCAPED ^ mask);
+      }
+    }
+    return p;
+  }
+
+  /**
+   * Absolute position of the terminator of the value starting at
+   * <code>start</code>. Validates the bytes following each escape.
+   */
+  private static int terminator(ByteBuffer buff, int start, byte mask) {
+    byte esc = (byte) (ESC ^ mask);
+    for (int i = start;;) {
+      int z = indexOf(buff, i, buff.limit(), esc);
+      if (z < 0 || z + 1 >= buff.limit())
+        throw new IllegalArgumentException("Encoded value is not terminated.");
+      byte next = (byte) (buff.get(z + 1) ^ mask);
+      if (next == TERM) return z;
+      if (next != ESCAPED)
+        throw new IllegalArgumentException("Invalid escape sequence at byte " + z + ".");
+      i = z + 2;
+    }
+  }
+
+  /**
+   * Total encoded length of the value at absolute position <code>pos</code>
+   * in <code>buff</code>.
+   */
+  private static int length(ByteBuffer buff, int pos, byte mask) {
+    if (isNull(buff, pos, mask)) return 2;
+    return terminator(buff, pos, mask) + 2 - pos;
+  }
+
+  /**
+   * Total encoded length of the value at <code>pos</code> in
+   * <code>bytes</code>. Validates the bytes following each escape.
+   */
+  private static int length(byte[] bytes, int pos, byte mask) {
+    byte esc = (byte) (ESC ^ mask);
+    if (bytes.length - pos >= 2 && bytes[pos] == esc && bytes[pos + 1] == (byte) (NULL ^ mask))
+      return 2;
+    for (int i = pos;;) {
+      int z = indexOf(bytes, i, bytes.length, esc);
+      if (z < 0 || z + 1 >= bytes.length)
+        throw new IllegalArgumentException("Encoded value is not terminated.");
+      byte next = (byte) (bytes[z + 1] ^ mask);
+      if (next == TERM) return z + 2 - pos;
+      if (next != ESCAPED)
+        throw new IllegalArgumentException("Invalid escape sequence at byte " + z + ".");
+      i = z + 2;
+    }
+  }
+
+  /**
+   * A word with the high bit set in exactly the zero bytes of
+   * <code>w</code>. Unlike <code>(w - ONES) &amp; ~w &amp; HIGHS</code>,
+   * no borrow crosses byte boundaries, so no byte is falsely flagged.
+   */
+  private static long zeros(long w) {
+    return ~(((w & LOWS) + LOWS) | w | LOWS);
+  }
+
+  /**
+   * Index of the first occurrence of <code>b</code> in
+   * <code>bytes[from, to)</code>, or -1.
+   */
+  private static int indexOf(byte[] bytes, int from, int to, byte b) {
+    long pattern = (b & 0xFFL) * ONES;
+    // heap buffer word loads compile to single, unaligned reads.
+    ByteBuffer words = ByteBuffer.wrap(bytes);
+    int i = from;
+    for (; i + SIZEOF_WORD <= to; i += SIZEOF_WORD) {
+      long z = zeros(words.getLong(i) ^ pattern);
+      // big-endian word; the leading flagged byte is the first match.
+      if (z != 0) return i + (Long.numberOfLeadingZeros(z) >>> 3);
+    }
+    for (; i < to; i++) {
+      if (bytes[i] == b) return i;
+    }
+    return -1;
+  }
+
+  /**
+   * Index of the first occurrence of <code>b</code> at absolute positions
+   * <code>[from, to)</code> of <code>buff</code>, or -1.
+   */
+  private static int indexOf(ByteBuffer buff, int from, int to, byte b) {
+    if (buff.hasArray()) {
+      int off = buff.arrayOffset();
+      int i = indexOf(buff.array(), off + from, off + to, b);
+      return i < 0 ? i : i - off;
+    }
+    long pattern = (b & 0xFFL) * ONES;
+    int i = from;
+    // words are only tested for a match; byte order doesn't matter.
+    for (; i + SIZEOF_WORD <= to; i += SIZEOF_WORD) {
+      if (zeros(buff.getLong(i) ^ pattern) != 0) break;
+    }
+    for (; i < to; i++) {
+      if (buff.get(i) == b) return i;
+    }
+    return -1;
+  }
+
+  private static int count(byte[] bytes, int from, int to, byte b) {
+    int n = 0;
+    for (int i = indexOf(bytes, from, to, b); i >= 0; i = indexOf(bytes, i + 1, to, b)) n++;
+    return n;
+  }
+
+  /**
+   * Count escapes in an encoded value; each escape spans 2 bytes.
+   */
+  private static int count(ByteBuffer buff, int from, int to, byte b) {
+    int n = 0;
+    for (int i = indexOf(buff, from, to, b); i >= 0; i = indexOf(buff, i + 2, to, b)) n++;
+    return n;
+  }
 }
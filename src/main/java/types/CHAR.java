@@ -3,6 +3,7 @@ package types;
 import static java.lang.String.format;
 
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 import util.HSerializer;
 
@@ -16,22 +17,41 @@ import util.HSerializer;
  * Serialization is identical to that of {@link VARCHAR}, with the addition of
  * length constraint checking.
  * </p>
+ * <p>
+ * A padded CHAR always occupies exactly <code>length</code> bytes: the
+ * VARCHAR encoding is followed by further termination bytes up to the full
+ * width. The value is decided before the padding is reached, so padding
+ * preserves sort order in both Orders, and the encoding remains readable as
+ * a VARCHAR. Being fixed-width, padded CHARs are skipped without a scan and
+ * may be wildcarded in fuzzy row keys. Decoding strips the padding from the
+ * end rather than searching for the termination byte.
+ * </p>
  */
 public class CHAR extends HSerializer<String> {
 
   private static final String TOO_LARGE_FMT = "Encoded value does not fit on %d bytes.";
+  private static final String TOO_SMALL_FMT = "Padded value requires %d bytes.";
   private final int length;
+  private final boolean padded;
 
   public CHAR(int length) {
     super();
     this.length = length;
+    this.padded = false;
   }
 
   public CHAR(int length, Order order) {
+    this(length, order, false);
+  }
+
+  public CHAR(int length, Order order, boolean padded) {
     super(order);
     this.length = length;
+    this.padded = padded;
   }
 
+  public boolean isPadded() { return padded; }
+
   /**
    * Ensure <code>val</code> + a termination byte fit within <code>len</code>
    * constraint. This is only a heuristic to detect overly-ambitious input
@@ -47,6 +67,17 @@ public class CHAR extends HSerializer<String> {
     throw new IllegalArgumentException(format(TOO_LARGE_FMT, len));
   }
 
+  /**
+   * Ensure <code>val</code> + a termination byte fit within <code>len</code>
+   * constraint.
+   * @return the encoded length of <code>val</code>, unpadded.
+   */
+  private static int checkLength(int len, String val) {
+    int n = null == val ? 2 : VARCHAR.utf8Length(validate(len, val)) + 1;
+    if (n <= len) return n;
+    throw new IllegalArgumentException(format(TOO_LARGE_FMT, len));
+  }
+
   /**
    * Ensure <code>val</code> fits within <code>len</code> constraint.
    * @param len maximum length of resulting encoded value.
@@ -64,22 +95,64 @@ public class CHAR extends HSerializer<String> {
 
   @Override
   public byte[] toBytes(String val) {
-    return validate(length, VARCHAR.toBytes(validate(length, val), order), 0);
+    if (padded) return putPaddedBytes(length, new byte[length], 0, val, order);
+    return toBytes(length, val, order);
   }
 
   @Override
   public void write(ByteBuffer buff, String val) {
-    buff.put(toBytes(val));
+    if (padded) putPaddedBytes(length, buff, val, order);
+    else putBytes(length, buff, val, order);
   }
 
   @Override
   public String fromBytes(byte[] bytes) {
+    if (padded) return toPaddedString(length, bytes, 0, order);
     return VARCHAR.toString(validate(length, bytes, 0), 0, order);
   }
 
   @Override
   public String read(ByteBuffer buff) {
-    return validate(length, VARCHAR.toString(buff));
+    if (!padded) return validate(length, VARCHAR.toString(buff, order));
+    if (buff.remaining() < length) throw new IllegalArgumentException(format(TOO_SMALL_FMT, length));
+    String ret;
+    if (buff.hasArray()) {
+      ret = toPaddedString(length, buff.array(), buff.arrayOffset() + buff.position(), order);
+      buff.position(buff.position() + length);
+    } else {
+      byte[] encoded = new byte[length];
+      buff.get(encoded);
+      ret = toPaddedString(length, encoded, 0, order);
+    }
+    return ret;
+  }
+
+  @Override
+  public int skip(ByteBuffer buff) {
+    if (!padded) return VARCHAR.skip(buff, order);
+    buff.position(buff.position() + length);
+    return length;
+  }
+
+  @Override
+  public int skip(byte[] bytes, int offset) {
+    return padded ? length : VARCHAR.skip(bytes, offset, order);
+  }
+
+  @Override
+  public int encodedLength(String val) {
+    if (padded) return length;
+    return null == val ? 2 : VARCHAR.utf8Length(val) + 1;
+  }
+
+  @Override
+  public int encodedWidth() {
+    return padded ? length : -1;
+  }
+
+  @Override
+  public String toString() {
+    return padded ? "CHAR(" + length + ", PADDED, " + order + ")" : super.toString();
   }
 
   //
@@ -91,18 +164,58 @@ public class CHAR extends HSerializer<String> {
   }
 
   public static ByteBuffer putBytes(int length, ByteBuffer buff, String val, Order order) {
-    // TODO: reimplement with fewer allocation/copies
-    return buff.put(toBytes(length, val, order));
+    // constraints are checked up front, so the buffer remains unmodified in
+    // the event of constraint failure.
+    checkLength(length, val);
+    return VARCHAR.putBytes(buff, val, order);
   }
 
   public static byte[] putBytes(int length, byte[] dst, int dstOffset, String val, Order order) {
-    // don't populate the ByteBuffer directly so that it remains unmodified in
-    // the event of constraint failure.
-    byte[] bytes = validate(length, VARCHAR.toBytes(validate(length, val), order), 0);
-    System.arraycopy(bytes, 0, dst, dstOffset, bytes.length);
+    checkLength(length, val);
+    return VARCHAR.putBytes(dst, dstOffset, val, order);
+  }
+
+  /**
+   * Write <code>val</code> padded to exactly <code>length</code> bytes.
+   */
+  public static ByteBuffer putPaddedBytes(int length, ByteBuffer buff, String val, Order order) {
+    if (buff.hasArray()) {
+      putPaddedBytes(length, buff.array(), buff.arrayOffset() + buff.position(), val, order);
+      buff.position(buff.position() + length);
+      return buff;
+    }
+    int n = checkLength(length, val);
+    VARCHAR.putBytes(buff, val, order);
+    byte pad = VARCHAR.mask(order, VARCHAR.TERM);
+    for (int i = n; i < length; i++) buff.put(pad);
+    return buff;
+  }
+
+  /**
+   * Write <code>val</code> padded to exactly <code>length</code> bytes.
+   */
+  public static byte[] putPaddedBytes(int length, byte[] dst, int dstOffset, String val, Order order) {
+    int n = checkLength(length, val);
+    VARCHAR.putBytes(dst, dstOffset, val, order);
+    Arrays.fill(dst, dstOffset + n, dstOffset + length, VARCHAR.mask(order, VARCHAR.TERM));
     return dst;
   }
 
+  /**
+   * Decode the padded value occupying <code>[offset, offset +
+   * length)</code> of <code>bytes</code>, stripping the padding from the end.
+   */
+  public static String toPaddedString(int length, byte[] bytes, int offset, Order order) {
+    if (length < 1 || bytes.length - offset < length)
+      throw new IllegalArgumentException(format(TOO_SMALL_FMT, length));
+    // the value holds no termination byte; the last one follows it.
+    final byte t = VARCHAR.mask(order, VARCHAR.TERM);
+    int term = offset + length - 1;
+    while (term > offset && bytes[term - 1] == t) term--;
+    if (bytes[term] != t) throw new IllegalArgumentException("Encoded value is not terminated.");
+    return VARCHAR.decode(bytes, offset, term, order);
+  }
+
   public static String toString(int length, byte[] bytes) {
     return VARCHAR.toString(validate(length, bytes, 0), 0, DEFAULT_ORDER);
   }
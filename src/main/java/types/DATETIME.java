@@ -4,6 +4,7 @@ import java.nio.ByteBuffer;
 import java.util.Date;
 
 import util.HSerializer;
+import util.LongSerializer;
 
 /**
  * Serializer for HBase DATETIME values.
@@ -11,8 +12,12 @@ import util.HSerializer;
  * The HBase DATETIME represents an instant in time. It is stored as a
  * {@link LONG} value representing milliseconds from the epoch.
  * </p>
+ * <p>
+ * The {@link LongSerializer} methods read and write those milliseconds
+ * directly, never creating a {@link Date}.
+ * </p>
  */
-public class DATETIME extends HSerializer<Date> {
+public class DATETIME extends HSerializer<Date> implements LongSerializer {
 
   static final int SIZEOF_DATETIME = LONG.SIZEOF_LONG;
 
@@ -42,6 +47,49 @@ public class DATETIME extends HSerializer<Date> {
     return new Date(LONG.toLong(buff, order));
   }
 
+  @Override
+  public int skip(ByteBuffer buff) {
+    buff.position(buff.position() + SIZEOF_DATETIME);
+    return SIZEOF_DATETIME;
+  }
+
+  @Override
+  public int skip(byte[] bytes, int offset) {
+    assert bytes.length >= offset + SIZEOF_DATETIME;
+    return SIZEOF_DATETIME;
+  }
+
+  @Override
+  public int encodedLength(Date val) {
+    return SIZEOF_DATETIME;
+  }
+
+  @Override
+  public int encodedWidth() {
+    return SIZEOF_DATETIME;
+  }
+
+  @Override
+  public int encodeLong(long val, byte[] dst, int offset) {
+    LONG.putRaw(dst, offset, LONG.toRawLong(val, order));
+    return SIZEOF_DATETIME;
+  }
+
+  @Override
+  public void encodeLong(long val, ByteBuffer buff) {
+    LONG.putBytes(buff, val, order);
+  }
+
+  @Override
+  public long decodeLong(byte[] src, int offset) {
+    return LONG.toLong(src, offset, order);
+  }
+
+  @Override
+  public long decodeLong(ByteBuffer buff) {
+    return LONG.toLong(buff, order);
+  }
+
   //
   // Helper methods to mimic {@link Bytes}
   //
@@ -77,4 +125,22 @@ public class DATETIME extends HSerializer<Date> {
   public static void putBytes(final ByteBuffer buff, long val, Order order) {
     LONG.putBytes(buff, val, order);
   }
+
+  //
+  // Batch helpers operating on epoch milliseconds, laid out as in LONG.
+  //
+
+  public static byte[] toBytes(long[] vals, Order order) {
+    return LONG.toBytes(vals, order);
+  }
+
+  public static int putBytes(byte[] dst, int offset, long[] vals, int from, int len,
+      Order order) {
+    return LONG.putBytes(dst, offset, vals, from, len, order);
+  }
+
+  public static int toLongs(byte[] src, int offset, long[] dst, int from, int len,
+      Order order) {
+    return LONG.toLongs(src, offset, dst, from, len, order);
+  }
 }
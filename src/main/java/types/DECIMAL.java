@@ -2,43 +2,472 @@ package types;
 
 
 import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.nio.ByteBuffer;
 
 import util.HSerializer;
 
+/**
+ * Serializer for arbitrary precision decimal values.
+ * <p>
+ * A non-zero value is normalized to <code>&plusmn;0.d<sub>1</sub>d<sub>2</sub>...
+ * &times; 100<sup>E</sup></code>, where each <code>d</code> is a base-100
+ * digit, <code>d<sub>1</sub></code> is non-zero and trailing zero digits are
+ * dropped. Numerically equal values, such as <code>1.0</code> and
+ * <code>1.00</code>, thus share an encoding. The encoding is a header byte
+ * describing the sign and exponent, followed by one byte per digit: a digit
+ * <code>d</code> is written <code>2d + 1</code> when more digits follow, and
+ * <code>2d</code> when it is the last. Exponent and digit bytes of negative
+ * values are logically inverted. Headers are allocated as follows:
+ * </p>
+ * <table>
+ * <tr><th>header</th><th>meaning</th></tr>
+ * <tr><td>0x00</td><td>NULL</td></tr>
+ * <tr><td>0x01</td><td>negative, E &gt; 62, followed by a 4-byte exponent</td></tr>
+ * <tr><td>0x02 - 0x7E</td><td>negative, E = <code>0x40 - header</code></td></tr>
+ * <tr><td>0x7F</td><td>negative, E &lt; -62, followed by a 4-byte exponent</td></tr>
+ * <tr><td>0x80</td><td>zero</td></tr>
+ * <tr><td>0x81</td><td>positive, E &lt; -62, followed by a 4-byte exponent</td></tr>
+ * <tr><td>0x82 - 0xFE</td><td>positive, E = <code>header - 0xC0</code></td></tr>
+ * <tr><td>0xFF</td><td>positive, E &gt; 62, followed by a 4-byte exponent</td></tr>
+ * </table>
+ * <p>
+ * Values of up to 18 significant digits are decoded without constructing a
+ * <code>BigInteger</code>. Encoding a <code>BigDecimal</code> costs the
+ * <code>BigInteger</code> returned by <code>unscaledValue()</code>, once
+ * per value. Only the <code>(long unscaled, int scale)</code> helpers avoid
+ * <code>BigInteger</code>, and <code>BigDecimal</code>, entirely. For DESCENDING sort order, the encoded
+ * value is logically inverted.
+ * </p>
+ */
 public class DECIMAL extends HSerializer<BigDecimal> {
 
+  static final byte NULL = 0x00;
+  static final int NEG_LARGE = 0x01;
+  static final int NEG_MED = 0x40;
+  static final int NEG_SMALL = 0x7F;
+  static final int ZERO = 0x80;
+  static final int POS_SMALL = 0x81;
+  static final int POS_MED = 0xC0;
+  static final int POS_LARGE = 0xFF;
+
+  /** Largest exponent magnitude described by the header alone. */
+  static final int MAX_MED_EXP = 62;
+  static final int SIZEOF_EXP = Integer.SIZE / Byte.SIZE;
+
+  /** Number of base-100 digits always accumulated by a <code>long</code>. */
+  private static final int MAX_LONG_DIGITS = 9;
+
+  private static final long[] POW10 = new long[19];
+  static {
+    POW10[0] = 1;
+    for (int i = 1; i < POW10.length; i++) POW10[i] = POW10[i - 1] * 10;
+  }
+
   public DECIMAL() { super(); }
   public DECIMAL(Order order) { super(order); }
 
   @Override
-  public boolean supportsNull() {
-    // TODO
-    throw new RuntimeException("Not yet implemented.");
-  }
+  public boolean supportsNull() { return true; }
 
   @Override
   public byte[] toBytes(BigDecimal val) {
-    // TODO
-    throw new RuntimeException("Not yet implemented.");
+    return toBytes(val, order);
   }
 
   @Override
   public void write(ByteBuffer buff, BigDecimal val) {
-    // TODO
-    throw new RuntimeException("Not yet implemented.");
+    putBytes(buff, val, order);
   }
 
   @Override
   public BigDecimal fromBytes(byte[] bytes) {
-    // TODO
-    throw new RuntimeException("Not yet implemented.");
+    return toBigDecimal(bytes, 0, order);
   }
 
   @Override
   public BigDecimal read(ByteBuffer buff) {
-    // TODO
-    throw new RuntimeException("Not yet implemented.");
+    return toBigDecimal(buff, order);
+  }
+
+  @Override
+  public int skip(ByteBuffer buff) {
+    int len = length(buff, buff.position(), order.mask());
+    buff.position(buff.position() + len);
+    return len;
+  }
+
+  @Override
+  public int skip(byte[] bytes, int offset) {
+    return length(bytes, offset, order.mask());
+  }
+
+  @Override
+  public int encodedLength(BigDecimal val) {
+    return length(val);
+  }
+
+  //
+  // Helper methods to mimic {@link Bytes}
+  //
+
+  /**
+   * The number of bytes required to encode <code>unscaled &times;
+   * 10<sup>-scale</sup></code>.
+   */
+  public static int encodedLength(long unscaled, int scale) {
+    if (unscaled == 0) return 1;
+    if (unscaled == Long.MIN_VALUE) return length(BigDecimal.valueOf(unscaled, scale));
+    long mag = Math.abs(unscaled), s = scale;
+    while (mag % 10 == 0) {
+      mag /= 10;
+      s--;
+    }
+    return length(digits(mag), s);
+  }
+
+  public static byte[] toBytes(BigDecimal val, Order order) {
+    if (null != val && val.signum() != 0) {
+      // unscaledValue() allocates; take it once for both length and put.
+      BigInteger unscaled = val.unscaledValue();
+      if (fitsLong(unscaled)) return toBytes(unscaled.longValue(), val.scale(), order);
+    }
+    byte[] ret = new byte[length(val)];
+    put(ByteBuffer.wrap(ret), 0, val, order.mask());
+    return ret;
+  }
+
+  /**
+   * Encode <code>unscaled &times; 10<sup>-scale</sup></code>.
+   */
+  public static byte[] toBytes(long unscaled, int scale, Order order) {
+    byte[] ret = new byte[encodedLength(unscaled, scale)];
+    put(ByteBuffer.wrap(ret), 0, unscaled, scale, order.mask());
+    return ret;
+  }
+
+  public static void putBytes(ByteBuffer buff, BigDecimal val, Order order) {
+    buff.position(buff.position() + put(buff, buff.position(), val, order.mask()));
+  }
+
+  /**
+   * Encode <code>unscaled &times; 10<sup>-scale</sup></code> into
+   * <code>buff</code> at its position.
+   */
+  public static void putBytes(ByteBuffer buff, long unscaled, int scale, Order order) {
+    buff.position(buff.position() + put(buff, buff.position(), unscaled, scale, order.mask()));
+  }
+
+  public static BigDecimal toBigDecimal(byte[] bytes, int offset, Order order) {
+    ByteBuffer buff = ByteBuffer.wrap(bytes);
+    buff.position(offset);
+    return toBigDecimal(buff, order);
+  }
+
+  public static BigDecimal toBigDecimal(ByteBuffer buff, Order order) {
+    byte mask = order.mask();
+    int pos = buff.position();
+    int h = (buff.get(pos) ^ mask) & 0xFF;
+    if (h == NULL || h == ZERO) {
+      buff.position(pos + 1);
+      return h == NULL ? null : BigDecimal.ZERO;
+    }
+
+    boolean neg = h < ZERO;
+    byte m = neg ? (byte) ~mask : mask;
+    long e = exponent(buff, pos, h, m);
+    int at = pos + 1 + (isMedium(h) ? 0 : SIZEOF_EXP);
+    int k = digitCount(buff, at, m);
+    buff.position(at + k);
+    long scale = 2L * (k - e);
+
+    if (k <= MAX_LONG_DIGITS) {
+      long d = 0;
+      for (int i = at; i < at + k; i++) {
+        d = d * 100 + digit(buff.get(i), m);
+      }
+      if (d % 10 == 0) {
+        d /= 10;
+        scale--;
+      }
+      return BigDecimal.valueOf(neg ? -d : d, checkScale(scale));
+    }
+
+    char[] digits = new char[2 * k];
+    for (int i = 0; i < k; i++) {
+      int d = digit(buff.get(at + i), m);
+      digits[2 * i] = (char) ('0' + d / 10);
+      digits[2 * i + 1] = (char) ('0' + d % 10);
+    }
+    int len = digits.length;
+    if (digits[len - 1] == '0') {
+      len--;
+      scale--;
+    }
+    BigInteger unscaled = new BigInteger(new String(digits, 0, len));
+    return new BigDecimal(neg ? unscaled.negate() : unscaled, checkScale(scale));
+  }
+
+  /**
+   * Decode the value encoded in <code>bytes</code> at <code>offset</code> as
+   * an unscaled <code>long</code> at the given <code>scale</code>.
+   * @throws IllegalArgumentException when the value is null, or cannot be
+   *           represented at <code>scale</code> within a <code>long</code>.
+   */
+  public static long toLong(byte[] bytes, int offset, int scale, Order order) {
+    ByteBuffer buff = ByteBuffer.wrap(bytes);
+    buff.position(offset);
+    return toLong(buff, scale, order);
+  }
+
+  /**
+   * Decode the value encoded in <code>buff</code> at its position as an
+   * unscaled <code>long</code> at the given <code>scale</code>.
+   * @throws IllegalArgumentException when the value is null, or cannot be
+   *           represented at <code>scale</code> within a <code>long</code>.
+   */
+  public static long toLong(ByteBuffer buff, int scale, Order order) {
+    byte mask = order.mask();
+    int pos = buff.position();
+    int h = (buff.get(pos) ^ mask) & 0xFF;
+    if (h == NULL) throw new IllegalArgumentException("Cannot decode a null DECIMAL as a long.");
+    if (h == ZERO) {
+      buff.position(pos + 1);
+      return 0;
+    }
+
+    boolean neg = h < ZERO;
+    byte m = neg ? (byte) ~mask : mask;
+    long e = exponent(buff, pos, h, m);
+    int at = pos + 1 + (isMedium(h) ? 0 : SIZEOF_EXP);
+    int k = digitCount(buff, at, m);
+    if (k > MAX_LONG_DIGITS) {
+      BigDecimal val = toBigDecimal(buff, order);
+      try {
+        return val.movePointRight(scale).longValueExact();
+      } catch (ArithmeticException ex) {
+        throw unrepresentable(val, scale);
+      }
+    }
+
+    long d = 0;
+    for (int i = at; i < at + k; i++) {
+      d = d * 100 + digit(buff.get(i), m);
+    }
+    long shift = scale - 2L * (k - e);
+    if (shift >= 0) {
+      if (shift >= POW10.length || d > Long.MAX_VALUE / POW10[(int) shift])
+        throw unrepresentable(toBigDecimal(buff, order), scale);
+      d *= POW10[(int) shift];
+    } else {
+      if (-shift >= POW10.length || d % POW10[(int) -shift] != 0)
+        throw unrepresentable(toBigDecimal(buff, order), scale);
+      d /= POW10[(int) -shift];
+    }
+    buff.position(at + k);
+    return neg ? -d : d;
   }
 
+  //
+  // Encoding helpers.
+  //
+
+  private static boolean fitsLong(BigInteger unscaled) {
+    return unscaled.bitLength() < Long.SIZE && unscaled.longValue() != Long.MIN_VALUE;
+  }
+
+  /**
+   * Number of decimal digits in the positive value <code>mag</code>.
+   */
+  private static int digits(long mag) {
+    int n = 1;
+    while (n < POW10.length && mag >= POW10[n]) n++;
+    return n;
+  }
+
+  private static int length(BigDecimal val) {
+    if (null == val || val.signum() == 0) return 1;
+    BigInteger unscaled = val.unscaledValue();
+    if (fitsLong(unscaled)) return encodedLength(unscaled.longValue(), val.scale());
+    val = val.stripTrailingZeros();
+    return length(val.precision(), val.scale());
+  }
+
+  /**
+   * Encoded length of a non-zero value of <code>n</code> significant decimal
+   * digits, the last non-zero, at <code>scale</code>.
+   */
+  private static int length(int n, long scale) {
+    long point = n - scale;
+    int k = (n + (int) (point & 1) + 1) >>> 1;
+    long e = (point + 1) >> 1;
+    return 1 + (-MAX_MED_EXP <= e && e <= MAX_MED_EXP ? 0 : SIZEOF_EXP) + k;
+  }
+
+  private static int put(ByteBuffer buff, int pos, BigDecimal val, byte mask) {
+    if (null == val) {
+      buff.put(pos, (byte) (NULL ^ mask));
+      return 1;
+    }
+    if (val.signum() == 0) {
+      buff.put(pos, (byte) (ZERO ^ mask));
+      return 1;
+    }
+    BigInteger unscaled = val.unscaledValue();
+    if (fitsLong(unscaled)) return put(buff, pos, unscaled.longValue(), val.scale(), mask);
+
+    val = val.stripTrailingZeros();
+    boolean neg = val.signum() < 0;
+    String digits = val.unscaledValue().abs().toString();
+    int n = digits.length();
+    long point = n - (long) val.scale();
+    int lead = (int) (point & 1);
+    int k = (n + lead + 1) >>> 1;
+    int at = putExponent(buff, pos, neg, (point + 1) >> 1, mask);
+    byte m = neg ? (byte) ~mask : mask;
+    for (int j = 0; j < k; j++) {
+      int hi = 2 * j - lead;
+      int d = digitAt(digits, hi) * 10 + digitAt(digits, hi + 1);
+      buff.put(at + j, digit(d, j == k - 1, m));
+    }
+    return at + k - pos;
+  }
+
+  private static int digitAt(String digits, int i) {
+    return i < 0 || i >= digits.length() ? 0 : digits.charAt(i) - '0';
+  }
+
+  /**
+   * Write <code>unscaled &times; 10<sup>-scale</sup></code> at absolute
+   * position <code>pos</code>.
+   * @return the number of bytes written.
+   */
+  private static int put(ByteBuffer buff, int pos, long unscaled, int scale, byte mask) {
+    if (unscaled == 0) {
+      buff.put(pos, (byte) (ZERO ^ mask));
+      return 1;
+    }
+    if (unscaled == Long.MIN_VALUE) return put(buff, pos, BigDecimal.valueOf(unscaled, scale), mask);
+
+    boolean neg = unscaled < 0;
+    long mag = neg ? -unscaled : unscaled, s = scale;
+    while (mag % 10 == 0) {
+      mag /= 10;
+      s--;
+    }
+    int n = digits(mag);
+    long point = n - s;
+    int t = n + (int) (point & 1);
+    int k = (t + 1) >>> 1;
+    int at = putExponent(buff, pos, neg, (point + 1) >> 1, mask);
+    byte m = neg ? (byte) ~mask : mask;
+
+    // fill digits right to left; an odd digit count implies a trailing zero.
+    int i = at + k - 1;
+    boolean last = true;
+    if ((t & 1) != 0) {
+      buff.put(i--, digit((int) (mag % 10) * 10, true, m));
+      mag /= 10;
+      last = false;
+    }
+    for (; i >= at; i--) {
+      buff.put(i, digit((int) (mag % 100), last, m));
+      mag /= 100;
+      last = false;
+    }
+    return at + k - pos;
+  }
+
+  private static byte digit(int d, boolean last, byte m) {
+    return (byte) (((d << 1) | (last ? 0 : 1)) ^ m);
+  }
+
+  private static int digit(byte b, byte m) {
+    return ((b ^ m) & 0xFF) >>> 1;
+  }
+
+  /**
+   * Write the header for a non-zero value with exponent <code>e</code> at
+   * absolute position <code>pos</code>.
+   * @return the position of the first digit.
+   */
+  private static int putExponent(ByteBuffer buff, int pos, boolean neg, long e, byte mask) {
+    if (-MAX_MED_EXP <= e && e <= MAX_MED_EXP) {
+      buff.put(pos, (byte) ((neg ? NEG_MED - e : POS_MED + e) ^ mask));
+      return pos + 1;
+    }
+    if (e < Integer.MIN_VALUE || e > Integer.MAX_VALUE)
+      throw new IllegalArgumentException("DECIMAL exponent out of range: " + e);
+
+    int h = e > 0 ? (neg ? NEG_LARGE : POS_LARGE) : (neg ? NEG_SMALL : POS_SMALL);
+    buff.put(pos, (byte) (h ^ mask));
+    int raw = (int) e ^ Integer.MIN_VALUE;
+    byte m = neg ? (byte) ~mask : mask;
+    for (int i = 0; i < SIZEOF_EXP; i++) {
+      buff.put(pos + 1 + i, (byte) ((raw >>> ((SIZEOF_EXP - 1 - i) * Byte.SIZE)) ^ m));
+    }
+    return pos + 1 + SIZEOF_EXP;
+  }
+
+  //
+  // Decoding helpers.
+  //
+
+  private static boolean isMedium(int h) {
+    return h != NEG_LARGE && h != NEG_SMALL && h != POS_SMALL && h != POS_LARGE;
+  }
+
+  private static long exponent(ByteBuffer buff, int pos, int h, byte m) {
+    if (isMedium(h)) return h < ZERO ? NEG_MED - h : h - POS_MED;
+    int raw = 0;
+    for (int i = pos + 1; i <= pos + SIZEOF_EXP; i++) {
+      raw = (raw << Byte.SIZE) | ((buff.get(i) ^ m) & 0xFF);
+    }
+    return raw ^ Integer.MIN_VALUE;
+  }
+
+  /**
+   * Number of digit bytes starting at absolute position <code>at</code>.
+   */
+  private static int digitCount(ByteBuffer buff, int at, byte m) {
+    int i = at;
+    while (((buff.get(i) ^ m) & 1) != 0) i++;
+    return i - at + 1;
+  }
+
+  /**
+   * Total encoded length of the value at absolute position <code>pos</code>
+   * in <code>buff</code>.
+   */
+  private static int length(ByteBuffer buff, int pos, byte mask) {
+    int h = (buff.get(pos) ^ mask) & 0xFF;
+    if (h == NULL || h == ZERO) return 1;
+    int at = pos + 1 + (isMedium(h) ? 0 : SIZEOF_EXP);
+    return at + digitCount(buff, at, h < ZERO ? (byte) ~mask : mask) - pos;
+  }
+
+  /**
+   * Total encoded length of the value at <code>pos</code> in
+   * <code>bytes</code>.
+   */
+  private static int length(byte[] bytes, int pos, byte mask) {
+    int h = (bytes[pos] ^ mask) & 0xFF;
+    if (h == NULL || h == ZERO) return 1;
+    int at = pos + 1 + (isMedium(h) ? 0 : SIZEOF_EXP);
+    byte m = h < ZERO ? (byte) ~mask : mask;
+    int i = at;
+    while (((bytes[i] ^ m) & 1) != 0) i++;
+    return i + 1 - pos;
+  }
+
+  private static int checkScale(long scale) {
+    if (scale < Integer.MIN_VALUE || scale > Integer.MAX_VALUE)
+      throw new IllegalArgumentException("DECIMAL scale out of range: " + scale);
+    return (int) scale;
+  }
+
+  private static IllegalArgumentException unrepresentable(BigDecimal val, int scale) {
+    return new IllegalArgumentException(
+      "DECIMAL value " + val + " cannot be represented as a long at scale " + scale + ".");
+  }
 }
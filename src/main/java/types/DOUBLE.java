@@ -5,6 +5,7 @@ import static types.LONG.putRaw;
 
 import java.nio.ByteBuffer;
 
+import util.DoubleSerializer;
 import util.HSerializer;
 
 /**
@@ -21,7 +22,7 @@ import util.HSerializer;
  * logically inverted.
  * </p>
  */
-public class DOUBLE extends HSerializer<Double> {
+public class DOUBLE extends HSerializer<Double> implements DoubleSerializer {
 
   static final int SIZEOF_DOUBLE = LONG.SIZEOF_LONG;
 
@@ -51,6 +52,49 @@ public class DOUBLE extends HSerializer<Double> {
     return toDouble(buff, order);
   }
 
+  @Override
+  public int skip(ByteBuffer buff) {
+    buff.position(buff.position() + SIZEOF_DOUBLE);
+    return SIZEOF_DOUBLE;
+  }
+
+  @Override
+  public int skip(byte[] bytes, int offset) {
+    assert bytes.length >= offset + SIZEOF_DOUBLE;
+    return SIZEOF_DOUBLE;
+  }
+
+  @Override
+  public int encodedLength(Double val) {
+    return SIZEOF_DOUBLE;
+  }
+
+  @Override
+  public int encodedWidth() {
+    return SIZEOF_DOUBLE;
+  }
+
+  @Override
+  public int encodeDouble(double val, byte[] dst, int offset) {
+    putRaw(dst, offset, toRawLong(val, order));
+    return SIZEOF_DOUBLE;
+  }
+
+  @Override
+  public void encodeDouble(double val, ByteBuffer buff) {
+    putRaw(buff, toRawLong(val, order));
+  }
+
+  @Override
+  public double decodeDouble(byte[] src, int offset) {
+    return fromRawLong(getRaw(src, offset), order);
+  }
+
+  @Override
+  public double decodeDouble(ByteBuffer buff) {
+    return fromRawLong(getRaw(buff), order);
+  }
+
   //
   // Helper methods to mimic {@link Bytes}
   //
@@ -98,8 +142,49 @@ public class DOUBLE extends HSerializer<Double> {
   }
 
   //
-  // Helper methods for interoping between float values and 4 unsigned byte
-  // sequences stored in an int.
+  // Batch helpers for encoding runs of values into, and decoding them from,
+  // one contiguous byte[]. Value i of a run starting at offset occupies
+  // [offset + i * SIZEOF_DOUBLE, offset + (i + 1) * SIZEOF_DOUBLE).
+  //
+
+  public static byte[] toBytes(double[] vals, Order order) {
+    byte[] ret = new byte[vals.length * SIZEOF_DOUBLE];
+    putBytes(ret, 0, vals, 0, vals.length, order);
+    return ret;
+  }
+
+  /**
+   * Encode <code>len</code> values from <code>vals</code>, starting with
+   * <code>vals[from]</code>, into <code>dst</code> at <code>offset</code>.
+   * @return the offset in <code>dst</code> following the last byte written.
+   */
+  public static int putBytes(byte[] dst, int offset, double[] vals, int from, int len,
+      Order order) {
+    assert dst.length >= offset + len * SIZEOF_DOUBLE;
+    for (int i = from, end = from + len; i < end; i++, offset += SIZEOF_DOUBLE) {
+      putRaw(dst, offset, toRawLong(vals[i], order));
+    }
+    return offset;
+  }
+
+  /**
+   * Decode <code>len</code> values from <code>src</code> at
+   * <code>offset</code> into <code>dst</code>, starting with
+   * <code>dst[from]</code>.
+   * @return the offset in <code>src</code> following the last byte read.
+   */
+  public static int toDoubles(byte[] src, int offset, double[] dst, int from, int len,
+      Order order) {
+    assert src.length >= offset + len * SIZEOF_DOUBLE;
+    for (int i = from, end = from + len; i < end; i++, offset += SIZEOF_DOUBLE) {
+      dst[i] = fromRawLong(getRaw(src, offset), order);
+    }
+    return offset;
+  }
+
+  //
+  // Helper methods for interoping between double values and 8 unsigned byte
+  // sequences stored in a long.
   //
 
   /**
@@ -112,7 +197,7 @@ public class DOUBLE extends HSerializer<Double> {
    */
   protected static long toRawLong(double val, Order order) {
     long raw = Double.doubleToLongBits(val);
-    return (raw ^ ((raw >> Long.SIZE - 1) | Long.MIN_VALUE));
+    return raw ^ ((raw >> Long.SIZE - 1) | Long.MIN_VALUE) ^ order.mask();
   }
 
   /**
@@ -123,6 +208,7 @@ public class DOUBLE extends HSerializer<Double> {
    * @return an application value.
    */
   protected static double fromRawLong(long raw, Order order) {
-    return Double.longBitsToDouble((~raw >> Long.SIZE - 1) | Long.MIN_VALUE);
+    raw ^= order.mask();
+    return Double.longBitsToDouble(raw ^ ((~raw >> Long.SIZE - 1) | Long.MIN_VALUE));
   }
 }
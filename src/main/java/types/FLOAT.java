@@ -5,6 +5,7 @@ import static types.INT.putRaw;
 
 import java.nio.ByteBuffer;
 
+import util.FloatSerializer;
 import util.HSerializer;
 
 /**
@@ -21,7 +22,7 @@ import util.HSerializer;
  * logically inverted.
  * </p>
  */
-public class FLOAT extends HSerializer<Float> {
+public class FLOAT extends HSerializer<Float> implements FloatSerializer {
 
   static final int SIZEOF_FLOAT = INT.SIZEOF_INT;
 
@@ -51,6 +52,49 @@ public class FLOAT extends HSerializer<Float> {
     return toFloat(buff, order);
   }
 
+  @Override
+  public int skip(ByteBuffer buff) {
+    buff.position(buff.position() + SIZEOF_FLOAT);
+    return SIZEOF_FLOAT;
+  }
+
+  @Override
+  public int skip(byte[] bytes, int offset) {
+    assert bytes.length >= offset + SIZEOF_FLOAT;
+    return SIZEOF_FLOAT;
+  }
+
+  @Override
+  public int encodedLength(Float val) {
+    return SIZEOF_FLOAT;
+  }
+
+  @Override
+  public int encodedWidth() {
+    return SIZEOF_FLOAT;
+  }
+
+  @Override
+  public int encodeFloat(float val, byte[] dst, int offset) {
+    putRaw(dst, offset, toRawInt(val, order));
+    return SIZEOF_FLOAT;
+  }
+
+  @Override
+  public void encodeFloat(float val, ByteBuffer buff) {
+    putRaw(buff, toRawInt(val, order));
+  }
+
+  @Override
+  public float decodeFloat(byte[] src, int offset) {
+    return fromRawInt(getRaw(src, offset), order);
+  }
+
+  @Override
+  public float decodeFloat(ByteBuffer buff) {
+    return fromRawInt(getRaw(buff), order);
+  }
+
   //
   // Helper methods to mimic {@link Bytes}
   //
@@ -97,6 +141,47 @@ public class FLOAT extends HSerializer<Float> {
     putRaw(buff, toRawInt(val, order));
   }
 
+  //
+  // Batch helpers for encoding runs of values into, and decoding them from,
+  // one contiguous byte[]. Value i of a run starting at offset occupies
+  // [offset + i * SIZEOF_FLOAT, offset + (i + 1) * SIZEOF_FLOAT).
+  //
+
+  public static byte[] toBytes(float[] vals, Order order) {
+    byte[] ret = new byte[vals.length * SIZEOF_FLOAT];
+    putBytes(ret, 0, vals, 0, vals.length, order);
+    return ret;
+  }
+
+  /**
+   * Encode <code>len</code> values from <code>vals</code>, starting with
+   * <code>vals[from]</code>, into <code>dst</code> at <code>offset</code>.
+   * @return the offset in <code>dst</code> following the last byte written.
+   */
+  public static int putBytes(byte[] dst, int offset, float[] vals, int from, int len,
+      Order order) {
+    assert dst.length >= offset + len * SIZEOF_FLOAT;
+    for (int i = from, end = from + len; i < end; i++, offset += SIZEOF_FLOAT) {
+      putRaw(dst, offset, toRawInt(vals[i], order));
+    }
+    return offset;
+  }
+
+  /**
+   * Decode <code>len</code> values from <code>src</code> at
+   * <code>offset</code> into <code>dst</code>, starting with
+   * <code>dst[from]</code>.
+   * @return the offset in <code>src</code> following the last byte read.
+   */
+  public static int toFloats(byte[] src, int offset, float[] dst, int from, int len,
+      Order order) {
+    assert src.length >= offset + len * SIZEOF_FLOAT;
+    for (int i = from, end = from + len; i < end; i++, offset += SIZEOF_FLOAT) {
+      dst[i] = fromRawInt(getRaw(src, offset), order);
+    }
+    return offset;
+  }
+
   //
   // Helper methods for interoping between float values and 4 unsigned byte
   // sequences stored in an int.
@@ -112,7 +197,7 @@ public class FLOAT extends HSerializer<Float> {
    */
   protected static int toRawInt(float val, Order order) {
     int raw = Float.floatToIntBits(val);
-    return (raw ^ ((raw >> Integer.SIZE - 1) | Integer.MIN_VALUE));
+    return raw ^ ((raw >> Integer.SIZE - 1) | Integer.MIN_VALUE) ^ order.mask();
   }
 
   /**
@@ -123,6 +208,7 @@ public class FLOAT extends HSerializer<Float> {
    * @return an application value.
    */
   protected static float fromRawInt(int raw, Order order) {
-    return Float.intBitsToFloat((~raw >> Integer.SIZE - 1) | Integer.MIN_VALUE);
+    raw ^= order.mask();
+    return Float.intBitsToFloat(raw ^ ((~raw >> Integer.SIZE - 1) | Integer.MIN_VALUE));
   }
 }
@@ -0,0 +1,129 @@
+package types;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.hbase.util.Pair;
+
+import util.HSerializer;
+
+/**
+ * Builds the fuzzy row key and mask matching a pattern over the fields of a
+ * {@link STRUCT}, in the form accepted by HBase's <code>FuzzyRowFilter</code>.
+ * <p>
+ * Each field, starting with the first, is either fixed to a value or left as
+ * a wildcard. For example, "any salt, tenant t, metric m" over a (salt,
+ * tenant, metric, ts) schema is
+ * </p>
+ * <pre>
+ * new FuzzyRowPattern(struct).any().fixed(t).fixed(m).toPair();
+ * </pre>
+ * <p>
+ * Mask bytes are <code>0</code> where the key byte must match and
+ * <code>1</code> where any byte is accepted. Trailing wildcards, including
+ * fields not mentioned, are dropped from the key and so match any value,
+ * null included. A wildcard followed by a fixed field must occupy a known
+ * number of bytes, so it is only permitted on fields whose serializer
+ * reports an {@link HSerializer#encodedWidth()}.
+ * Any other wildcard on a field preceded by an isNull marker matches only
+ * non-null values.
+ * </p>
+ */
+@SuppressWarnings({ "rawtypes", "unchecked" })
+public class FuzzyRowPattern {
+
+  private static final Object ANY = new Object();
+
+  private final STRUCT struct;
+  private final List<Object> pattern = new ArrayList<Object>();
+
+  public FuzzyRowPattern(STRUCT struct) {
+    this.struct = struct;
+  }
+
+  /**
+   * Match rows whose next field equals <code>val</code>.
+   */
+  public FuzzyRowPattern fixed(Object val) {
+    return add(val);
+  }
+
+  /**
+   * Match rows holding any non-null value in the next field.
+   */
+  public FuzzyRowPattern any() {
+    return add(ANY);
+  }
+
+  private FuzzyRowPattern add(Object o) {
+    if (pattern.size() >= struct.schema.size())
+      throw new IllegalStateException("Schema has only " + struct.schema.size() + " fields.");
+    pattern.add(o);
+    return this;
+  }
+
+  /**
+   * @return the fuzzy key as its first element and the mask as its second.
+   * @throws IllegalArgumentException when a wildcard that precedes a fixed
+   *           field has no fixed encoded width.
+   */
+  public Pair<byte[], byte[]> toPair() {
+    int last = pattern.size() - 1;
+    while (last >= 0 && pattern.get(last) == ANY) last--;
+
+    List<byte[]> keys = new ArrayList<byte[]>(last + 1);
+    List<byte[]> masks = new ArrayList<byte[]>(last + 1);
+    int len = 0;
+    for (int i = 0; i <= last; i++) {
+      HSerializer s = struct.schema.get(i);
+      Object v = pattern.get(i);
+      byte[] key, mask;
+      if (v == ANY) {
+        // a non-null value behind a fixed marker is as wide as its encoding.
+        boolean marked = s instanceof NULLABLE;
+        HSerializer f = marked ? ((NULLABLE) s).serde() : s;
+        int width = f.encodedWidth();
+        if (width < 0)
+          throw new IllegalArgumentException("Field " + i + " (" + f + ") has no fixed width;"
+              + " a wildcard on it cannot be expressed as a fuzzy row key.");
+        key = new byte[(marked ? 1 : 0) + width];
+        mask = new byte[key.length];
+        for (int j = marked ? 1 : 0; j < mask.length; j++) mask[j] = 1;
+        if (marked) key[0] = ((NULLABLE) s).notNullMarker();
+      } else {
+        key = s.toBytes(v);
+        mask = new byte[key.length];
+      }
+      keys.add(key);
+      masks.add(mask);
+      len += key.length;
+    }
+    return new Pair<byte[], byte[]>(concat(keys, len), concat(masks, len));
+  }
+
+  /**
+   * The fuzzy row key: the pattern's encoding, with zeros at wildcard
+   * positions.
+   */
+  public byte[] toKey() {
+    return toPair().getFirst();
+  }
+
+  /**
+   * The fuzzy row mask: <code>0</code> for each fixed byte of
+   * {@link #toKey()}, <code>1</code> for each wildcard byte.
+   */
+  public byte[] toMask() {
+    return toPair().getSecond();
+  }
+
+  private static byte[] concat(List<byte[]> parts, int len) {
+    byte[] ret = new byte[len];
+    int p = 0;
+    for (byte[] part : parts) {
+      System.arraycopy(part, 0, ret, p, part.length);
+      p += part.length;
+    }
+    return ret;
+  }
+}
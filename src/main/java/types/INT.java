@@ -1,8 +1,10 @@
 package types;
 
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
 import util.HSerializer;
+import util.IntSerializer;
 
 /**
  * Serializer for HBase INT values.
@@ -16,7 +18,7 @@ import util.HSerializer;
  * order, the encoded value is logically inverted.
  * </p>
  */
-public class INT extends HSerializer<Integer> {
+public class INT extends HSerializer<Integer> implements IntSerializer {
 
   static final int SIZEOF_INT = Integer.SIZE / Byte.SIZE;
 
@@ -38,16 +40,57 @@ public class INT extends HSerializer<Integer> {
 
   @Override
   public Integer fromBytes(byte[] bytes) {
-    // TODO: should we manage our own instance cache?
     return Integer.valueOf(toInt(bytes, 0, order));
   }
 
   @Override
   public Integer read(ByteBuffer buff) {
-    // TODO: should we manage our own instance cache?
     return Integer.valueOf(toInt(buff, order));
   }
 
+  @Override
+  public int skip(ByteBuffer buff) {
+    buff.position(buff.position() + SIZEOF_INT);
+    return SIZEOF_INT;
+  }
+
+  @Override
+  public int skip(byte[] bytes, int offset) {
+    assert bytes.length >= offset + SIZEOF_INT;
+    return SIZEOF_INT;
+  }
+
+  @Override
+  public int encodedLength(Integer val) {
+    return SIZEOF_INT;
+  }
+
+  @Override
+  public int encodedWidth() {
+    return SIZEOF_INT;
+  }
+
+  @Override
+  public int encodeInt(int val, byte[] dst, int offset) {
+    putRaw(dst, offset, toRawInt(val, order));
+    return SIZEOF_INT;
+  }
+
+  @Override
+  public void encodeInt(int val, ByteBuffer buff) {
+    putRaw(buff, toRawInt(val, order));
+  }
+
+  @Override
+  public int decodeInt(byte[] src, int offset) {
+    return fromRawInt(getRaw(src, offset), order);
+  }
+
+  @Override
+  public int decodeInt(ByteBuffer buff) {
+    return fromRawInt(getRaw(buff), order);
+  }
+
   //
   // Helper methods to mimic {@link Bytes}
   //
@@ -94,6 +137,47 @@ public class INT extends HSerializer<Integer> {
     putRaw(buff, toRawInt(val, order));
   }
 
+  //
+  // Batch helpers for encoding runs of values into, and decoding them from,
+  // one contiguous byte[]. Value i of a run starting at offset occupies
+  // [offset + i * SIZEOF_INT, offset + (i + 1) * SIZEOF_INT).
+  //
+
+  public static byte[] toBytes(int[] vals, Order order) {
+    byte[] ret = new byte[vals.length * SIZEOF_INT];
+    putBytes(ret, 0, vals, 0, vals.length, order);
+    return ret;
+  }
+
+  /**
+   * Encode <code>len</code> values from <code>vals</code>, starting with
+   * <code>vals[from]</code>, into <code>dst</code> at <code>offset</code>.
+   * @return the offset in <code>dst</code> following the last byte written.
+   */
+  public static int putBytes(byte[] dst, int offset, int[] vals, int from, int len,
+      Order order) {
+    assert dst.length >= offset + len * SIZEOF_INT;
+    for (int i = from, end = from + len; i < end; i++, offset += SIZEOF_INT) {
+      putRaw(dst, offset, toRawInt(vals[i], order));
+    }
+    return offset;
+  }
+
+  /**
+   * Decode <code>len</code> values from <code>src</code> at
+   * <code>offset</code> into <code>dst</code>, starting with
+   * <code>dst[from]</code>.
+   * @return the offset in <code>src</code> following the last byte read.
+   */
+  public static int toInts(byte[] src, int offset, int[] dst, int from, int len,
+      Order order) {
+    assert src.length >= offset + len * SIZEOF_INT;
+    for (int i = from, end = from + len; i < end; i++, offset += SIZEOF_INT) {
+      dst[i] = fromRawInt(getRaw(src, offset), order);
+    }
+    return offset;
+  }
+
   //
   // Helper methods for interoping between int values and 4 unsigned byte
   // sequences stored in an int.
@@ -128,15 +212,20 @@ public class INT extends HSerializer<Integer> {
 
   /**
    * Put a sequence of 4 unsigned bytes as <code>raw</code> into
-   * <code>buff</code>.
+   * <code>buff</code>. Heap buffers are written through their backing array;
+   * direct buffers through a single bulk put.
    * @param buff The buffer to receive the bytes.
    * @param raw 4 unsigned bytes.
    */
   protected static void putRaw(ByteBuffer buff, int raw) {
     assert buff.limit() >= buff.position() + SIZEOF_INT;
 
-    putRaw(buff.array(), buff.arrayOffset() + buff.position(), raw);
-    buff.position(buff.position() + SIZEOF_INT);
+    if (buff.hasArray()) {
+      putRaw(buff.array(), buff.arrayOffset() + buff.position(), raw);
+      buff.position(buff.position() + SIZEOF_INT);
+    } else {
+      buff.putInt(bigEndian(buff, raw));
+    }
   }
 
   /**
@@ -157,11 +246,21 @@ public class INT extends HSerializer<Integer> {
    * @return 4 unsigned bytes in a <code>raw long</code>.
    */
   protected static int getRaw(ByteBuffer buff) {
+    if (!buff.hasArray()) return bigEndian(buff, buff.getInt());
     int raw = getRaw(buff.array(), buff.arrayOffset() + buff.position());
     buff.position(buff.position() + SIZEOF_INT);
     return raw;
   }
 
+  /**
+   * Direct and read-only buffers are accessed through their bulk
+   * <code>getInt</code> accessors, which honor the buffer's
+   * <code>ByteOrder</code>. Convert between that order and big endian.
+   */
+  private static int bigEndian(ByteBuffer buff, int raw) {
+    return buff.order() == ByteOrder.BIG_ENDIAN ? raw : Integer.reverseBytes(raw);
+  }
+
   /**
    * Read a sequence of 4 unsigned bytes as a <code>raw</code> from <code>buff</code>.
    * @param buff The buffer from which to retrieve bytes.
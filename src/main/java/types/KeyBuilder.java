@@ -0,0 +1,253 @@
+package types;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import util.HSerializer;
+import util.HSerializer.Order;
+
+/**
+ * A reusable, growable buffer for assembling encoded keys.
+ * <p>
+ * Values are appended in their order-preserving encodings, identical to those
+ * produced by the corresponding type's <code>toBytes</code>, but written in
+ * place rather than into a fresh array per value. Once the buffer has grown
+ * to fit the largest key, building further keys allocates nothing; call
+ * {@link #reset()} between keys. Read the result through {@link #array()}
+ * and {@link #length()}, or copy it out with {@link #toBytes()}.
+ * </p>
+ * <p>
+ * Instances are not thread-safe. {@link #local()} returns one instance per
+ * thread for use in tight loops.
+ * </p>
+ */
+@SuppressWarnings({ "rawtypes", "unchecked" })
+public class KeyBuilder {
+
+  private static final int DEFAULT_CAPACITY = 64;
+
+  /** Buffers grown beyond this are not retained by {@link #local()}. */
+  private static final int MAX_RETAINED = 1 << 16;
+
+  private static final ThreadLocal<KeyBuilder> LOCAL = new ThreadLocal<KeyBuilder>() {
+    @Override
+    protected KeyBuilder initialValue() {
+      return new KeyBuilder();
+    }
+  };
+
+  private byte[] buf;
+  private int len;
+  private ByteBuffer view;
+
+  public KeyBuilder() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  public KeyBuilder(int capacity) {
+    this.buf = new byte[capacity];
+  }
+
+  /**
+   * The calling thread's builder, reset. The returned instance is reused by
+   * every call on the same thread, so its contents must be consumed or
+   * copied before <code>local()</code> is called again.
+   */
+  public static KeyBuilder local() {
+    KeyBuilder b = LOCAL.get();
+    if (b.buf.length > MAX_RETAINED) {
+      b = new KeyBuilder();
+      LOCAL.set(b);
+    }
+    return b.reset();
+  }
+
+  /**
+   * Discard the contents, retaining the buffer.
+   */
+  public KeyBuilder reset() {
+    len = 0;
+    return this;
+  }
+
+  /**
+   * The number of bytes appended since the last reset.
+   */
+  public int length() { return len; }
+
+  /**
+   * The backing array. Only the first {@link #length()} bytes are valid, and
+   * the array is replaced when the buffer grows.
+   */
+  public byte[] array() { return buf; }
+
+  /**
+   * A copy of the appended bytes.
+   */
+  public byte[] toBytes() {
+    return Arrays.copyOf(buf, len);
+  }
+
+  /**
+   * Copy the appended bytes into <code>dst</code> at <code>offset</code>.
+   * @return the offset in <code>dst</code> following the last byte written.
+   */
+  public int writeTo(byte[] dst, int offset) {
+    System.arraycopy(buf, 0, dst, offset, len);
+    return offset + len;
+  }
+
+  public KeyBuilder appendLong(long val, Order order) {
+    ensure(LONG.SIZEOF_LONG);
+    LONG.putRaw(buf, len, LONG.toRawLong(val, order));
+    len += LONG.SIZEOF_LONG;
+    return this;
+  }
+
+  public KeyBuilder appendInt(int val, Order order) {
+    ensure(INT.SIZEOF_INT);
+    INT.putRaw(buf, len, INT.toRawInt(val, order));
+    len += INT.SIZEOF_INT;
+    return this;
+  }
+
+  public KeyBuilder appendShort(short val, Order order) {
+    ensure(SHORT.SIZEOF_SHORT);
+    SHORT.putRaw(buf, len, SHORT.toRawShort(val, order));
+    len += SHORT.SIZEOF_SHORT;
+    return this;
+  }
+
+  public KeyBuilder appendDouble(double val, Order order) {
+    ensure(LONG.SIZEOF_LONG);
+    LONG.putRaw(buf, len, DOUBLE.toRawLong(val, order));
+    len += LONG.SIZEOF_LONG;
+    return this;
+  }
+
+  public KeyBuilder appendFloat(float val, Order order) {
+    ensure(INT.SIZEOF_INT);
+    INT.putRaw(buf, len, FLOAT.toRawInt(val, order));
+    len += INT.SIZEOF_INT;
+    return this;
+  }
+
+  public KeyBuilder appendDate(Date val, Order order) {
+    return appendLong(val.getTime(), order);
+  }
+
+  /**
+   * Append a {@link BOOLEAN}, which may be null.
+   */
+  public KeyBuilder appendBoolean(Boolean val, Order order) {
+    ensure(BOOLEAN.SIZEOF_BOOLEAN);
+    byte b = null == val ? BOOLEAN.NULL : val ? BOOLEAN.TRUE : BOOLEAN.FALSE;
+    buf[len++] = (byte) (b ^ order.mask());
+    return this;
+  }
+
+  /**
+   * Append a {@link VARCHAR}, which may be null.
+   */
+  public KeyBuilder appendString(String val, Order order) {
+    if (null == val) {
+      ensure(2);
+      buf[len++] = VARCHAR.mask(order, VARCHAR.NULL);
+      buf[len++] = VARCHAR.mask(order, VARCHAR.TERM);
+      return this;
+    }
+    ensure(VARCHAR.utf8Length(val) + 1);
+    len = VARCHAR.putRaw(buf, len, val, order);
+    return this;
+  }
+
+  /**
+   * Append a {@link BYTE}, which may be null.
+   */
+  public KeyBuilder appendBytes(byte[] val, Order order) {
+    // every byte escaped, plus the terminator, in the worst case.
+    ensure(null == val ? 2 : 2 * val.length + 2);
+    ByteBuffer v = view();
+    BYTE.putBytes(v, val, order);
+    len = v.position();
+    return this;
+  }
+
+  /**
+   * Append a {@link VARINT}.
+   */
+  public KeyBuilder appendVarint(long val, Order order) {
+    ensure(VARINT.encodedLength(val));
+    ByteBuffer v = view();
+    VARINT.putBytes(v, val, order);
+    len = v.position();
+    return this;
+  }
+
+  /**
+   * Append a {@link DECIMAL} with value <code>unscaled &times;
+   * 10<sup>-scale</sup></code>.
+   */
+  public KeyBuilder appendDecimal(long unscaled, int scale, Order order) {
+    ensure(DECIMAL.encodedLength(unscaled, scale));
+    ByteBuffer v = view();
+    DECIMAL.putBytes(v, unscaled, scale, order);
+    len = v.position();
+    return this;
+  }
+
+  /**
+   * Append the null encoding of <code>serde</code>.
+   * @throws IllegalArgumentException when <code>serde</code> does not
+   *           support null.
+   */
+  public KeyBuilder appendNull(HSerializer serde) {
+    if (!serde.supportsNull())
+      throw new IllegalArgumentException(serde + " does not support null.");
+    return append(serde, null);
+  }
+
+  /**
+   * Append a {@link STRUCT} value, encoded by the STRUCT's codec.
+   */
+  public KeyBuilder append(STRUCT struct, List<Object> val) {
+    StructCodec codec = struct.codec();
+    ensure(codec.encodedLength(val));
+    len = codec.encode(val, buf, len);
+    return this;
+  }
+
+  /**
+   * Append <code>val</code> encoded by <code>serde</code>. Types without a
+   * typed append are written through {@link HSerializer#write(ByteBuffer,
+   * Object)}, which may allocate.
+   */
+  public <T> KeyBuilder append(HSerializer<T> serde, T val) {
+    ensure(serde.encodedLength(val));
+    ByteBuffer v = view();
+    serde.write(v, val);
+    len = v.position();
+    return this;
+  }
+
+  /**
+   * A buffer over the backing array, positioned at the end of the appended
+   * bytes.
+   */
+  private ByteBuffer view() {
+    if (null == view || view.array() != buf) view = ByteBuffer.wrap(buf);
+    view.clear();
+    view.position(len);
+    return view;
+  }
+
+  /**
+   * Grow the buffer, if necessary, to fit <code>n</code> more bytes.
+   */
+  private void ensure(int n) {
+    if (len + n <= buf.length) return;
+    buf = Arrays.copyOf(buf, Math.max(len + n, buf.length << 1));
+  }
+}
@@ -0,0 +1,214 @@
+package types;
+
+import java.nio.ByteBuffer;
+import java.util.Date;
+import java.util.List;
+
+import util.HSerializer;
+import util.HSerializer.Order;
+
+/**
+ * A reusable cursor over an encoded key, the counterpart to
+ * {@link KeyBuilder}. Each read decodes the value at the cursor and advances
+ * past it; values must be read in the order, and with the
+ * <code>Order</code>, they were appended. Fixed-width values are decoded
+ * without allocation.
+ * <p>
+ * Instances are not thread-safe. Point a reader at the next key with
+ * {@link #reset(byte[], int, int)} rather than creating another.
+ * </p>
+ */
+@SuppressWarnings({ "rawtypes", "unchecked" })
+public class KeyReader {
+
+  private byte[] bytes;
+  private int offset;
+  private int pos;
+  private int limit;
+  private ByteBuffer view;
+
+  public KeyReader() {
+    this(new byte[0]);
+  }
+
+  public KeyReader(byte[] bytes) {
+    reset(bytes);
+  }
+
+  public KeyReader reset(byte[] bytes) {
+    return reset(bytes, 0, bytes.length);
+  }
+
+  /**
+   * Read the key held in <code>bytes[offset, offset + length)</code>.
+   */
+  public KeyReader reset(byte[] bytes, int offset, int length) {
+    this.bytes = bytes;
+    this.offset = offset;
+    this.pos = offset;
+    this.limit = offset + length;
+    return this;
+  }
+
+  /**
+   * The cursor's offset from the start of the key.
+   */
+  public int position() { return pos - offset; }
+
+  public int remaining() { return limit - pos; }
+
+  public boolean hasRemaining() { return pos < limit; }
+
+  public long readLong(Order order) {
+    check(LONG.SIZEOF_LONG);
+    long v = LONG.toLong(bytes, pos, order);
+    pos += LONG.SIZEOF_LONG;
+    return v;
+  }
+
+  public int readInt(Order order) {
+    check(INT.SIZEOF_INT);
+    int v = INT.toInt(bytes, pos, order);
+    pos += INT.SIZEOF_INT;
+    return v;
+  }
+
+  public short readShort(Order order) {
+    check(SHORT.SIZEOF_SHORT);
+    short v = SHORT.toShort(bytes, pos, order);
+    pos += SHORT.SIZEOF_SHORT;
+    return v;
+  }
+
+  public double readDouble(Order order) {
+    check(LONG.SIZEOF_LONG);
+    double v = DOUBLE.toDouble(bytes, pos, order);
+    pos += LONG.SIZEOF_LONG;
+    return v;
+  }
+
+  public float readFloat(Order order) {
+    check(INT.SIZEOF_INT);
+    float v = FLOAT.toFloat(bytes, pos, order);
+    pos += INT.SIZEOF_INT;
+    return v;
+  }
+
+  public Date readDate(Order order) {
+    return new Date(readLong(order));
+  }
+
+  /**
+   * Read a {@link BOOLEAN}, which may be null.
+   */
+  public Boolean readBoolean(Order order) {
+    check(BOOLEAN.SIZEOF_BOOLEAN);
+    byte b = (byte) (bytes[pos] ^ order.mask());
+    Boolean ret;
+    switch (b) {
+    case BOOLEAN.NULL:
+      ret = null;
+      break;
+    case BOOLEAN.FALSE:
+      ret = Boolean.FALSE;
+      break;
+    case BOOLEAN.TRUE:
+      ret = Boolean.TRUE;
+      break;
+    default:
+      throw new IllegalArgumentException("Unexpected byte value " + HSerializer.toBinaryString(b));
+    }
+    pos++;
+    return ret;
+  }
+
+  /**
+   * Read a {@link VARCHAR}, which may be null.
+   */
+  public String readString(Order order) {
+    int len = VARCHAR.skip(bytes, pos, order);
+    check(len);
+    String v = VARCHAR.decode(bytes, pos, pos + len - 1, order);
+    pos += len;
+    return v;
+  }
+
+  /**
+   * Read a {@link BYTE}, which may be null.
+   */
+  public byte[] readBytes(Order order) {
+    ByteBuffer v = view();
+    byte[] ret = BYTE.decode(v, order);
+    pos = v.position();
+    return ret;
+  }
+
+  /**
+   * Read a {@link VARINT}.
+   * @throws IllegalArgumentException when the value is null or exceeds the
+   *           range of <code>long</code>.
+   */
+  public long readVarint(Order order) {
+    ByteBuffer v = view();
+    long ret = VARINT.toLong(v, order);
+    pos = v.position();
+    return ret;
+  }
+
+  /**
+   * Read a {@link DECIMAL} as its unscaled value at <code>scale</code>.
+   * @see DECIMAL#toLong(ByteBuffer, int, Order)
+   */
+  public long readDecimal(int scale, Order order) {
+    ByteBuffer v = view();
+    long ret = DECIMAL.toLong(v, scale, order);
+    pos = v.position();
+    return ret;
+  }
+
+  /**
+   * Read a {@link STRUCT} value.
+   */
+  public List<Object> read(STRUCT struct) {
+    ByteBuffer v = view();
+    List<Object> ret = struct.codec().decode(v);
+    pos = v.position();
+    return ret;
+  }
+
+  /**
+   * Read a value encoded by <code>serde</code>.
+   */
+  public <T> T read(HSerializer<T> serde) {
+    ByteBuffer v = view();
+    T ret = serde.read(v);
+    pos = v.position();
+    return ret;
+  }
+
+  /**
+   * Advance past a value encoded by <code>serde</code> without decoding it.
+   */
+  public KeyReader skip(HSerializer serde) {
+    int len = serde.skip(bytes, pos);
+    check(len);
+    pos += len;
+    return this;
+  }
+
+  /**
+   * A buffer over the key, positioned at the cursor.
+   */
+  private ByteBuffer view() {
+    if (null == view || view.array() != bytes) view = ByteBuffer.wrap(bytes);
+    view.limit(limit);
+    view.position(pos);
+    return view;
+  }
+
+  private void check(int n) {
+    if (pos + n > limit)
+      throw new IllegalArgumentException("Read of " + n + " bytes at " + position()
+          + " overruns key of " + (limit - offset) + " bytes.");
+  }
+}
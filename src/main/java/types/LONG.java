@@ -1,8 +1,10 @@
 package types;
 
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
 import util.HSerializer;
+import util.LongSerializer;
 
 /**
  * Serializer for HBase LONG values.
@@ -16,7 +18,7 @@ import util.HSerializer;
  * order, the encoded value is logically inverted.
  * </p>
  */
-public class LONG extends HSerializer<Long> {
+public class LONG extends HSerializer<Long> implements LongSerializer {
 
   static final int SIZEOF_LONG = Long.SIZE / Byte.SIZE;
 
@@ -38,16 +40,57 @@ public class LONG extends HSerializer<Long> {
 
   @Override
   public Long fromBytes(byte[] bytes) {
-    // TODO: should we manage our own instance cache?
     return Long.valueOf(toLong(bytes, 0, order));
   }
 
   @Override
   public Long read(ByteBuffer buff) {
-    // TODO: should we manage our own instance cache?
     return Long.valueOf(toLong(buff, order));
   }
 
+  @Override
+  public int skip(ByteBuffer buff) {
+    buff.position(buff.position() + SIZEOF_LONG);
+    return SIZEOF_LONG;
+  }
+
+  @Override
+  public int skip(byte[] bytes, int offset) {
+    assert bytes.length >= offset + SIZEOF_LONG;
+    return SIZEOF_LONG;
+  }
+
+  @Override
+  public int encodedLength(Long val) {
+    return SIZEOF_LONG;
+  }
+
+  @Override
+  public int encodedWidth() {
+    return SIZEOF_LONG;
+  }
+
+  @Override
+  public int encodeLong(long val, byte[] dst, int offset) {
+    putRaw(dst, offset, toRawLong(val, order));
+    return SIZEOF_LONG;
+  }
+
+  @Override
+  public void encodeLong(long val, ByteBuffer buff) {
+    putRaw(buff, toRawLong(val, order));
+  }
+
+  @Override
+  public long decodeLong(byte[] src, int offset) {
+    return fromRawLong(getRaw(src, offset), order);
+  }
+
+  @Override
+  public long decodeLong(ByteBuffer buff) {
+    return fromRawLong(getRaw(buff), order);
+  }
+
   //
   // Helper methods to mimic {@link Bytes}
   //
@@ -94,6 +137,47 @@ public class LONG extends HSerializer<Long> {
     putRaw(buff, toRawLong(val, order));
   }
 
+  //
+  // Batch helpers for encoding runs of values into, and decoding them from,
+  // one contiguous byte[]. Value i of a run starting at offset occupies
+  // [offset + i * SIZEOF_LONG, offset + (i + 1) * SIZEOF_LONG).
+  //
+
+  public static byte[] toBytes(long[] vals, Order order) {
+    byte[] ret = new byte[vals.length * SIZEOF_LONG];
+    putBytes(ret, 0, vals, 0, vals.length, order);
+    return ret;
+  }
+
+  /**
+   * Encode <code>len</code> values from <code>vals</code>, starting with
+   * <code>vals[from]</code>, into <code>dst</code> at <code>offset</code>.
+   * @return the offset in <code>dst</code> following the last byte written.
+   */
+  public static int putBytes(byte[] dst, int offset, long[] vals, int from, int len,
+      Order order) {
+    assert dst.length >= offset + len * SIZEOF_LONG;
+    for (int i = from, end = from + len; i < end; i++, offset += SIZEOF_LONG) {
+      putRaw(dst, offset, toRawLong(vals[i], order));
+    }
+    return offset;
+  }
+
+  /**
+   * Decode <code>len</code> values from <code>src</code> at
+   * <code>offset</code> into <code>dst</code>, starting with
+   * <code>dst[from]</code>.
+   * @return the offset in <code>src</code> following the last byte read.
+   */
+  public static int toLongs(byte[] src, int offset, long[] dst, int from, int len,
+      Order order) {
+    assert src.length >= offset + len * SIZEOF_LONG;
+    for (int i = from, end = from + len; i < end; i++, offset += SIZEOF_LONG) {
+      dst[i] = fromRawLong(getRaw(src, offset), order);
+    }
+    return offset;
+  }
+
   //
   // Helper methods for interoping between long values and 8 unsigned byte
   // sequences stored in a long.
@@ -128,15 +212,20 @@ public class LONG extends HSerializer<Long> {
 
   /**
    * Put a sequence of 8 unsigned bytes as <code>raw</code> into
-   * <code>buff</code>.
+   * <code>buff</code>. Heap buffers are written through their backing array;
+   * direct buffers through a single bulk put.
    * @param buff The buffer to receive the bytes.
    * @param raw 8 unsigned bytes.
    */
   protected static void putRaw(ByteBuffer buff, long raw) {
     assert buff.limit() >= buff.position() + SIZEOF_LONG;
 
-    putRaw(buff.array(), buff.arrayOffset() + buff.position(), raw);
-    buff.position(buff.position() + SIZEOF_LONG);
+    if (buff.hasArray()) {
+      putRaw(buff.array(), buff.arrayOffset() + buff.position(), raw);
+      buff.position(buff.position() + SIZEOF_LONG);
+    } else {
+      buff.putLong(bigEndian(buff, raw));
+    }
   }
 
   /**
@@ -157,11 +246,21 @@ public class LONG extends HSerializer<Long> {
    * @return 8 unsigned bytes in a <code>raw long</code>.
    */
   protected static long getRaw(ByteBuffer buff) {
+    if (!buff.hasArray()) return bigEndian(buff, buff.getLong());
     long raw = getRaw(buff.array(), buff.arrayOffset() + buff.position());
     buff.position(buff.position() + SIZEOF_LONG);
     return raw;
   }
 
+  /**
+   * Direct and read-only buffers are accessed through their bulk
+   * <code>getLong</code> accessors, which honor the buffer's
+   * <code>ByteOrder</code>. Convert between that order and big endian.
+   */
+  private static long bigEndian(ByteBuffer buff, long raw) {
+    return buff.order() == ByteOrder.BIG_ENDIAN ? raw : Long.reverseBytes(raw);
+  }
+
   /**
    * Read a sequence of 8 unsigned bytes as a <code>raw</code> from <code>buff</code>.
    * @param buff The buffer from which to retrieve bytes.
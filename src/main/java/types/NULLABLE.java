@@ -0,0 +1,116 @@
+package types;
+
+import java.nio.ByteBuffer;
+
+import util.HSerializer;
+
+/**
+ * A wrapper serializer adding null to a serializer that does not support it.
+ * <p>
+ * Each value is preceded by a one-byte isNull marker, the {@link BOOLEAN}
+ * encoding of "is not null" in the wrapped serializer's order. A null value
+ * is encoded by the marker alone and sorts before every value in the natural
+ * order, as the nullable encodings do. The marker is written directly ahead
+ * of the wrapped encoding and read inline; no intermediate arrays are
+ * created.
+ * </p>
+ * <p>
+ * {@link STRUCT} wraps its non-nullable fields, unless declared NOT NULL.
+ * </p>
+ */
+public class NULLABLE<T> extends HSerializer<T> {
+
+  private final HSerializer<T> serde;
+  private final byte nullMarker;
+  private final byte notNullMarker;
+
+  /**
+   * @throws IllegalArgumentException when <code>serde</code> already
+   *           supports null.
+   */
+  public NULLABLE(HSerializer<T> serde) {
+    super(serde.order());
+    if (serde.supportsNull())
+      throw new IllegalArgumentException(serde + " already supports null.");
+    this.serde = serde;
+    this.nullMarker = (byte) (BOOLEAN.FALSE ^ order.mask());
+    this.notNullMarker = (byte) (BOOLEAN.TRUE ^ order.mask());
+  }
+
+  /**
+   * The wrapped serializer.
+   */
+  HSerializer<T> serde() { return serde; }
+
+  /**
+   * The marker encoding a null value.
+   */
+  byte nullMarker() { return nullMarker; }
+
+  /**
+   * The marker preceding a non-null value.
+   */
+  byte notNullMarker() { return notNullMarker; }
+
+  /**
+   * Interpret <code>b</code> as an isNull marker.
+   */
+  boolean isNull(byte b) {
+    if (b == nullMarker) return true;
+    if (b == notNullMarker) return false;
+    throw new IllegalArgumentException("Unexpected isNull marker " + toBinaryString(b));
+  }
+
+  @Override
+  public boolean supportsNull() { return true; }
+
+  @Override
+  public byte[] toBytes(T val) {
+    if (null == val) return new byte[] { nullMarker };
+    byte[] ret = new byte[1 + serde.encodedLength(val)];
+    ByteBuffer buff = ByteBuffer.wrap(ret);
+    write(buff, val);
+    return ret;
+  }
+
+  @Override
+  public void write(ByteBuffer buff, T val) {
+    if (null == val) {
+      buff.put(nullMarker);
+      return;
+    }
+    buff.put(notNullMarker);
+    serde.write(buff, val);
+  }
+
+  @Override
+  public T fromBytes(byte[] bytes) {
+    if (isNull(bytes[0])) return null;
+    return serde.read(ByteBuffer.wrap(bytes, 1, bytes.length - 1));
+  }
+
+  @Override
+  public T read(ByteBuffer buff) {
+    return isNull(buff.get()) ? null : serde.read(buff);
+  }
+
+  @Override
+  public int skip(ByteBuffer buff) {
+    return isNull(buff.get()) ? 1 : 1 + serde.skip(buff);
+  }
+
+  @Override
+  public int skip(byte[] bytes, int offset) {
+    return isNull(bytes[offset]) ? 1 : 1 + serde.skip(bytes, offset + 1);
+  }
+
+  @Override
+  public int encodedLength(T val) {
+    return null == val ? 1 : 1 + serde.encodedLength(val);
+  }
+
+  @Override
+  public String toString() {
+    return "NULLABLE(" + serde + ")";
+  }
+}
@@ -0,0 +1,159 @@
+package types;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.apache.hadoop.hbase.util.Hash;
+import org.apache.hadoop.hbase.util.MurmurHash;
+
+import util.HSerializer;
+import util.SaltedScanner;
+
+/**
+ * A wrapper serializer prefixing another serializer's encoding with a
+ * one-byte salt, the hash bucket of the value.
+ * <p>
+ * Keys led by a monotonic field, such as a DATETIME or sequential LONG,
+ * otherwise direct every write to the same region. Salting spreads them over
+ * <code>buckets</code> key ranges while preserving order within each bucket.
+ * The salt is the MurmurHash of the wrapped encoding, modulo
+ * <code>buckets</code>; for a {@link STRUCT}, the hash may be restricted to
+ * chosen fields so that related rows share a bucket. Ordered reads across
+ * buckets are performed by {@link SaltedScanner}.
+ * </p>
+ * <p>
+ * The salt byte is not inverted for DESCENDING order; it identifies a bucket
+ * rather than contributing to the sort.
+ * </p>
+ */
+public class SALTED<T> extends HSerializer<T> {
+
+  private static final Hash HASH = MurmurHash.getInstance();
+
+  private final HSerializer<T> serde;
+  private final int buckets;
+  private final int[] hashFields;
+
+  /**
+   * Salt <code>serde</code>'s encoding into one of <code>buckets</code>
+   * buckets, hashing the whole encoding.
+   */
+  public SALTED(HSerializer<T> serde, int buckets) {
+    this(serde, buckets, (int[]) null);
+  }
+
+  /**
+   * Salt a STRUCT's encoding into one of <code>buckets</code> buckets,
+   * hashing only the fields at the given indexes.
+   */
+  public SALTED(HSerializer<T> serde, int buckets, int... hashFields) {
+    super(serde.order());
+    if (buckets < 1 || buckets > 256)
+      throw new IllegalArgumentException("Buckets must be within [1, 256].");
+    if (null != hashFields) {
+      if (!(serde instanceof STRUCT))
+        throw new IllegalArgumentException("Hash fields require a STRUCT.");
+      hashFields = hashFields.clone();
+      Arrays.sort(hashFields);
+      int size = ((STRUCT) serde).schema.size();
+      for (int i : hashFields) {
+        if (i < 0 || i >= size) throw new IllegalArgumentException("No field " + i + ".");
+      }
+    }
+    this.serde = serde;
+    this.buckets = buckets;
+    this.hashFields = hashFields;
+  }
+
+  public int buckets() { return buckets; }
+
+  /**
+   * The bucket holding <code>val</code>.
+   */
+  public int bucket(T val) {
+    byte[] encoded = serde.toBytes(val);
+    return bucket(encoded, 0, encoded.length);
+  }
+
+  /**
+   * The bucket of the wrapped encoding held in
+   * <code>bytes[offset, offset + length)</code>.
+   */
+  int bucket(byte[] bytes, int offset, int length) {
+    int h = 0;
+    if (null == hashFields) {
+      h = HASH.hash(bytes, offset, length, h);
+    } else {
+      STRUCT struct = (STRUCT) serde;
+      for (int i : hashFields) {
+        int start = offset + struct.skip(bytes, offset, i);
+        int end = offset + struct.skip(bytes, offset, i + 1);
+        h = HASH.hash(bytes, start, end - start, h);
+      }
+    }
+    return (h & Integer.MAX_VALUE) % buckets;
+  }
+
+  @Override
+  public boolean supportsNull() { return serde.supportsNull(); }
+
+  @Override
+  public byte[] toBytes(T val) {
+    byte[] encoded = serde.toBytes(val);
+    byte[] ret = new byte[encoded.length + 1];
+    ret[0] = (byte) bucket(encoded, 0, encoded.length);
+    System.arraycopy(encoded, 0, ret, 1, encoded.length);
+    return ret;
+  }
+
+  @Override
+  public void write(ByteBuffer buff, T val) {
+    if (!buff.hasArray()) {
+      buff.put(toBytes(val));
+      return;
+    }
+    int salt = buff.position();
+    buff.put((byte) 0);
+    serde.write(buff, val);
+    int start = buff.arrayOffset() + salt + 1;
+    buff.put(salt, (byte) bucket(buff.array(), start, buff.position() - salt - 1));
+  }
+
+  @Override
+  public T fromBytes(byte[] bytes) {
+    return serde.read(ByteBuffer.wrap(bytes, 1, bytes.length - 1));
+  }
+
+  @Override
+  public T read(ByteBuffer buff) {
+    buff.get();
+    return serde.read(buff);
+  }
+
+  @Override
+  public int skip(ByteBuffer buff) {
+    buff.get();
+    return 1 + serde.skip(buff);
+  }
+
+  @Override
+  public int skip(byte[] bytes, int offset) {
+    return 1 + serde.skip(bytes, offset + 1);
+  }
+
+  @Override
+  public int encodedLength(T val) {
+    return 1 + serde.encodedLength(val);
+  }
+
+  @Override
+  public int encodedWidth() {
+    int w = serde.encodedWidth();
+    return w < 0 ? -1 : w + 1;
+  }
+
+  @Override
+  public String toString() {
+    return "SALTED(" + serde + ", " + buckets + ")";
+  }
+}
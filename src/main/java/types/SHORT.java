@@ -2,10 +2,12 @@ package types;
 
 
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
 import util.HSerializer;
+import util.ShortSerializer;
 
-public class SHORT extends HSerializer<Short> {
+public class SHORT extends HSerializer<Short> implements ShortSerializer {
 
   static final int SIZEOF_SHORT = Short.SIZE / Byte.SIZE;
 
@@ -27,16 +29,57 @@ public class SHORT extends HSerializer<Short> {
 
   @Override
   public Short fromBytes(byte[] bytes) {
-    // TODO: should we manage our own instance cache?
     return Short.valueOf(toShort(bytes, 0, order));
   }
 
   @Override
   public Short read(ByteBuffer buff) {
-    // TODO: should we manage our own instance cache?
     return Short.valueOf(toShort(buff, order));
   }
 
+  @Override
+  public int skip(ByteBuffer buff) {
+    buff.position(buff.position() + SIZEOF_SHORT);
+    return SIZEOF_SHORT;
+  }
+
+  @Override
+  public int skip(byte[] bytes, int offset) {
+    assert bytes.length >= offset + SIZEOF_SHORT;
+    return SIZEOF_SHORT;
+  }
+
+  @Override
+  public int encodedLength(Short val) {
+    return SIZEOF_SHORT;
+  }
+
+  @Override
+  public int encodedWidth() {
+    return SIZEOF_SHORT;
+  }
+
+  @Override
+  public int encodeShort(short val, byte[] dst, int offset) {
+    putRaw(dst, offset, toRawShort(val, order));
+    return SIZEOF_SHORT;
+  }
+
+  @Override
+  public void encodeShort(short val, ByteBuffer buff) {
+    putRaw(buff, toRawShort(val, order));
+  }
+
+  @Override
+  public short decodeShort(byte[] src, int offset) {
+    return fromRawShort(getRaw(src, offset), order);
+  }
+
+  @Override
+  public short decodeShort(ByteBuffer buff) {
+    return fromRawShort(getRaw(buff), order);
+  }
+
   //
   // Helper methods to mimic {@link Bytes}
   //
@@ -83,6 +126,47 @@ public class SHORT extends HSerializer<Short> {
     putRaw(buff, toRawShort(val, order));
   }
 
+  //
+  // Batch helpers for encoding runs of values into, and decoding them from,
+  // one contiguous byte[]. Value i of a run starting at offset occupies
+  // [offset + i * SIZEOF_SHORT, offset + (i + 1) * SIZEOF_SHORT).
+  //
+
+  public static byte[] toBytes(short[] vals, Order order) {
+    byte[] ret = new byte[vals.length * SIZEOF_SHORT];
+    putBytes(ret, 0, vals, 0, vals.length, order);
+    return ret;
+  }
+
+  /**
+   * Encode <code>len</code> values from <code>vals</code>, starting with
+   * <code>vals[from]</code>, into <code>dst</code> at <code>offset</code>.
+   * @return the offset in <code>dst</code> following the last byte written.
+   */
+  public static int putBytes(byte[] dst, int offset, short[] vals, int from, int len,
+      Order order) {
+    assert dst.length >= offset + len * SIZEOF_SHORT;
+    for (int i = from, end = from + len; i < end; i++, offset += SIZEOF_SHORT) {
+      putRaw(dst, offset, toRawShort(vals[i], order));
+    }
+    return offset;
+  }
+
+  /**
+   * Decode <code>len</code> values from <code>src</code> at
+   * <code>offset</code> into <code>dst</code>, starting with
+   * <code>dst[from]</code>.
+   * @return the offset in <code>src</code> following the last byte read.
+   */
+  public static int toShorts(byte[] src, int offset, short[] dst, int from, int len,
+      Order order) {
+    assert src.length >= offset + len * SIZEOF_SHORT;
+    for (int i = from, end = from + len; i < end; i++, offset += SIZEOF_SHORT) {
+      dst[i] = fromRawShort(getRaw(src, offset), order);
+    }
+    return offset;
+  }
+
   //
   // Helper methods for interoping between short values and 2 unsigned byte
   // sequences stored in a short.
@@ -96,7 +180,7 @@ public class SHORT extends HSerializer<Short> {
    * @return 2 unsigned bytes stored in a <code>short</code>.
    */
   protected static short toRawShort(short val, Order order) {
-    return (short) (((int) val) ^ Integer.MIN_VALUE ^ order.mask());
+    return (short) (val ^ Short.MIN_VALUE ^ order.mask());
   }
 
   /**
@@ -107,7 +191,7 @@ public class SHORT extends HSerializer<Short> {
    * @return an application value.
    */
   protected static short fromRawShort(short raw, Order order) {
-    return (short) (((int) raw) ^ Integer.MIN_VALUE ^ order.mask());
+    return (short) (raw ^ Short.MIN_VALUE ^ order.mask());
   }
 
   //
@@ -116,15 +200,21 @@ public class SHORT extends HSerializer<Short> {
   //
 
   /**
-   * Put a sequence of 2 unsigned bytes as <code>raw</code> into <code>buff</code>.
+   * Put a sequence of 2 unsigned bytes as <code>raw</code> into
+   * <code>buff</code>. Heap buffers are written through their backing array;
+   * direct buffers through a single bulk put.
    * @param buff The buffer to receive the bytes.
    * @param raw 2 unsigned bytes.
    */
   protected static void putRaw(ByteBuffer buff, short raw) {
     assert buff.limit() >= buff.position() + SIZEOF_SHORT;
 
-    putRaw(buff.array(), buff.arrayOffset() + buff.position(), raw);
-    buff.position(buff.position() + SIZEOF_SHORT);
+    if (buff.hasArray()) {
+      putRaw(buff.array(), buff.arrayOffset() + buff.position(), raw);
+      buff.position(buff.position() + SIZEOF_SHORT);
+    } else {
+      buff.putShort(bigEndian(buff, raw));
+    }
   }
 
   /**
@@ -145,11 +235,21 @@ public class SHORT extends HSerializer<Short> {
    * @return 2 unsigned bytes in a <code>raw short</code>.
    */
   protected static short getRaw(ByteBuffer buff) {
+    if (!buff.hasArray()) return bigEndian(buff, buff.getShort());
     short raw = getRaw(buff.array(), buff.arrayOffset() + buff.position());
     buff.position(buff.position() + SIZEOF_SHORT);
     return raw;
   }
 
+  /**
+   * Direct and read-only buffers are accessed through their bulk
+   * <code>getShort</code> accessors, which honor the buffer's
+   * <code>ByteOrder</code>. Convert between that order and big endian.
+   */
+  private static short bigEndian(ByteBuffer buff, short raw) {
+    return buff.order() == ByteOrder.BIG_ENDIAN ? raw : Short.reverseBytes(raw);
+  }
+
   /**
    * Read a sequence of 2 unsigned bytes as a <code>raw</code> from <code>buff</code>.
    * @param buff The buffer from which to retrieve bytes.
@@ -1,107 +1,304 @@
 package types;
 
-import static util.HSerializer.Order.ASCENDING;
-import static util.HSerializer.Order.DESCENDING;
-
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 
 import util.HSerializer;
+import util.KeyRange;
 
+/**
+ * Serializer for composite values, a fixed sequence of fields each encoded by
+ * its own serializer.
+ * <p>
+ * Encoded STRUCTs sort field by field. Each field sorts in the
+ * <code>Order</code> of its serializer, so a key may mix directions, for
+ * example (tenant ASCENDING, timestamp DESCENDING, id ASCENDING).
+ * {@link #comparator()} orders decoded values identically.
+ * </p>
+ * <p>
+ * Fields whose serializer does not support null are wrapped in a
+ * {@link NULLABLE}, which precedes each value with a one-byte isNull marker.
+ * Fields declared NOT NULL are encoded without the marker, one byte smaller,
+ * and reject null values.
+ * </p>
+ * <p>
+ * Fields preceded only by fixed-width fields, such as NOT NULL
+ * <code>LONG</code>s, begin at a constant offset, reported by
+ * {@link #fixedOffset(int)}. They are located without examining the
+ * preceding fields, and fixed-width ones among them may be overwritten in
+ * place with {@link #set(byte[], int, int, Object)}.
+ * </p>
+ * <p>
+ * The STRUCT's own <code>Order</code> does not influence the encoding; it
+ * only describes a top-level STRUCT whose fields share that order.
+ * Construct the fields with the desired orders instead. A STRUCT used as a
+ * field of another must have the default order.
+ * </p>
+ */
 @SuppressWarnings("rawtypes")
 public class STRUCT extends HSerializer<List<Object>> {
 
-  private static final byte[] TRUE_ASC  = BOOLEAN.toBytes(true,  ASCENDING);
-  private static final byte[] FALSE_ASC = BOOLEAN.toBytes(false, ASCENDING);
-  private static final byte[] TRUE_DSC  = BOOLEAN.toBytes(true,  DESCENDING);
-  private static final byte[] FALSE_DSC = BOOLEAN.toBytes(false, DESCENDING);
-
+  /** The field serializers, non-nullable fields not declared NOT NULL wrapped. */
   protected List<HSerializer> schema;
+  private final boolean[] notNull;
+  /**
+   * <code>fixedOffsets[i]</code> is the constant offset of field
+   * <code>i</code>, for <code>i &lt;= fixedFields</code>.
+   */
+  private final int[] fixedOffsets;
+  private final int fixedFields;
+  private StructCodec codec;
+  private StructComparator comparator;
 
   public STRUCT(List<HSerializer> schema) {
-    super();
-    this.schema = schema;
+    this(schema, DEFAULT_ORDER);
   }
 
   @Override
   public boolean supportsNull() { return true; }
 
   public STRUCT(List<HSerializer> schema, Order order) {
-    // TODO: what does order mean to a struct?
+    this(schema, order, new int[0]);
+  }
+
+  /**
+   * A STRUCT whose fields at the given indexes are declared NOT NULL.
+   * @throws IllegalArgumentException when a field is a STRUCT with other
+   *           than the default order, which would have no effect.
+   */
+  @SuppressWarnings("unchecked")
+  public STRUCT(List<HSerializer> schema, Order order, int... notNull) {
     super(order);
-    this.schema = schema;
+    this.notNull = new boolean[schema.size()];
+    for (int i : notNull) {
+      if (i < 0 || i >= schema.size()) throw new IllegalArgumentException("No field " + i + ".");
+      this.notNull[i] = true;
+    }
+    List<HSerializer> fields = new ArrayList<HSerializer>(schema.size());
+    for (int i = 0; i < schema.size(); i++) {
+      HSerializer s = schema.get(i);
+      if (s instanceof STRUCT && s.order() != DEFAULT_ORDER)
+        throw new IllegalArgumentException("Field " + i + " is a " + s.order()
+            + " STRUCT; order its fields instead.");
+      fields.add(s.supportsNull() || this.notNull[i] ? s : new NULLABLE(s));
+    }
+    this.schema = fields;
+
+    this.fixedOffsets = new int[fields.size() + 1];
+    int i = 0;
+    for (; i < fields.size() && fields.get(i).encodedWidth() >= 0; i++) {
+      fixedOffsets[i + 1] = fixedOffsets[i] + fields.get(i).encodedWidth();
+    }
+    this.fixedFields = i;
   }
 
-  public byte[] toBytes(List<Object> val) {
-    List<byte[]> bytes = toBytes(order, schema, val);
+  /**
+   * Whether field <code>i</code> is declared NOT NULL.
+   */
+  public boolean isNotNull(int i) {
+    return notNull[i];
+  }
 
-    // populate a destination array
-    int len = 0;
-    for (byte[] b : bytes) { len += b.length; }
-    ByteBuffer ret = ByteBuffer.allocate(len);
-    for (byte[] b : bytes) { ret.put(b); }
+  /**
+   * The offset of field <code>i</code> within every encoded value, or -1
+   * when it depends on the values of preceding fields.
+   * <code>fixedOffset(size)</code> is the width of a value whose fields are
+   * all fixed-width.
+   */
+  public int fixedOffset(int i) {
+    if (i < 0 || i > schema.size())
+      throw new IndexOutOfBoundsException("Field " + i + " of " + schema.size());
+    return i <= fixedFields ? fixedOffsets[i] : -1;
+  }
 
-    return ret.array();
+  /**
+   * Overwrite field <code>i</code> of the value encoded at
+   * <code>offset</code> in <code>bytes</code> with <code>val</code>,
+   * leaving the remaining fields untouched.
+   * @throws IllegalArgumentException when field <code>i</code>, or one
+   *           preceding it, is not fixed-width.
+   */
+  public void set(byte[] bytes, int offset, int i, Object val) {
+    if (i < 0 || i >= schema.size())
+      throw new IndexOutOfBoundsException("Field " + i + " of " + schema.size());
+    if (i >= fixedFields)
+      throw new IllegalArgumentException("Field " + i + " is not at a fixed offset with a fixed width.");
+    codec().put(i, val, bytes, offset + fixedOffsets[i]);
+  }
+
+  /**
+   * The <code>Order</code> of field <code>i</code>.
+   */
+  public Order order(int i) {
+    return schema.get(i).order();
+  }
+
+  public byte[] toBytes(List<Object> val) {
+    return codec().encode(val);
   }
 
   public void write(ByteBuffer buff, List<Object> val) {
-    for (byte[] b : toBytes(order, schema, val)) { buff.put(b); }
+    codec().encode(val, buff);
   }
 
   public List<Object> fromBytes(byte[] bytes) {
-    return read(ByteBuffer.wrap(bytes));
+    return codec().decode(bytes);
   }
 
   public List<Object> read(ByteBuffer buff) {
-    List<Object> ret = new ArrayList<Object>(schema.size());
-    for (HSerializer s : schema) {
-      if (s.supportsNull()) {
-        ret.add(s.read(buff));
-      } else {
-        // read the isNull marker first, then decide whether to read further
-        // into buff.
-        if (new BOOLEAN(order).read(buff)) continue;
-        else ret.add(s.read(buff));
-      }
+    return codec().decode(buff);
+  }
+
+  @Override
+  public int encodedWidth() {
+    return fixedFields == schema.size() ? fixedOffsets[fixedFields] : -1;
+  }
+
+  @Override
+  public int skip(ByteBuffer buff) {
+    if (fixedFields == schema.size()) {
+      buff.position(buff.position() + fixedOffsets[fixedFields]);
+      return fixedOffsets[fixedFields];
+    }
+    int start = buff.position();
+    for (int i = 0; i < schema.size(); i++) {
+      schema.get(i).skip(buff);
+    }
+    return buff.position() - start;
+  }
+
+  @Override
+  public int skip(byte[] bytes, int offset) {
+    return skip(bytes, offset, schema.size());
+  }
+
+  /**
+   * Locate the end of the first <code>n</code> fields of the encoded value
+   * starting at <code>offset</code>, without decoding them.
+   * @return the number of bytes occupied by those fields.
+   */
+  public int skip(byte[] bytes, int offset, int n) {
+    if (n <= fixedFields) return fixedOffsets[n];
+    int pos = offset + fixedOffsets[fixedFields];
+    for (int i = fixedFields; i < n; i++) {
+      pos += schema.get(i).skip(bytes, pos);
     }
-    return ret;
+    return pos - offset;
+  }
+
+  @Override
+  public int encodedLength(List<Object> val) {
+    return codec().encodedLength(val);
   }
 
   /**
-   * Use <code>schema</code> to serialize a the Objects in <code>val</code>.
+   * The encoder and decoder specialized to this STRUCT's schema, created on
+   * first use.
    */
-  @SuppressWarnings("unchecked")
-  protected static List<byte[]> toBytes(Order order, List<HSerializer> schema, List<Object> val) {
-    assert schema.size() == val.size() : "val length must match schema length";
-
-    // serialize the values
-    List<byte[]> bytes = new ArrayList<byte[]>(schema.size());
-    Iterator<HSerializer> schemaIt = schema.iterator();
-    Iterator<Object> valIt = val.iterator();
-    while (schemaIt.hasNext() && valIt.hasNext()) {
-      HSerializer s = schemaIt.next();
-      Object v = valIt.next();
-      if (s.supportsNull()) {
-        bytes.add(s.toBytes(v));
-      } else {
-        // help out types that don't support null by prepending an isNull
-        // marker. use isNull rather than isNotNull semantic because FALSE
-        // sorts before TRUE, thus preserving the necessary semantic of null
-        // sorting before values. this increases their serialized size by one
-        // byte but allows for user flexibility.
-        if (null == v) bytes.add(order == ASCENDING ? TRUE_ASC : TRUE_DSC);
-        else {
-          byte[] b = s.toBytes(v);
-          byte[] escaped_b = new byte[b.length + 1];
-          escaped_b[0] = (order == ASCENDING ? FALSE_ASC[0] : FALSE_DSC[0]);
-          System.arraycopy(b, 0, escaped_b, 1, b.length);
-          bytes.add(escaped_b);
-        }
+  public StructCodec codec() {
+    if (null == codec) codec = new StructCodec(this);
+    return codec;
+  }
+
+  /**
+   * A comparator over decoded values that agrees with the order of their
+   * encodings.
+   */
+  public StructComparator comparator() {
+    if (null == comparator) comparator = new StructComparator(this);
+    return comparator;
+  }
+
+  /**
+   * Create a lazy view over the STRUCT value encoded in <code>bytes</code>.
+   * Fields are located and decoded only as they are requested.
+   */
+  public StructView view(byte[] bytes) {
+    return new StructView(this).reset(bytes);
+  }
+
+  /**
+   * Create a lazy view over the STRUCT value encoded in <code>buff</code>,
+   * starting at its current position. <code>buff</code>'s position is not
+   * modified.
+   */
+  public StructView view(ByteBuffer buff) {
+    return new StructView(this).reset(buff);
+  }
+
+  /**
+   * The tightest range of encoded keys whose leading fields equal
+   * <code>prefix</code>.
+   */
+  public KeyRange scanRange(List<Object> prefix) {
+    return KeyRange.prefix(codec().encodePrefix(prefix));
+  }
+
+  /**
+   * The tightest range of encoded keys whose leading fields equal
+   * <code>prefix</code> and whose next field falls within
+   * <code>[lower, upper)</code>.
+   * @see #scanRange(List, Object, boolean, Object, boolean)
+   */
+  public KeyRange scanRange(List<Object> prefix, Object lower, Object upper) {
+    return scanRange(prefix, lower, true, upper, false);
+  }
+
+  /**
+   * The tightest range of encoded keys whose leading fields equal
+   * <code>prefix</code> and whose next field falls between
+   * <code>lower</code> and <code>upper</code>, in the natural order of that
+   * field's values. A null bound is unbounded. When only one bound is given,
+   * keys holding null in the next field are excluded; with neither, the
+   * range covers the whole prefix, nulls included. Bounds are swapped as
+   * necessary when the field sorts DESCENDING.
+   */
+  public KeyRange scanRange(List<Object> prefix, Object lower, boolean lowerInclusive,
+      Object upper, boolean upperInclusive) {
+    if (prefix.size() >= schema.size())
+      throw new IllegalArgumentException("No field follows a prefix of " + prefix.size() + ".");
+    if (null == lower && null == upper) return scanRange(prefix);
+    if (schema.get(prefix.size()).order() == Order.DESCENDING) {
+      Object o = lower;
+      lower = upper;
+      upper = o;
+      boolean b = lowerInclusive;
+      lowerInclusive = upperInclusive;
+      upperInclusive = b;
+    }
+
+    // field encodings are self-delimiting, so every key holding value v in
+    // the next field begins with bound(prefix, v). null always sorts at one
+    // extreme of the field; keep an open side from reaching it.
+    byte[] nulls = notNull[prefix.size()] ? null : bound(prefix, null);
+    byte[] start, stop;
+    if (null == lower) {
+      start = null != nulls && HSerializer.compare(nulls, bound(prefix, upper)) < 0
+          ? KeyRange.prefixSuccessor(nulls) : codec().encodePrefix(prefix);
+    } else {
+      start = bound(prefix, lower);
+      if (!lowerInclusive) {
+        byte[] next = KeyRange.prefixSuccessor(start);
+        // no key follows an all-0xFF bound; the range is empty.
+        if (next.length == 0) return new KeyRange(start, start);
+        start = next;
       }
     }
-    assert !schemaIt.hasNext() && !valIt.hasNext();   
-    return bytes;
+    if (null == upper) {
+      stop = null != nulls && HSerializer.compare(nulls, start) > 0
+          ? nulls : KeyRange.prefixSuccessor(codec().encodePrefix(prefix));
+    } else {
+      stop = bound(prefix, upper);
+      if (upperInclusive) stop = KeyRange.prefixSuccessor(stop);
+    }
+    return new KeyRange(start, stop);
+  }
+
+  private byte[] bound(List<Object> prefix, Object val) {
+    List<Object> key = new ArrayList<Object>(prefix.size() + 1);
+    key.addAll(prefix);
+    key.add(val);
+    return codec().encodePrefix(key);
   }
 }
@@ -0,0 +1,117 @@
+package types;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import util.KeyRange;
+
+/**
+ * Plans the encoded key ranges selected by predicates over the leading
+ * fields of a {@link STRUCT}.
+ * <p>
+ * Predicates are added field by field, starting with the first: any number
+ * of IN-lists, optionally followed by one range on the next field. For
+ * example, <code>tenant IN (a, b) AND region IN (x, y) AND ts BETWEEN t0 AND
+ * t1</code> over a (tenant, region, ts, ...) schema is planned as
+ * </p>
+ * <pre>
+ * new SkipScanPlanner(struct).in(a, b).in(x, y).range(t0, true, t1, true).plan();
+ * </pre>
+ * <p>
+ * yielding one range per combination of IN-list values, sorted and
+ * coalesced.
+ * </p>
+ */
+public class SkipScanPlanner {
+
+  private final STRUCT struct;
+  private final List<List<Object>> ins = new ArrayList<List<Object>>();
+  private Object lower, upper;
+  private boolean lowerInclusive, upperInclusive;
+  private boolean ranged;
+
+  public SkipScanPlanner(STRUCT struct) {
+    this.struct = struct;
+  }
+
+  /**
+   * Restrict the next field to one of <code>values</code>.
+   */
+  public SkipScanPlanner in(Object... values) {
+    return in(Arrays.asList(values));
+  }
+
+  /**
+   * Restrict the next field to one of <code>values</code>.
+   */
+  public SkipScanPlanner in(List<?> values) {
+    if (ranged) throw new IllegalStateException("No predicate may follow a range.");
+    if (ins.size() >= struct.schema.size())
+      throw new IllegalStateException("Schema has only " + struct.schema.size() + " fields.");
+    ins.add(new ArrayList<Object>(values));
+    return this;
+  }
+
+  /**
+   * Restrict the next field to values between <code>lower</code> and
+   * <code>upper</code>, in the field's natural order. A null bound is
+   * unbounded.
+   * @see STRUCT#scanRange(List, Object, boolean, Object, boolean)
+   */
+  public SkipScanPlanner range(Object lower, boolean lowerInclusive, Object upper,
+      boolean upperInclusive) {
+    if (ranged) throw new IllegalStateException("Only one range may be given.");
+    if (ins.size() >= struct.schema.size())
+      throw new IllegalStateException("Schema has only " + struct.schema.size() + " fields.");
+    this.lower = lower;
+    this.lowerInclusive = lowerInclusive;
+    this.upper = upper;
+    this.upperInclusive = upperInclusive;
+    this.ranged = true;
+    return this;
+  }
+
+  /**
+   * The number of ranges {@link #plan()} considers before coalescing: the
+   * product of the IN-list sizes.
+   */
+  public long cardinality() {
+    long n = 1;
+    for (List<Object> in : ins) n *= in.size();
+    return n;
+  }
+
+  /**
+   * @return the minimal sorted list of disjoint key ranges selected by the
+   *         predicates; a single unbounded range when there are none.
+   */
+  public List<KeyRange> plan() {
+    if (cardinality() == 0) return Collections.emptyList();
+    if (ins.isEmpty() && !ranged) return Collections.singletonList(KeyRange.ALL);
+
+    List<KeyRange> ranges = new ArrayList<KeyRange>((int) Math.min(cardinality(), 1 << 16));
+    Object[] prefix = new Object[ins.size()];
+    plan(0, prefix, ranges);
+    return KeyRange.normalize(ranges);
+  }
+
+  /**
+   * Enumerate the combinations of IN-list values from field <code>i</code>
+   * onwards.
+   */
+  private void plan(int i, Object[] prefix, List<KeyRange> ranges) {
+    if (i == prefix.length) {
+      List<Object> p = Arrays.asList(prefix.clone());
+      ranges.add(ranged
+          ? struct.scanRange(p, lower, lowerInclusive, upper, upperInclusive)
+          : struct.scanRange(p));
+      return;
+    }
+    for (Object v : ins.get(i)) {
+      prefix[i] = v;
+      plan(i + 1, prefix, ranges);
+    }
+  }
+}
@@ -0,0 +1,430 @@
+package types;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import util.HSerializer;
+import util.HSerializer.Order;
+
+/**
+ * An encoder and decoder for {@link STRUCT} values, specialized to the
+ * STRUCT's schema.
+ * <p>
+ * Each field serializer is resolved once, at construction, to a field kind.
+ * Fields are then encoded and decoded by switching on that kind and calling
+ * the concrete type directly, rather than through {@link HSerializer}. A
+ * value is sized up front and written straight into a single array; no
+ * per-field arrays are created. The isNull markers of {@link NULLABLE}
+ * fields are written and read inline, ahead of the wrapped value. Fields
+ * whose serializer is not one of the
+ * built-in fixed-width types, <code>BOOLEAN</code> or <code>VARCHAR</code>
+ * fall back to their <code>HSerializer</code>.
+ * </p>
+ * <p>
+ * Instances are immutable and thread-safe. Obtain one from
+ * {@link STRUCT#codec()}.
+ * </p>
+ */
+@SuppressWarnings({ "rawtypes", "unchecked" })
+public class StructCodec {
+
+  private static final int OTHER = 0;
+  private static final int LONG_FIELD = 1;
+  private static final int INT_FIELD = 2;
+  private static final int SHORT_FIELD = 3;
+  private static final int DOUBLE_FIELD = 4;
+  private static final int FLOAT_FIELD = 5;
+  private static final int DATETIME_FIELD = 6;
+  private static final int BOOLEAN_FIELD = 7;
+  private static final int VARCHAR_FIELD = 8;
+
+  private final STRUCT struct;
+  private final HSerializer[] fields;
+  private final int[] kinds;
+  private final Order[] orders;
+  /** Whether field <code>i</code> is preceded by an isNull marker. */
+  private final boolean[] marked;
+  private final boolean[] notNull;
+  private final byte[] nullMarkers;
+  private final byte[] notNullMarkers;
+
+  StructCodec(STRUCT struct) {
+    this.struct = struct;
+    this.fields = new HSerializer[struct.schema.size()];
+    this.kinds = new int[fields.length];
+    this.orders = new Order[fields.length];
+    this.marked = new boolean[fields.length];
+    this.notNull = new boolean[fields.length];
+    this.nullMarkers = new byte[fields.length];
+    this.notNullMarkers = new byte[fields.length];
+    for (int i = 0; i < fields.length; i++) {
+      HSerializer s = struct.schema.get(i);
+      if (s instanceof NULLABLE) {
+        NULLABLE n = (NULLABLE) s;
+        marked[i] = true;
+        nullMarkers[i] = n.nullMarker();
+        notNullMarkers[i] = n.notNullMarker();
+        s = n.serde();
+      }
+      fields[i] = s;
+      kinds[i] = kind(s);
+      orders[i] = s.order();
+      notNull[i] = struct.isNotNull(i);
+    }
+  }
+
+  /**
+   * Only exact classes are specialized; a subclass may change the encoding.
+   */
+  private static int kind(HSerializer s) {
+    Class<?> c = s.getClass();
+    if (c == LONG.class) return LONG_FIELD;
+    if (c == INT.class) return INT_FIELD;
+    if (c == SHORT.class) return SHORT_FIELD;
+    if (c == DOUBLE.class) return DOUBLE_FIELD;
+    if (c == FLOAT.class) return FLOAT_FIELD;
+    if (c == DATETIME.class) return DATETIME_FIELD;
+    if (c == BOOLEAN.class) return BOOLEAN_FIELD;
+    if (c == VARCHAR.class) return VARCHAR_FIELD;
+    return OTHER;
+  }
+
+  /**
+   * The number of bytes required to encode <code>val</code>.
+   */
+  public int encodedLength(List<Object> val) {
+    checkSize(val);
+    return length(val);
+  }
+
+  private int length(List<Object> val) {
+    int len = 0;
+    for (int i = 0; i < val.size(); i++) {
+      Object v = val.get(i);
+      if (marked[i]) {
+        len++;
+        if (null == v) continue;
+      }
+      switch (kinds[i]) {
+      case LONG_FIELD:
+      case DOUBLE_FIELD:
+      case DATETIME_FIELD:
+        len += LONG.SIZEOF_LONG;
+        break;
+      case INT_FIELD:
+      case FLOAT_FIELD:
+        len += Integer.SIZE / Byte.SIZE;
+        break;
+      case SHORT_FIELD:
+        len += Short.SIZE / Byte.SIZE;
+        break;
+      case BOOLEAN_FIELD:
+        len += 1;
+        break;
+      case VARCHAR_FIELD:
+        len += null == v ? 2 : VARCHAR.utf8Length((String) v) + 1;
+        break;
+      default:
+        len += fields[i].encodedLength(v);
+      }
+    }
+    return len;
+  }
+
+  public byte[] encode(List<Object> val) {
+    byte[] ret = new byte[encodedLength(val)];
+    encode(val, ret, 0);
+    return ret;
+  }
+
+  /**
+   * Encode the leading <code>val.size()</code> fields of a value. Field
+   * encodings are self-delimiting, so every value whose leading fields equal
+   * <code>val</code> begins with the returned bytes.
+   */
+  public byte[] encodePrefix(List<Object> val) {
+    if (val.size() > fields.length)
+      throw new IllegalArgumentException(
+        "Prefix has " + val.size() + " fields, schema has " + fields.length + ".");
+    byte[] ret = new byte[length(val)];
+    put(val, ret, 0);
+    return ret;
+  }
+
+  /**
+   * Write <code>val</code> into <code>buff</code> at its position.
+   * @throws BufferOverflowException when <code>buff</code> has insufficient
+   *           space remaining.
+   */
+  public void encode(List<Object> val, ByteBuffer buff) {
+    if (encodedLength(val) > buff.remaining()) throw new BufferOverflowException();
+    if (!buff.hasArray()) {
+      for (int i = 0; i < val.size(); i++) {
+        put(i, val.get(i), buff);
+      }
+      return;
+    }
+    int end = encode(val, buff.array(), buff.arrayOffset() + buff.position());
+    buff.position(end - buff.arrayOffset());
+  }
+
+  /**
+   * Write <code>val</code> into <code>dst</code> at <code>offset</code>.
+   * <code>dst</code> must have room for {@link #encodedLength(List)} bytes.
+   * @return the offset in <code>dst</code> following the last byte written.
+   */
+  public int encode(List<Object> val, byte[] dst, int offset) {
+    checkSize(val);
+    return put(val, dst, offset);
+  }
+
+  private int put(List<Object> val, byte[] dst, int offset) {
+    int p = offset;
+    for (int i = 0; i < val.size(); i++) {
+      p = put(i, val.get(i), dst, p);
+    }
+    return p;
+  }
+
+  /**
+   * Write field <code>i</code>'s value <code>v</code> into <code>dst</code>
+   * at <code>p</code>.
+   * @return the offset in <code>dst</code> following the last byte written.
+   */
+  int put(int i, Object v, byte[] dst, int p) {
+    if (null == v && notNull[i])
+      throw new IllegalArgumentException("Field " + i + " is NOT NULL.");
+    if (marked[i]) {
+      if (null == v) {
+        dst[p++] = nullMarkers[i];
+        return p;
+      }
+      dst[p++] = notNullMarkers[i];
+    }
+    switch (kinds[i]) {
+    case LONG_FIELD:
+      p += ((LONG) fields[i]).encodeLong((Long) v, dst, p);
+      break;
+    case INT_FIELD:
+      p += ((INT) fields[i]).encodeInt((Integer) v, dst, p);
+      break;
+    case SHORT_FIELD:
+      p += ((SHORT) fields[i]).encodeShort((Short) v, dst, p);
+      break;
+    case DOUBLE_FIELD:
+      p += ((DOUBLE) fields[i]).encodeDouble((Double) v, dst, p);
+      break;
+    case FLOAT_FIELD:
+      p += ((FLOAT) fields[i]).encodeFloat((Float) v, dst, p);
+      break;
+    case DATETIME_FIELD:
+      p += ((DATETIME) fields[i]).encodeLong(((Date) v).getTime(), dst, p);
+      break;
+    case BOOLEAN_FIELD:
+      byte b = null == v ? BOOLEAN.NULL : (Boolean) v ? BOOLEAN.TRUE : BOOLEAN.FALSE;
+      dst[p++] = (byte) (b ^ orders[i].mask());
+      break;
+    case VARCHAR_FIELD:
+      if (null == v) {
+        dst[p++] = VARCHAR.mask(orders[i], VARCHAR.NULL);
+        dst[p++] = VARCHAR.mask(orders[i], VARCHAR.TERM);
+      } else {
+        p = VARCHAR.putRaw(dst, p, (String) v, orders[i]);
+      }
+      break;
+    default:
+      ByteBuffer buff = ByteBuffer.wrap(dst, p, dst.length - p);
+      fields[i].write(buff, v);
+      p = buff.position();
+    }
+    return p;
+  }
+
+  /**
+   * Write field <code>i</code>'s value <code>v</code> into <code>buff</code>
+   * at its position, for buffers without an accessible array.
+   */
+  private void put(int i, Object v, ByteBuffer buff) {
+    if (null == v && notNull[i])
+      throw new IllegalArgumentException("Field " + i + " is NOT NULL.");
+    if (marked[i]) {
+      if (null == v) {
+        buff.put(nullMarkers[i]);
+        return;
+      }
+      buff.put(notNullMarkers[i]);
+    }
+    switch (kinds[i]) {
+    case LONG_FIELD:
+      ((LONG) fields[i]).encodeLong((Long) v, buff);
+      break;
+    case INT_FIELD:
+      ((INT) fields[i]).encodeInt((Integer) v, buff);
+      break;
+    case SHORT_FIELD:
+      ((SHORT) fields[i]).encodeShort((Short) v, buff);
+      break;
+    case DOUBLE_FIELD:
+      ((DOUBLE) fields[i]).encodeDouble((Double) v, buff);
+      break;
+    case FLOAT_FIELD:
+      ((FLOAT) fields[i]).encodeFloat((Float) v, buff);
+      break;
+    case DATETIME_FIELD:
+      ((DATETIME) fields[i]).encodeLong(((Date) v).getTime(), buff);
+      break;
+    case BOOLEAN_FIELD:
+      byte b = null == v ? BOOLEAN.NULL : (Boolean) v ? BOOLEAN.TRUE : BOOLEAN.FALSE;
+      buff.put((byte) (b ^ orders[i].mask()));
+      break;
+    case VARCHAR_FIELD:
+      VARCHAR.putBytes(buff, (String) v, orders[i]);
+      break;
+    default:
+      fields[i].write(buff, v);
+    }
+  }
+
+  public List<Object> decode(byte[] src) {
+    return decode(src, 0, src.length);
+  }
+
+  /**
+   * Decode the value encoded in the slice <code>[offset, offset +
+   * length)</code> of <code>src</code>. Any bytes following the value are
+   * ignored.
+   */
+  public List<Object> decode(byte[] src, int offset, int length) {
+    List<Object> ret = new ArrayList<Object>(fields.length);
+    decodeFields(src, offset, offset + length, ret);
+    return ret;
+  }
+
+  /**
+   * Decode the value encoded in the slice <code>[offset, offset +
+   * length)</code> of <code>src</code> into <code>reuse</code>, replacing
+   * its contents. <code>reuse</code> must support <code>clear</code> and
+   * <code>add</code>.
+   * @return <code>reuse</code>.
+   */
+  public List<Object> decode(byte[] src, int offset, int length, List<Object> reuse) {
+    reuse.clear();
+    decodeFields(src, offset, offset + length, reuse);
+    return reuse;
+  }
+
+  /**
+   * Decode the value at <code>buff</code>'s position, advancing it past the
+   * value.
+   */
+  public List<Object> decode(ByteBuffer buff) {
+    List<Object> ret = new ArrayList<Object>(fields.length);
+    if (buff.hasArray()) {
+      int offset = buff.arrayOffset();
+      int end = decodeFields(buff.array(), offset + buff.position(), offset + buff.limit(), ret);
+      buff.position(end - offset);
+      return ret;
+    }
+
+    for (int i = 0; i < fields.length; i++) {
+      ret.add(struct.schema.get(i).read(buff));
+    }
+    return ret;
+  }
+
+  /**
+   * Decode fields from <code>src[offset, limit)</code> into
+   * <code>ret</code>. No byte at or past <code>limit</code> is read.
+   * @return the offset following the last byte read.
+   * @throws BufferUnderflowException when a fixed-width field is truncated.
+   * @throws IllegalArgumentException when a variable-width field is
+   *           unterminated.
+   */
+  private int decodeFields(byte[] src, int offset, int limit, List<Object> ret) {
+    int p = offset;
+    for (int i = 0; i < fields.length; i++) {
+      if (marked[i] && isNull(i, src[require(p++, 1, limit)])) {
+        ret.add(null);
+        continue;
+      }
+      switch (kinds[i]) {
+      case LONG_FIELD:
+        ret.add(((LONG) fields[i]).decodeLong(src, require(p, LONG.SIZEOF_LONG, limit)));
+        p += LONG.SIZEOF_LONG;
+        break;
+      case INT_FIELD:
+        ret.add(((INT) fields[i]).decodeInt(src, require(p, Integer.SIZE / Byte.SIZE, limit)));
+        p += Integer.SIZE / Byte.SIZE;
+        break;
+      case SHORT_FIELD:
+        ret.add(((SHORT) fields[i]).decodeShort(src, require(p, Short.SIZE / Byte.SIZE, limit)));
+        p += Short.SIZE / Byte.SIZE;
+        break;
+      case DOUBLE_FIELD:
+        ret.add(((DOUBLE) fields[i]).decodeDouble(src, require(p, LONG.SIZEOF_LONG, limit)));
+        p += LONG.SIZEOF_LONG;
+        break;
+      case FLOAT_FIELD:
+        ret.add(((FLOAT) fields[i]).decodeFloat(src, require(p, Integer.SIZE / Byte.SIZE, limit)));
+        p += Integer.SIZE / Byte.SIZE;
+        break;
+      case DATETIME_FIELD:
+        ret.add(new Date(((DATETIME) fields[i]).decodeLong(src, require(p, LONG.SIZEOF_LONG, limit))));
+        p += LONG.SIZEOF_LONG;
+        break;
+      case BOOLEAN_FIELD:
+        ret.add(toBoolean(src[require(p++, 1, limit)], orders[i]));
+        break;
+      case VARCHAR_FIELD:
+        int len = VARCHAR.skip(src, p, limit - p, orders[i]);
+        ret.add(VARCHAR.decode(src, p, p + len - 1, orders[i]));
+        p += len;
+        break;
+      default:
+        ByteBuffer buff = ByteBuffer.wrap(src, p, limit - p);
+        ret.add(fields[i].read(buff));
+        p = buff.position();
+      }
+    }
+    return p;
+  }
+
+  /**
+   * Check that <code>width</code> bytes at <code>p</code> fall before
+   * <code>limit</code>.
+   * @return <code>p</code>.
+   */
+  private static int require(int p, int width, int limit) {
+    if (width > limit - p) throw new BufferUnderflowException();
+    return p;
+  }
+
+  private boolean isNull(int i, byte marker) {
+    if (marker == nullMarkers[i]) return true;
+    if (marker == notNullMarkers[i]) return false;
+    throw new IllegalArgumentException("Unexpected isNull marker " + HSerializer.toBinaryString(marker));
+  }
+
+  private static Boolean toBoolean(byte b, Order order) {
+    switch (b ^ order.mask()) {
+    case BOOLEAN.NULL:
+      return null;
+    case BOOLEAN.FALSE:
+      return Boolean.FALSE;
+    case BOOLEAN.TRUE:
+      return Boolean.TRUE;
+    default:
+      throw new IllegalArgumentException("Unexpected byte value " + HSerializer.toBinaryString(b));
+    }
+  }
+
+  private void checkSize(List<Object> val) {
+    if (val.size() != fields.length)
+      throw new IllegalArgumentException(
+        "Value has " + val.size() + " fields, schema has " + fields.length + ".");
+  }
+}
@@ -0,0 +1,83 @@
+package types;
+
+import java.util.Comparator;
+import java.util.List;
+
+import util.HSerializer;
+import util.HSerializer.Order;
+
+/**
+ * Compares decoded {@link STRUCT} values in the order of their encodings.
+ * <p>
+ * Fields are compared in turn, each in the <code>Order</code> of its
+ * serializer, with null sorting before every value in that field's natural
+ * order. Values of the built-in types are compared directly; values of any
+ * other serializer are compared by their encodings.
+ * </p>
+ */
+@SuppressWarnings({ "rawtypes", "unchecked" })
+public class StructComparator implements Comparator<List<Object>> {
+
+  private static final Comparator<String> CODE_POINTS = new Comparator<String>() {
+    @Override
+    public int compare(String left, String right) {
+      int i = 0, j = 0;
+      while (i < left.length() && j < right.length()) {
+        int l = left.codePointAt(i), r = right.codePointAt(j);
+        if (l != r) return l < r ? -1 : 1;
+        i += Character.charCount(l);
+        j += Character.charCount(r);
+      }
+      return (left.length() - i) - (right.length() - j);
+    }
+  };
+
+  private static final Comparator<Comparable> NATURAL = new Comparator<Comparable>() {
+    @Override
+    public int compare(Comparable left, Comparable right) {
+      return left.compareTo(right);
+    }
+  };
+
+  private final HSerializer[] fields;
+  private final Comparator[] comparators;
+
+  StructComparator(STRUCT struct) {
+    this.fields = struct.schema.toArray(new HSerializer[struct.schema.size()]);
+    this.comparators = new Comparator[fields.length];
+    for (int i = 0; i < fields.length; i++) {
+      comparators[i] = natural(fields[i]);
+    }
+  }
+
+  /**
+   * The ascending comparator for values of <code>serde</code>.
+   */
+  private static Comparator natural(final HSerializer serde) {
+    if (serde instanceof NULLABLE) return natural(((NULLABLE) serde).serde());
+    if (serde instanceof VARCHAR || serde instanceof CHAR) return CODE_POINTS;
+    if (serde instanceof BYTE) return HSerializer.BYTES_COMPARATOR;
+    if (serde instanceof STRUCT) return ((STRUCT) serde).comparator();
+    if (serde instanceof LONG || serde instanceof INT || serde instanceof SHORT
+        || serde instanceof DOUBLE || serde instanceof FLOAT || serde instanceof DATETIME
+        || serde instanceof BOOLEAN || serde instanceof VARINT || serde instanceof DECIMAL)
+      return NATURAL;
+    // unknown semantics; compare ascending encodings.
+    final Order o = serde.order();
+    return new Comparator<Object>() {
+      @Override
+      public int compare(Object left, Object right) {
+        return o.cmp(HSerializer.compare(serde.toBytes(left), serde.toBytes(right)));
+      }
+    };
+  }
+
+  @Override
+  public int compare(List<Object> left, List<Object> right) {
+    for (int i = 0; i < fields.length; i++) {
+      int cmp = HSerializer.compare(comparators[i], fields[i].order(), left.get(i), right.get(i));
+      if (cmp != 0) return cmp;
+    }
+    return 0;
+  }
+}
@@ -0,0 +1,242 @@
+package types;
+
+import java.nio.ByteBuffer;
+
+import util.DoubleSerializer;
+import util.FloatSerializer;
+import util.HSerializer;
+import util.IntSerializer;
+import util.LongSerializer;
+import util.ShortSerializer;
+
+/**
+ * A lazy, random-access view over an encoded {@link STRUCT} value.
+ * <p>
+ * Field boundaries are located on demand and remembered, so accessing field
+ * <code>i</code> costs at most one pass over the fields preceding it, once.
+ * Fields at a fixed offset are located directly.
+ * Only the requested fields are decoded. The typed getters decode primitive
+ * fields without boxing.
+ * </p>
+ * <p>
+ * A view may be re-pointed at another encoded value with one of the
+ * <code>reset</code> methods, allowing a single instance to be reused across
+ * rows. Instances are not thread-safe.
+ * </p>
+ */
+@SuppressWarnings("rawtypes")
+public class StructView {
+
+  private final STRUCT struct;
+  private final HSerializer[] fields;
+  /** The NULLABLE wrapping field <code>i</code>, if any. */
+  private final NULLABLE[] nullables;
+
+  /**
+   * <code>offsets[i]</code> is the absolute position in <code>buff</code> of
+   * field <code>i</code>, including any isNull marker. Valid for
+   * <code>i &lt;= resolved</code> that are not at a fixed offset.
+   */
+  private final int[] offsets;
+  private int resolved;
+  /** The number of leading fields at a fixed offset. */
+  private final int fixedFields;
+  private ByteBuffer buff;
+
+  StructView(STRUCT struct) {
+    this.struct = struct;
+    this.fields = new HSerializer[struct.schema.size()];
+    this.nullables = new NULLABLE[fields.length];
+    for (int i = 0; i < fields.length; i++) {
+      HSerializer s = struct.schema.get(i);
+      if (s instanceof NULLABLE) {
+        nullables[i] = (NULLABLE) s;
+        s = nullables[i].serde();
+      }
+      fields[i] = s;
+    }
+    this.offsets = new int[fields.length + 1];
+    int f = 0;
+    while (f < fields.length && struct.fixedOffset(f + 1) >= 0) f++;
+    this.fixedFields = f;
+  }
+
+  /**
+   * Point this view at the STRUCT value encoded in <code>bytes</code>.
+   */
+  public StructView reset(byte[] bytes) {
+    return reset(bytes, 0, bytes.length);
+  }
+
+  /**
+   * Point this view at the STRUCT value encoded in the slice
+   * <code>[offset, offset + length)</code> of <code>bytes</code>.
+   */
+  public StructView reset(byte[] bytes, int offset, int length) {
+    return reset(ByteBuffer.wrap(bytes, offset, length));
+  }
+
+  /**
+   * Point this view at the STRUCT value encoded in <code>buff</code>,
+   * starting at its current position. <code>buff</code>'s position is not
+   * modified.
+   */
+  public StructView reset(ByteBuffer buff) {
+    this.buff = buff.duplicate();
+    this.offsets[0] = buff.position();
+    this.resolved = 0;
+    return this;
+  }
+
+  /**
+   * Number of fields in the underlying schema.
+   */
+  public int size() {
+    return fields.length;
+  }
+
+  /**
+   * Total number of bytes occupied by the encoded STRUCT value. Requires all
+   * field boundaries to be located.
+   */
+  public int length() {
+    return offset(fields.length) - offsets[0];
+  }
+
+  /**
+   * Returns true when field <code>i</code> holds a null value.
+   */
+  public boolean isNull(int i) {
+    ByteBuffer b = seek(i);
+    if (null == b) return true;
+    if (null != nullables[i] || !fields[i].supportsNull()) return false;
+
+    // the value encodes its own null; peek at it where the encoding is known.
+    HSerializer s = fields[i];
+    int pos = b.position();
+    if (s instanceof BOOLEAN) {
+      return b.get(pos) == (byte) (BOOLEAN.NULL ^ s.order().mask());
+    } else if (s instanceof VARINT || s instanceof DECIMAL) {
+      return b.get(pos) == (byte) (VARINT.NULL ^ s.order().mask());
+    } else if (s instanceof BYTE) {
+      return b.remaining() >= 2
+          && b.get(pos) == (byte) (BYTE.NULL ^ s.order().mask())
+          && b.get(pos + 1) == (byte) (BYTE.NULL ^ s.order().mask());
+    } else if (s instanceof VARCHAR || s instanceof CHAR) {
+      return b.remaining() >= 2
+          && b.get(pos) == VARCHAR.mask(s.order(), VARCHAR.NULL)
+          && b.get(pos + 1) == VARCHAR.mask(s.order(), VARCHAR.TERM);
+    }
+    return null == s.read(b);
+  }
+
+  /**
+   * Decode field <code>i</code> using its schema serializer.
+   */
+  public Object get(int i) {
+    ByteBuffer b = seek(i);
+    return null == b ? null : fields[i].read(b);
+  }
+
+  public long getLong(int i) {
+    ByteBuffer b = seekNotNull(i);
+    if (fields[i] instanceof LongSerializer) return ((LongSerializer) fields[i]).decodeLong(b);
+    throw mismatch(i, "long");
+  }
+
+  public int getInt(int i) {
+    ByteBuffer b = seekNotNull(i);
+    if (fields[i] instanceof IntSerializer) return ((IntSerializer) fields[i]).decodeInt(b);
+    throw mismatch(i, "int");
+  }
+
+  public short getShort(int i) {
+    ByteBuffer b = seekNotNull(i);
+    if (fields[i] instanceof ShortSerializer) return ((ShortSerializer) fields[i]).decodeShort(b);
+    throw mismatch(i, "short");
+  }
+
+  public double getDouble(int i) {
+    ByteBuffer b = seekNotNull(i);
+    if (fields[i] instanceof DoubleSerializer)
+      return ((DoubleSerializer) fields[i]).decodeDouble(b);
+    throw mismatch(i, "double");
+  }
+
+  public float getFloat(int i) {
+    ByteBuffer b = seekNotNull(i);
+    if (fields[i] instanceof FloatSerializer) return ((FloatSerializer) fields[i]).decodeFloat(b);
+    throw mismatch(i, "float");
+  }
+
+  public boolean getBoolean(int i) {
+    ByteBuffer b = seekNotNull(i);
+    if (fields[i] instanceof BOOLEAN) return BOOLEAN.toBoolean(b, fields[i].order());
+    throw mismatch(i, "boolean");
+  }
+
+  public String getString(int i) {
+    ByteBuffer b = seek(i);
+    if (!(fields[i] instanceof VARCHAR || fields[i] instanceof CHAR))
+      throw mismatch(i, "String");
+    return null == b ? null : VARCHAR.toString(b, fields[i].order());
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder("[");
+    for (int i = 0; i < fields.length; i++) {
+      if (i > 0) sb.append(", ");
+      sb.append(get(i));
+    }
+    return sb.append("]").toString();
+  }
+
+  //
+  // Field location helpers.
+  //
+
+  /**
+   * Absolute position of field <code>i</code>, locating the boundaries of any
+   * preceding fields not yet seen.
+   */
+  private int offset(int i) {
+    if (i < 0 || i > fields.length)
+      throw new IndexOutOfBoundsException("Field " + i + " of " + fields.length);
+    if (i <= fixedFields) return offsets[0] + struct.fixedOffset(i);
+    if (resolved < fixedFields) {
+      resolved = fixedFields;
+      offsets[resolved] = offsets[0] + struct.fixedOffset(resolved);
+    }
+    while (resolved < i) {
+      buff.position(offsets[resolved]);
+      if (null != nullables[resolved]) nullables[resolved].skip(buff);
+      else fields[resolved].skip(buff);
+      offsets[++resolved] = buff.position();
+    }
+    return offsets[i];
+  }
+
+  /**
+   * Position the buffer at the value of field <code>i</code>, after any
+   * isNull marker.
+   * @return the positioned buffer, or null when the field holds a null value
+   *         behind an isNull marker.
+   */
+  private ByteBuffer seek(int i) {
+    buff.position(offset(i));
+    if (null != nullables[i] && nullables[i].isNull(buff.get())) return null;
+    return buff;
+  }
+
+  private ByteBuffer seekNotNull(int i) {
+    ByteBuffer b = seek(i);
+    if (null == b) throw new NullPointerException("Field " + i + " is null.");
+    return b;
+  }
+
+  private IllegalArgumentException mismatch(int i, String type) {
+    return new IllegalArgumentException(
+      "Field " + i + " is a " + fields[i] + ", not a " + type + ".");
+  }
+}
@@ -1,7 +1,6 @@
 package types;
 
 import java.nio.ByteBuffer;
-import java.nio.charset.Charset;
 
 import util.HSerializer;
 
@@ -18,8 +17,6 @@ import util.HSerializer;
  */
 public class VARCHAR extends HSerializer<String> {
 
-  static final Charset UTF8 = Charset.forName("UTF-8");
-
   static final byte NULL = (byte) 0x00;
   static final byte TERM = (byte) 0x01;
 
@@ -53,28 +50,40 @@ public class VARCHAR extends HSerializer<String> {
 
   @Override
   public String read(ByteBuffer buff) {
-    return toString(buff);
+    return toString(buff, order);
+  }
+
+  @Override
+  public int skip(ByteBuffer buff) {
+    return skip(buff, order);
+  }
+
+  @Override
+  public int skip(byte[] bytes, int offset) {
+    return skip(bytes, offset, order);
+  }
+
+  /**
+   * Number of bytes required to encode <code>val</code>, including the
+   * termination byte.
+   */
+  @Override
+  public int encodedLength(String val) {
+    if (null == val) return 2;
+    return utf8Length(val) + 1;
   }
 
   //
   // Helper methods to mimic {@link Bytes}
   //
 
-  // TODO: refactor {to,put}Bytes M-w, C-y, a la LONG raw helpers.
-
   public static byte[] toBytes(String val, Order order) {
     if (null == val) {
       return new byte[] { mask(order, NULL), mask(order, TERM) };
     }
 
-    // TODO: reimplement with fewer allocations/copies
-    byte[] encoded = val.getBytes(UTF8);
-    for (int i = 0; i < encoded.length; i++) {
-      encoded[i] = mask(order, (byte) (encoded[i] + 2));
-    }
-    byte[] ret = new byte[encoded.length + 1];
-    ret[encoded.length] = mask(order, TERM);
-    System.arraycopy(encoded, 0, ret, 0, encoded.length);
+    byte[] ret = new byte[utf8Length(val) + 1];
+    putRaw(ret, 0, val, order);
     return ret;
   }
 
@@ -86,14 +95,8 @@ public class VARCHAR extends HSerializer<String> {
       return dst;
     }
 
-    // TODO: reimplement with fewer allocations/copies
-    byte[] encoded = val.getBytes(UTF8);
-    for (int i = 0; i < encoded.length; i++) {
-      encoded[i] = mask(order, (byte) (encoded[i] + 2));
-    }
-    assert dst.length >= dstOffset + encoded.length + 1;
-    dst[dstOffset + encoded.length] = mask(order, TERM);
-    System.arraycopy(encoded, 0, dst, dstOffset, encoded.length);
+    assert dst.length >= dstOffset + utf8Length(val) + 1;
+    putRaw(dst, dstOffset, val, order);
     return dst;
   }
 
@@ -104,15 +107,202 @@ public class VARCHAR extends HSerializer<String> {
       return buff.put(mask(order, TERM));
     }
 
-    // TODO: reimplement with fewer allocations/copies
-    byte[] encoded = val.getBytes(UTF8);
-    for (int i = 0; i < encoded.length; i++) {
-      encoded[i] = mask(order, (byte) (encoded[i] + 2));
+    assert buff.limit() >= buff.position() + utf8Length(val) + 1;
+    if (buff.hasArray()) {
+      int end = putRaw(buff.array(), buff.arrayOffset() + buff.position(), val, order);
+      buff.position(end - buff.arrayOffset());
+    } else {
+      putRaw(buff, val, order);
     }
-    assert buff.limit() >= buff.position() + encoded.length + 1;
-    System.arraycopy(encoded, 0, buff.array(), buff.position(), encoded.length);
-    buff.position(buff.position() + encoded.length);
-    return buff.put(mask(order, TERM));
+    return buff;
+  }
+
+  //
+  // Batch helpers for encoding runs of values into, and decoding them from,
+  // one contiguous byte[]. Encoded values vary in width, so their boundaries
+  // are carried in an offsets array: value i occupies
+  // [offsets[i], offsets[i + 1]).
+  //
+
+  /**
+   * Encode <code>vals</code> back to back into a single array.
+   * @param offsets receives <code>vals.length + 1</code> value boundaries.
+   */
+  public static byte[] toBytes(String[] vals, int[] offsets, Order order) {
+    assert offsets.length >= vals.length + 1;
+    offsets[0] = 0;
+    for (int i = 0; i < vals.length; i++) {
+      offsets[i + 1] = offsets[i] + (null == vals[i] ? 2 : utf8Length(vals[i]) + 1);
+    }
+    byte[] ret = new byte[offsets[vals.length]];
+    for (int i = 0; i < vals.length; i++) {
+      putBytes(ret, offsets[i], vals[i], order);
+    }
+    return ret;
+  }
+
+  /**
+   * Decode <code>dst.length</code> values from <code>src</code> using the
+   * boundaries recorded by {@link #toBytes(String[], int[], Order)}.
+   */
+  public static void toStrings(byte[] src, int[] offsets, String[] dst, Order order) {
+    assert offsets.length >= dst.length + 1;
+    for (int i = 0; i < dst.length; i++) {
+      int term = offsets[i + 1] - 1;
+      if (src[term] != mask(order, TERM)) throw new IllegalArgumentException(UNTERMINATED);
+      dst[i] = decode(src, offsets[i], term, order);
+    }
+  }
+
+  //
+  // Helpers for writing the shifted, masked UTF-8 encoding of a String in a
+  // single pass. Unpaired surrogates are replaced with '?', matching
+  // String#getBytes(Charset).
+  //
+
+  /**
+   * Number of bytes in the UTF-8 encoding of <code>val</code>, excluding the
+   * termination byte.
+   */
+  public static int utf8Length(String val) {
+    final int len = val.length();
+    int n = len;
+    for (int i = 0; i < len; i++) {
+      char c = val.charAt(i);
+      if (c < 0x80) continue;
+      if (c < 0x800) {
+        n += 1;
+      } else if (c < Character.MIN_SURROGATE || c > Character.MAX_SURROGATE) {
+        n += 2;
+      } else if (isSurrogatePair(val, i)) {
+        // two chars become four bytes
+        n += 2;
+        i++;
+      }
+    }
+    return n;
+  }
+
+  private static boolean isSurrogatePair(String val, int i) {
+    return Character.isHighSurrogate(val.charAt(i))
+        && i + 1 < val.length()
+        && Character.isLowSurrogate(val.charAt(i + 1));
+  }
+
+  /**
+   * Shift a UTF-8 byte clear of the NULL and TERM bytes and apply the
+   * sort-order mask.
+   */
+  private static byte encode(int b, byte mask) {
+    return (byte) ((b + 2) ^ mask);
+  }
+
+  /**
+   * Write the encoded <code>val</code>, followed by the termination byte,
+   * into <code>dst</code> at <code>offset</code>.
+   * @return the position in <code>dst</code> following the written bytes.
+   */
+  static int putRaw(byte[] dst, int offset, String val, Order order) {
+    final byte m = order.mask();
+    final int len = val.length();
+    int pos = offset;
+    int i = 0;
+
+    // ASCII fast path
+    for (char c; i < len && (c = val.charAt(i)) < 0x80; i++) {
+      dst[pos++] = encode(c, m);
+    }
+
+    for (; i < len; i++) {
+      int c = val.charAt(i);
+      if (c < 0x80) {
+        dst[pos++] = encode(c, m);
+      } else if (c < 0x800) {
+        dst[pos++] = encode(0xC0 | (c >> 6), m);
+        dst[pos++] = encode(0x80 | (c & 0x3F), m);
+      } else if (c < Character.MIN_SURROGATE || c > Character.MAX_SURROGATE) {
+        dst[pos++] = encode(0xE0 | (c >> 12), m);
+        dst[pos++] = encode(0x80 | ((c >> 6) & 0x3F), m);
+        dst[pos++] = encode(0x80 | (c & 0x3F), m);
+      } else if (isSurrogatePair(val, i)) {
+        int cp = Character.toCodePoint((char) c, val.charAt(++i));
+        dst[pos++] = encode(0xF0 | (cp >> 18), m);
+        dst[pos++] = encode(0x80 | ((cp >> 12) & 0x3F), m);
+        dst[pos++] = encode(0x80 | ((cp >> 6) & 0x3F), m);
+        dst[pos++] = encode(0x80 | (cp & 0x3F), m);
+      } else {
+        dst[pos++] = encode('?', m);
+      }
+    }
+    dst[pos++] = mask(order, TERM);
+    return pos;
+  }
+
+  /**
+   * Write the encoded <code>val</code>, followed by the termination byte,
+   * into a buffer without an accessible backing array.
+   */
+  private static void putRaw(ByteBuffer buff, String val, Order order) {
+    final byte m = order.mask();
+    final int len = val.length();
+    for (int i = 0; i < len; i++) {
+      int c = val.charAt(i);
+      if (c < 0x80) {
+        buff.put(encode(c, m));
+      } else if (c < 0x800) {
+        buff.put(encode(0xC0 | (c >> 6), m));
+        buff.put(encode(0x80 | (c & 0x3F), m));
+      } else if (c < Character.MIN_SURROGATE || c > Character.MAX_SURROGATE) {
+        buff.put(encode(0xE0 | (c >> 12), m));
+        buff.put(encode(0x80 | ((c >> 6) & 0x3F), m));
+        buff.put(encode(0x80 | (c & 0x3F), m));
+      } else if (isSurrogatePair(val, i)) {
+        int cp = Character.toCodePoint((char) c, val.charAt(++i));
+        buff.put(encode(0xF0 | (cp >> 18), m));
+        buff.put(encode(0x80 | ((cp >> 12) & 0x3F), m));
+        buff.put(encode(0x80 | ((cp >> 6) & 0x3F), m));
+        buff.put(encode(0x80 | (cp & 0x3F), m));
+      } else {
+        buff.put(encode('?', m));
+      }
+    }
+    buff.put(mask(order, TERM));
+  }
+
+  /**
+   * Advance <code>buff</code> past the encoded value at its position.
+   * @return the number of bytes skipped, including the termination byte.
+   */
+  public static int skip(ByteBuffer buff, Order order) {
+    int start = buff.position();
+    if (buff.hasArray()) {
+      int offset = buff.arrayOffset() + start;
+      buff.position(start + indexOfTerm(buff.array(), offset, buff.remaining(), order) - offset + 1);
+    } else {
+      final byte t = mask(order, TERM);
+      int term = start;
+      while (term < buff.limit() && buff.get(term) != t) term++;
+      if (term == buff.limit()) throw new IllegalArgumentException(UNTERMINATED);
+      buff.position(term + 1);
+    }
+    return buff.position() - start;
+  }
+
+  /**
+   * Length of the encoded value starting at <code>offset</code>, including
+   * the termination byte.
+   */
+  public static int skip(byte[] bytes, int offset, Order order) {
+    return skip(bytes, offset, bytes.length - offset, order);
+  }
+
+  /**
+   * Length of the encoded value starting at <code>offset</code>, including
+   * the termination byte, which must fall within the slice
+   * <code>[offset, offset + length)</code>.
+   */
+  public static int skip(byte[] bytes, int offset, int length, Order order) {
+    return indexOfTerm(bytes, offset, length, order) - offset + 1;
   }
 
   public static String toString(byte[] bytes) {
@@ -124,19 +314,16 @@ public class VARCHAR extends HSerializer<String> {
   }
 
   public static String toString(byte[] bytes, int offset, Order order) {
-    if (mask(order, bytes[offset]) == TERM) return "";
-    if (mask(order, bytes[offset]) == NULL && mask(order, bytes[offset + 1]) == TERM)
-      return null;
+    return toString(bytes, offset, bytes.length - offset, order);
+  }
 
-    ByteBuffer decoded = ByteBuffer.allocate(bytes.length - offset - 1);
-    for (int i = offset; i < bytes.length; i++) {
-      if (TERM == mask(order, bytes[i]))
-        break;
-      decoded.put((byte) (mask(order, bytes[i]) - 2));
-    }
-    byte[] ret = new byte[decoded.position()];
-    System.arraycopy(decoded.array(), 0, ret, 0, ret.length);
-    return new String(ret, UTF8);
+  /**
+   * Decode the value encoded in the slice <code>[offset, offset + length)</code>
+   * of <code>bytes</code>. The termination byte must fall within the slice;
+   * any bytes following it are ignored.
+   */
+  public static String toString(byte[] bytes, int offset, int length, Order order) {
+    return decode(bytes, offset, indexOfTerm(bytes, offset, length, order), order);
   }
 
   public static String toString(ByteBuffer buff) {
@@ -144,17 +331,118 @@ public class VARCHAR extends HSerializer<String> {
   }
 
   public static String toString(ByteBuffer buff, Order order) {
-    // locate the terminal byte
-    int initalPosition = buff.position();
-    while (mask(order, buff.get()) != TERM);
-    if (initalPosition == buff.position() - 1) return "";
-    if (initalPosition == buff.position() - 2 && mask(order, buff.get(initalPosition)) == TERM)
-      return null;
-
-    byte[] decoded = new byte[buff.position() - initalPosition - 1];
-    for (int i = initalPosition; i < buff.position() - 1; i++) {
-      decoded[i - initalPosition] = (byte) (mask(order, buff.get(i)) - 2);
-    }
-    return new String(decoded, UTF8);
+    if (buff.hasArray()) {
+      int offset = buff.arrayOffset() + buff.position();
+      int term = indexOfTerm(buff.array(), offset, buff.remaining(), order);
+      String ret = decode(buff.array(), offset, term, order);
+      buff.position(buff.position() + term - offset + 1);
+      return ret;
+    }
+
+    // locate the terminal byte, then bulk-copy the value out of the buffer.
+    final byte t = mask(order, TERM);
+    int term = buff.position();
+    while (term < buff.limit() && buff.get(term) != t) term++;
+    if (term == buff.limit()) throw new IllegalArgumentException(UNTERMINATED);
+    byte[] encoded = new byte[term - buff.position() + 1];
+    buff.get(encoded);
+    return decode(encoded, 0, encoded.length - 1, order);
+  }
+
+  //
+  // Helpers for decoding the shifted, masked UTF-8 encoding in a single pass,
+  // straight into a char[] sized to the encoded value.
+  //
+
+  private static final String UNTERMINATED = "Encoded value is not terminated.";
+
+  /**
+   * Locate the termination byte within the slice
+   * <code>[offset, offset + length)</code> of <code>bytes</code>.
+   */
+  private static int indexOfTerm(byte[] bytes, int offset, int length, Order order) {
+    final byte t = mask(order, TERM);
+    for (int i = offset, end = offset + length; i < end; i++) {
+      if (bytes[i] == t) return i;
+    }
+    throw new IllegalArgumentException(UNTERMINATED);
+  }
+
+  /**
+   * Remove the sort-order mask and shift from an encoded byte, recovering the
+   * unsigned UTF-8 byte. Bytes that can't be produced by the encoder, such as
+   * an embedded NULL, become negative.
+   */
+  private static int decodeByte(byte b, byte mask) {
+    return ((b ^ mask) & 0xFF) - 2;
+  }
+
+  private static int continuation(byte[] bytes, int i, int end, byte mask) {
+    int b = i < end ? decodeByte(bytes[i], mask) : -1;
+    if ((b & 0xC0) != 0x80) throw malformed(bytes, i);
+    return b & 0x3F;
+  }
+
+  private static IllegalArgumentException malformed(byte[] bytes, int i) {
+    return new IllegalArgumentException("Malformed UTF-8 at byte " + i + ": "
+        + (i < bytes.length ? toBinaryString(bytes[i]) : "<end of input>"));
+  }
+
+  /**
+   * Decode the value in <code>[from, term)</code>, where <code>term</code> is
+   * the index of its termination byte.
+   */
+  static String decode(byte[] bytes, int from, int term, Order order) {
+    if (term == from) return "";
+    if (term == from + 1 && mask(order, bytes[from]) == NULL) return null;
+    return decodeUtf8(bytes, from, term, order.mask());
+  }
+
+  /**
+   * Decode the UTF-8 sequence in <code>[from, to)</code>.
+   */
+  private static String decodeUtf8(byte[] bytes, int from, int to, byte m) {
+    // a UTF-8 sequence never decodes to more chars than it has bytes.
+    char[] chars = new char[to - from];
+    int n = 0;
+    int i = from;
+
+    // ASCII fast path
+    for (int b; i < to && (b = decodeByte(bytes[i], m)) >= 0 && b < 0x80; i++) {
+      chars[n++] = (char) b;
+    }
+
+    while (i < to) {
+      int b = decodeByte(bytes[i], m);
+      if (b >= 0 && b < 0x80) {
+        chars[n++] = (char) b;
+        i += 1;
+      } else if ((b & 0xE0) == 0xC0) {
+        int c = ((b & 0x1F) << 6) | continuation(bytes, i + 1, to, m);
+        if (c < 0x80) throw malformed(bytes, i);
+        chars[n++] = (char) c;
+        i += 2;
+      } else if ((b & 0xF0) == 0xE0) {
+        int c = ((b & 0x0F) << 12)
+            | (continuation(bytes, i + 1, to, m) << 6)
+            | continuation(bytes, i + 2, to, m);
+        if (c < 0x800 || (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE))
+          throw malformed(bytes, i);
+        chars[n++] = (char) c;
+        i += 3;
+      } else if ((b & 0xF8) == 0xF0) {
+        int cp = ((b & 0x07) << 18)
+            | (continuation(bytes, i + 1, to, m) << 12)
+            | (continuation(bytes, i + 2, to, m) << 6)
+            | continuation(bytes, i + 3, to, m);
+        if (cp < Character.MIN_SUPPLEMENTARY_CODE_POINT || cp > Character.MAX_CODE_POINT)
+          throw malformed(bytes, i);
+        n += Character.toChars(cp, chars, n);
+        i += 4;
+      } else {
+        throw malformed(bytes, i);
+      }
+    }
+    return new String(chars, 0, n);
   }
 }
@@ -5,40 +5,374 @@ import java.math.BigInteger;
 import java.nio.ByteBuffer;
 
 import util.HSerializer;
+import util.LongSerializer;
 
-public class VARINT extends HSerializer<BigInteger> {
+/**
+ * Serializer for arbitrary precision integer values.
+ * <p>
+ * Values are encoded as a single header byte, followed by zero or more
+ * big-endian magnitude bytes. The header encodes the sign and the number of
+ * magnitude bytes, so values of greater magnitude sort beyond values of
+ * lesser magnitude before any magnitude byte is compared. Magnitude bytes of
+ * negative values are logically inverted. Headers are allocated as follows:
+ * </p>
+ * <table>
+ * <tr><th>header</th><th>meaning</th></tr>
+ * <tr><td>0x00</td><td>NULL</td></tr>
+ * <tr><td>0x01</td><td>negative, 4-byte inverted length, &gt; 62 bytes</td></tr>
+ * <tr><td>0x02 - 0x3F</td><td>negative, <code>0x40 - header</code> bytes</td></tr>
+ * <tr><td>0x41 - 0xBF</td><td>inline value <code>header - 0x80</code>, -63 to 63</td></tr>
+ * <tr><td>0xC1 - 0xFE</td><td>positive, <code>header - 0xC0</code> bytes</td></tr>
+ * <tr><td>0xFF</td><td>positive, 4-byte length, &gt; 62 bytes</td></tr>
+ * </table>
+ * <p>
+ * Small values thus occupy a single byte and any <code>long</code> at most
+ * 9. Values within the range of a <code>long</code> are encoded and decoded
+ * without constructing a <code>BigInteger</code>; see
+ * {@link LongSerializer}. For DESCENDING sort order, the encoded value is
+ * logically inverted.
+ * </p>
+ */
+public class VARINT extends HSerializer<BigInteger> implements LongSerializer {
+
+  static final byte NULL = 0x00;
+  static final int NEG_LARGE = 0x01;
+  static final int NEG_SMALL = 0x40;
+  static final int ZERO = 0x80;
+  static final int POS_SMALL = 0xC0;
+  static final int POS_LARGE = 0xFF;
+
+  /** Largest magnitude stored in the header itself. */
+  static final int MAX_INLINE = 0x3F;
+  /** Largest number of magnitude bytes described by the header alone. */
+  static final int MAX_SMALL = 0x3E;
+
+  static final int SIZEOF_LONG = Long.SIZE / Byte.SIZE;
+  static final int SIZEOF_LENGTH = Integer.SIZE / Byte.SIZE;
 
   public VARINT() { super(); }
   public VARINT(Order order) { super(order); }
 
   @Override
-  public boolean supportsNull() {
-    // TODO
-    throw new RuntimeException("Not yet implemented.");
-  }
+  public boolean supportsNull() { return true; }
 
   @Override
   public byte[] toBytes(BigInteger val) {
-    // TODO
-    throw new RuntimeException("Not yet implemented.");
+    return toBytes(val, order);
   }
 
   @Override
   public void write(ByteBuffer buff, BigInteger val) {
-    // TODO
-    throw new RuntimeException("Not yet implemented.");
+    putBytes(buff, val, order);
   }
 
   @Override
   public BigInteger fromBytes(byte[] bytes) {
-    // TODO
-    throw new RuntimeException("Not yet implemented.");
+    return toBigInteger(bytes, 0, order);
   }
 
   @Override
   public BigInteger read(ByteBuffer buff) {
-    // TODO
-    throw new RuntimeException("Not yet implemented.");
+    return toBigInteger(buff, order);
+  }
+
+  @Override
+  public int skip(ByteBuffer buff) {
+    int len = length(buff, buff.position(), order.mask());
+    buff.position(buff.position() + len);
+    return len;
+  }
+
+  @Override
+  public int skip(byte[] bytes, int offset) {
+    return length(bytes, offset, order.mask());
+  }
+
+  @Override
+  public int encodedLength(BigInteger val) {
+    if (null == val) return 1;
+    if (fitsLong(val)) return encodedLength(val.longValue());
+    int len = magnitudeLength(val);
+    return 1 + (len > MAX_SMALL ? SIZEOF_LENGTH : 0) + len;
+  }
+
+  @Override
+  public int encodeLong(long val, byte[] dst, int offset) {
+    return putLong(dst, offset, val, order.mask());
+  }
+
+  @Override
+  public void encodeLong(long val, ByteBuffer buff) {
+    putBytes(buff, val, order);
+  }
+
+  @Override
+  public long decodeLong(byte[] src, int offset) {
+    return toLong(src, offset, order);
+  }
+
+  @Override
+  public long decodeLong(ByteBuffer buff) {
+    return toLong(buff, order);
+  }
+
+  //
+  // Helper methods to mimic {@link Bytes}
+  //
+
+  /**
+   * The number of bytes required to encode <code>val</code>.
+   */
+  public static int encodedLength(long val) {
+    if (-MAX_INLINE <= val && val <= MAX_INLINE) return 1;
+    return 1 + magnitudeLength(val < 0 ? -val : val);
+  }
+
+  public static byte[] toBytes(long val, Order order) {
+    byte[] ret = new byte[encodedLength(val)];
+    putLong(ret, 0, val, order.mask());
+    return ret;
+  }
+
+  public static byte[] toBytes(BigInteger val, Order order) {
+    if (null == val) return new byte[] { (byte) (NULL ^ order.mask()) };
+    if (fitsLong(val)) return toBytes(val.longValue(), order);
+    byte[] mag = val.abs().toByteArray();
+    int from = mag[0] == 0 ? 1 : 0, len = mag.length - from;
+    byte[] ret = new byte[1 + (len > MAX_SMALL ? SIZEOF_LENGTH : 0) + len];
+    putBig(ByteBuffer.wrap(ret), val.signum() < 0, mag, from, len, order.mask());
+    return ret;
   }
 
+  public static void putBytes(ByteBuffer buff, long val, Order order) {
+    if (buff.hasArray()) {
+      int pos = buff.position();
+      assert buff.limit() >= pos + encodedLength(val);
+      buff.position(pos + putLong(buff.array(), buff.arrayOffset() + pos, val, order.mask()));
+      return;
+    }
+
+    byte mask = order.mask();
+    if (-MAX_INLINE <= val && val <= MAX_INLINE) {
+      buff.put((byte) ((ZERO + val) ^ mask));
+      return;
+    }
+    boolean neg = val < 0;
+    long mag = neg ? -val : val;
+    int len = magnitudeLength(mag);
+    buff.put((byte) ((neg ? NEG_SMALL - len : POS_SMALL + len) ^ mask));
+    byte m = neg ? (byte) ~mask : mask;
+    for (int shift = (len - 1) * Byte.SIZE; shift >= 0; shift -= Byte.SIZE) {
+      buff.put((byte) ((mag >>> shift) ^ m));
+    }
+  }
+
+  public static void putBytes(ByteBuffer buff, BigInteger val, Order order) {
+    if (null == val) {
+      buff.put((byte) (NULL ^ order.mask()));
+    } else if (fitsLong(val)) {
+      putBytes(buff, val.longValue(), order);
+    } else {
+      byte[] mag = val.abs().toByteArray();
+      int from = mag[0] == 0 ? 1 : 0;
+      putBig(buff, val.signum() < 0, mag, from, mag.length - from, order.mask());
+    }
+  }
+
+  public static long toLong(byte[] bytes, int offset, Order order) {
+    byte mask = order.mask();
+    int h = (bytes[offset] ^ mask) & 0xFF;
+    if (isInline(h)) return h - ZERO;
+    boolean neg = h < ZERO;
+    int len = longLength(h);
+    byte m = neg ? (byte) ~mask : mask;
+    long mag = 0;
+    for (int i = offset + 1; i <= offset + len; i++) {
+      mag = (mag << Byte.SIZE) | ((bytes[i] ^ m) & 0xFF);
+    }
+    return toLong(neg, mag);
+  }
+
+  public static long toLong(ByteBuffer buff, Order order) {
+    if (buff.hasArray()) {
+      int pos = buff.position();
+      long ret = toLong(buff.array(), buff.arrayOffset() + pos, order);
+      buff.position(pos + length(buff, pos, order.mask()));
+      return ret;
+    }
+
+    byte mask = order.mask();
+    int h = (buff.get() ^ mask) & 0xFF;
+    if (isInline(h)) return h - ZERO;
+    boolean neg = h < ZERO;
+    int len = longLength(h);
+    byte m = neg ? (byte) ~mask : mask;
+    long mag = 0;
+    for (int i = 0; i < len; i++) {
+      mag = (mag << Byte.SIZE) | ((buff.get() ^ m) & 0xFF);
+    }
+    return toLong(neg, mag);
+  }
+
+  public static BigInteger toBigInteger(byte[] bytes, int offset, Order order) {
+    ByteBuffer buff = ByteBuffer.wrap(bytes);
+    buff.position(offset);
+    return toBigInteger(buff, order);
+  }
+
+  public static BigInteger toBigInteger(ByteBuffer buff, Order order) {
+    byte mask = order.mask();
+    int h = (buff.get(buff.position()) ^ mask) & 0xFF;
+    if (h == NULL) {
+      buff.get();
+      return null;
+    }
+    if (isInline(h) || smallLength(h) < SIZEOF_LONG) {
+      return BigInteger.valueOf(toLong(buff, order));
+    }
+
+    buff.get();
+    boolean neg = h < ZERO;
+    byte m = neg ? (byte) ~mask : mask;
+    int len;
+    if (h == NEG_LARGE || h == POS_LARGE) {
+      len = 0;
+      for (int i = 0; i < SIZEOF_LENGTH; i++) {
+        len = (len << Byte.SIZE) | ((buff.get() ^ m) & 0xFF);
+      }
+    } else {
+      len = smallLength(h);
+    }
+    byte[] mag = new byte[len];
+    buff.get(mag);
+    for (int i = 0; i < len; i++) {
+      mag[i] ^= m;
+    }
+    return new BigInteger(neg ? -1 : 1, mag);
+  }
+
+  //
+  // Encoding helpers.
+  //
+
+  private static boolean fitsLong(BigInteger val) {
+    return val.bitLength() < Long.SIZE;
+  }
+
+  private static boolean isInline(int h) {
+    return ZERO - MAX_INLINE <= h && h <= ZERO + MAX_INLINE;
+  }
+
+  /**
+   * Number of magnitude bytes described by a header other than NULL, inline
+   * or large.
+   */
+  private static int smallLength(int h) {
+    return h < ZERO ? NEG_SMALL - h : h - POS_SMALL;
+  }
+
+  /**
+   * Number of magnitude bytes following header <code>h</code>, asserting the
+   * value could be decoded as a <code>long</code>.
+   */
+  private static int longLength(int h) {
+    if (h == NULL) throw new IllegalArgumentException("Cannot decode a null VARINT as a long.");
+    int len = smallLength(h);
+    if (h == NEG_LARGE || h == POS_LARGE || len > SIZEOF_LONG) throw overflow();
+    return len;
+  }
+
+  private static long toLong(boolean neg, long mag) {
+    // mag is unsigned; only Long.MIN_VALUE's magnitude exceeds MAX_VALUE.
+    if (mag < 0 && !(neg && mag == Long.MIN_VALUE)) throw overflow();
+    return neg ? -mag : mag;
+  }
+
+  private static IllegalArgumentException overflow() {
+    return new IllegalArgumentException("VARINT value does not fit in a long.");
+  }
+
+  /**
+   * Number of significant bytes in the unsigned value <code>mag</code>.
+   */
+  private static int magnitudeLength(long mag) {
+    return SIZEOF_LONG - (Long.numberOfLeadingZeros(mag) >>> 3);
+  }
+
+  private static int magnitudeLength(BigInteger val) {
+    return (val.abs().bitLength() + Byte.SIZE - 1) / Byte.SIZE;
+  }
+
+  /**
+   * Write <code>val</code> into <code>dst</code> at <code>offset</code>.
+   * @return the number of bytes written.
+   */
+  private static int putLong(byte[] dst, int offset, long val, byte mask) {
+    if (-MAX_INLINE <= val && val <= MAX_INLINE) {
+      dst[offset] = (byte) ((ZERO + val) ^ mask);
+      return 1;
+    }
+    boolean neg = val < 0;
+    long mag = neg ? -val : val;
+    int len = magnitudeLength(mag);
+    dst[offset] = (byte) ((neg ? NEG_SMALL - len : POS_SMALL + len) ^ mask);
+    byte m = neg ? (byte) ~mask : mask;
+    for (int i = offset + len; i > offset; i--) {
+      dst[i] = (byte) (mag ^ m);
+      mag >>>= Byte.SIZE;
+    }
+    return len + 1;
+  }
+
+  /**
+   * Write a value outside the range of a <code>long</code> from its
+   * magnitude, <code>mag[from, from + len)</code>.
+   */
+  private static void putBig(ByteBuffer buff, boolean neg, byte[] mag, int from, int len,
+      byte mask) {
+    byte m = neg ? (byte) ~mask : mask;
+    if (len > MAX_SMALL) {
+      buff.put((byte) ((neg ? NEG_LARGE : POS_LARGE) ^ mask));
+      for (int shift = SIZEOF_LENGTH - 1; shift >= 0; shift--) {
+        buff.put((byte) ((len >>> (shift * Byte.SIZE)) ^ m));
+      }
+    } else {
+      buff.put((byte) ((neg ? NEG_SMALL - len : POS_SMALL + len) ^ mask));
+    }
+    for (int i = from; i < from + len; i++) {
+      buff.put((byte) (mag[i] ^ m));
+    }
+  }
+
+  /**
+   * Total encoded length of the value at absolute position <code>pos</code>
+   * in <code>buff</code>.
+   */
+  private static int length(ByteBuffer buff, int pos, byte mask) {
+    int h = (buff.get(pos) ^ mask) & 0xFF;
+    if (h == NULL || isInline(h)) return 1;
+    if (h != NEG_LARGE && h != POS_LARGE) return 1 + smallLength(h);
+    byte m = h == NEG_LARGE ? (byte) ~mask : mask;
+    int len = 0;
+    for (int i = pos + 1; i <= pos + SIZEOF_LENGTH; i++) {
+      len = (len << Byte.SIZE) | ((buff.get(i) ^ m) & 0xFF);
+    }
+    return 1 + SIZEOF_LENGTH + len;
+  }
+
+  /**
+   * Total encoded length of the value at <code>pos</code> in
+   * <code>bytes</code>.
+   */
+  private static int length(byte[] bytes, int pos, byte mask) {
+    int h = (bytes[pos] ^ mask) & 0xFF;
+    if (h == NULL || isInline(h)) return 1;
+    if (h != NEG_LARGE && h != POS_LARGE) return 1 + smallLength(h);
+    byte m = h == NEG_LARGE ? (byte) ~mask : mask;
+    int len = 0;
+    for (int i = pos + 1; i <= pos + SIZEOF_LENGTH; i++) {
+      len = (len << Byte.SIZE) | ((bytes[i] ^ m) & 0xFF);
+    }
+    return 1 + SIZEOF_LENGTH + len;
+  }
 }
@@ -0,0 +1,526 @@
+package util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Sorts large volumes of encoded keys in bounded memory, for example ahead
+ * of a bulk load.
+ * <p>
+ * Keys are accumulated into in-memory runs held in a single byte array per
+ * run, with no per-key objects. A full run is handed to a worker thread,
+ * sorted with an MSD radix sort (possible because encoded keys order as
+ * their unsigned bytes) and spilled to a memory-mapped temporary file, while
+ * the caller fills the next run. At most <code>threads + 1</code> runs are
+ * held in memory at once; {@link #add(byte[])} blocks while every run is in
+ * flight.
+ * </p>
+ * <p>
+ * Once {@link #finish()} is called, {@link #merge(int)} partitions the key
+ * space at split keys sampled from the runs and returns one k-way merge per
+ * partition. The partitions are disjoint and ordered, so they may be
+ * consumed concurrently, one thread each, or concatenated for a single
+ * sorted stream.
+ * </p>
+ * <p>
+ * The caller's thread is the only one that may call {@link #add(byte[])}.
+ * </p>
+ */
+public class ExternalKeySorter implements Closeable {
+
+  /**
+   * Bytes of bookkeeping per key slot: its offset and its entries in the two
+   * sort index arrays, all allocated at the same capacity.
+   */
+  static final int RECORD_OVERHEAD = 12;
+
+  /** The key slots a run starts with, or returns to when emptied to fit. */
+  static final int INITIAL_KEYS = 16;
+
+  /** Every run keeps one of this many keys in memory to locate splits. */
+  static final int SAMPLE_INTERVAL = 256;
+
+  /** Partitions smaller than this are insertion sorted. */
+  static final int INSERTION_THRESHOLD = 24;
+
+  private final File dir;
+  private final long runBytes;
+  private final ExecutorService pool;
+  private final BlockingQueue<Run> free;
+  private final List<Run> runs = new ArrayList<Run>();
+  private final List<Future<Spill>> pending = new ArrayList<Future<Spill>>();
+  private final List<Spill> spills = new ArrayList<Spill>();
+  private Run current;
+  private boolean finished;
+  private long count;
+
+  /**
+   * Sort using every available processor.
+   * @see #ExternalKeySorter(File, long, int)
+   */
+  public ExternalKeySorter(File dir, long memory) {
+    this(dir, memory, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * @param dir the directory to hold spilled runs, or null for the default
+   *          temporary directory.
+   * @param memory the number of bytes that in-memory runs may occupy.
+   * @param threads the number of runs sorted and spilled concurrently.
+   */
+  public ExternalKeySorter(File dir, long memory, int threads) {
+    if (threads < 1) throw new IllegalArgumentException("threads must be positive.");
+    this.dir = dir;
+    // a single run is addressed by int offsets, and mapped in one piece.
+    this.runBytes = Math.min(memory / (threads + 1), Integer.MAX_VALUE - 8);
+    if (runBytes < 1024) throw new IllegalArgumentException("Memory budget too small.");
+    this.pool = Executors.newFixedThreadPool(threads);
+    this.free = new ArrayBlockingQueue<Run>(threads + 1);
+    for (int i = 0; i <= threads; i++) runs.add(new Run());
+    free.addAll(runs);
+  }
+
+  /**
+   * Add a key to be sorted. <code>key</code> is copied.
+   */
+  public void add(byte[] key) throws IOException {
+    add(key, 0, key.length);
+  }
+
+  /**
+   * Add the key held in <code>key[offset, offset + length)</code>.
+   */
+  public void add(byte[] key, int offset, int length) throws IOException {
+    if (finished) throw new IllegalStateException("Already finished.");
+    if (length + (long) RECORD_OVERHEAD * INITIAL_KEYS > runBytes)
+      throw new IllegalArgumentException("Key of " + length + " bytes exceeds a run.");
+    if (null == current) current = take();
+    if (!current.reserve(length)) {
+      submit(current);
+      current = take();
+      current.reserve(length);
+    }
+    current.add(key, offset, length);
+    count++;
+  }
+
+  /**
+   * The number of keys added.
+   */
+  public long size() { return count; }
+
+  /**
+   * The number of bytes allocated by the in-memory runs, which never exceeds
+   * the memory budget.
+   */
+  public long memoryUsed() {
+    long ret = 0;
+    for (Run r : runs) ret += r.footprint();
+    return ret;
+  }
+
+  /**
+   * Sort and spill the remaining keys and wait for every run to be written.
+   */
+  public void finish() throws IOException {
+    if (finished) return;
+    finished = true;
+    if (null != current && current.n > 0) submit(current);
+    current = null;
+    for (Future<Spill> f : pending) spills.add(get(f));
+    pending.clear();
+  }
+
+  /**
+   * A single iterator over every key, in sorted order.
+   */
+  public Iterator<byte[]> iterator() throws IOException {
+    return merge(1).get(0);
+  }
+
+  /**
+   * Partition the sorted keys into at most <code>partitions</code> disjoint
+   * ranges of similar size, each merged independently. Concatenated in
+   * order, they yield every key in sorted order. Each iterator must be
+   * consumed by a single thread.
+   */
+  public List<Iterator<byte[]>> merge(int partitions) throws IOException {
+    if (!finished) finish();
+    List<byte[]> splits = splits(partitions);
+    List<Iterator<byte[]>> ret = new ArrayList<Iterator<byte[]>>(splits.size() + 1);
+    for (int p = 0; p <= splits.size(); p++) {
+      byte[] lower = p == 0 ? null : splits.get(p - 1);
+      byte[] upper = p == splits.size() ? null : splits.get(p);
+      List<Cursor> cursors = new ArrayList<Cursor>(spills.size());
+      for (Spill s : spills) cursors.add(s.cursor(lower, upper));
+      ret.add(new Merge(cursors));
+    }
+    return ret;
+  }
+
+  /**
+   * Choose up to <code>partitions - 1</code> distinct split keys at even
+   * intervals over the runs' samples.
+   */
+  private List<byte[]> splits(int partitions) {
+    List<byte[]> samples = new ArrayList<byte[]>();
+    for (Spill s : spills) samples.addAll(s.sampleKeys);
+    Collections.sort(samples, HSerializer.BYTES_COMPARATOR);
+    List<byte[]> ret = new ArrayList<byte[]>();
+    for (int p = 1; p < partitions && !samples.isEmpty(); p++) {
+      byte[] split = samples.get((int) ((long) p * samples.size() / partitions));
+      if (ret.isEmpty() || HSerializer.compare(ret.get(ret.size() - 1), split) < 0) ret.add(split);
+    }
+    // a split equal to the smallest key would leave the first range empty.
+    if (!ret.isEmpty() && HSerializer.compare(ret.get(0), samples.get(0)) == 0) ret.remove(0);
+    return ret;
+  }
+
+  /**
+   * Stop the worker threads and delete the spilled runs.
+   */
+  @Override
+  public void close() {
+    pool.shutdownNow();
+    for (Spill s : spills) s.file.delete();
+    for (Future<Spill> f : pending) {
+      if (f.cancel(true)) continue;
+      try {
+        f.get().file.delete();
+      } catch (Exception e) {
+        // the run was never written.
+      }
+    }
+    spills.clear();
+    pending.clear();
+  }
+
+  private Run take() throws IOException {
+    try {
+      return free.take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted waiting for a free run.");
+    }
+  }
+
+  private void submit(final Run run) {
+    pending.add(pool.submit(new Callable<Spill>() {
+      @Override
+      public Spill call() throws IOException {
+        try {
+          run.sort();
+          return run.spill(File.createTempFile("keysort", ".run", dir));
+        } finally {
+          run.clear();
+          free.add(run);
+        }
+      }
+    }));
+  }
+
+  private static Spill get(Future<Spill> f) throws IOException {
+    try {
+      return f.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted waiting for a run to spill.");
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+      throw new RuntimeException(e.getCause());
+    }
+  }
+
+  /**
+   * An in-memory run: keys packed end to end in <code>bytes</code>, key
+   * <code>i</code> occupying <code>[offsets[i], offsets[i + 1])</code>.
+   */
+  private class Run {
+    byte[] bytes = new byte[(int) Math.min(runBytes - (long) RECORD_OVERHEAD * INITIAL_KEYS, 1 << 16)];
+    int[] offsets = new int[INITIAL_KEYS];
+    int[] idx = new int[INITIAL_KEYS];
+    int[] aux = new int[INITIAL_KEYS];
+    int[][] counts = new int[0][];
+    int n;
+
+    /**
+     * Bytes allocated by the key and bookkeeping arrays, at their
+     * capacities. Kept within <code>runBytes</code>.
+     */
+    long footprint() {
+      return bytes.length + (long) RECORD_OVERHEAD * offsets.length;
+    }
+
+    /**
+     * Grow the arrays, within the budget, to hold another key of
+     * <code>length</code> bytes.
+     * @return false when the key does not fit.
+     */
+    boolean reserve(int length) {
+      long end = offsets[n] + (long) length;
+      long data = Math.max(bytes.length, end);
+      long keys = offsets.length;
+      if (n + 2 > keys) keys = Math.max(n + 2, Math.min(keys << 1, (runBytes - data) / RECORD_OVERHEAD));
+      if (end > bytes.length)
+        data = Math.max(end, Math.min(2L * bytes.length, runBytes - RECORD_OVERHEAD * keys));
+      if (data + RECORD_OVERHEAD * keys > runBytes) {
+        if (n > 0 || offsets.length == INITIAL_KEYS) return false;
+        // empty; give back key slots retained from runs of smaller keys.
+        offsets = new int[INITIAL_KEYS];
+        idx = new int[INITIAL_KEYS];
+        aux = new int[INITIAL_KEYS];
+        return reserve(length);
+      }
+      if (data > bytes.length) bytes = Arrays.copyOf(bytes, (int) data);
+      if (keys > offsets.length) {
+        offsets = Arrays.copyOf(offsets, (int) keys);
+        idx = new int[(int) keys];
+        aux = new int[(int) keys];
+      }
+      return true;
+    }
+
+    /**
+     * Append a key, for which room has been reserved.
+     */
+    void add(byte[] key, int offset, int length) {
+      int end = offsets[n] + length;
+      System.arraycopy(key, offset, bytes, offsets[n], length);
+      offsets[n + 1] = end;
+      n++;
+    }
+
+    void clear() {
+      n = 0;
+    }
+
+    void sort() {
+      for (int i = 0; i < n; i++) idx[i] = i;
+      radixSort(0, n, 0, 0);
+    }
+
+    /**
+     * Sort <code>idx[lo, hi)</code>, whose keys share their first
+     * <code>d</code> bytes, by the bytes from <code>d</code> onwards.
+     * @param level the recursion depth, selecting a reusable count array.
+     */
+    void radixSort(int lo, int hi, int d, int level) {
+      if (level >= counts.length) counts = Arrays.copyOf(counts, level + 8);
+      if (null == counts[level]) counts[level] = new int[258];
+      int[] count = counts[level];
+      while (true) {
+        if (hi - lo < INSERTION_THRESHOLD) {
+          insertionSort(lo, hi, d);
+          return;
+        }
+        Arrays.fill(count, 0);
+        // bucket 0 holds keys exhausted at d, which sort first.
+        for (int i = lo; i < hi; i++) count[byteAt(idx[i], d) + 1]++;
+        int b = byteAt(idx[lo], d);
+        if (count[b + 1] == hi - lo) {
+          // a common byte; look further without recursing.
+          if (b == 0) return;
+          d++;
+          continue;
+        }
+        for (int i = 1; i < count.length; i++) count[i] += count[i - 1];
+        for (int i = lo; i < hi; i++) aux[lo + count[byteAt(idx[i], d)]++] = idx[i];
+        System.arraycopy(aux, lo, idx, lo, hi - lo);
+        // count[c] now holds the end of bucket c; bucket 0 is all equal.
+        for (int c = 1, start = lo + count[0]; c < 257; c++) {
+          int end = lo + count[c];
+          if (end - start > 1) radixSort(start, end, d + 1, level + 1);
+          start = end;
+        }
+        return;
+      }
+    }
+
+    /**
+     * Byte <code>d</code> of key <code>i</code> plus one, or 0 past its end.
+     */
+    private int byteAt(int i, int d) {
+      int p = offsets[i] + d;
+      return p < offsets[i + 1] ? (bytes[p] & 0xFF) + 1 : 0;
+    }
+
+    private void insertionSort(int lo, int hi, int d) {
+      for (int i = lo + 1; i < hi; i++) {
+        int k = idx[i];
+        int j = i - 1;
+        while (j >= lo && compare(idx[j], k, d) > 0) {
+          idx[j + 1] = idx[j];
+          j--;
+        }
+        idx[j + 1] = k;
+      }
+    }
+
+    private int compare(int i, int j, int d) {
+      return HSerializer.compare(bytes, offsets[i] + d, offsets[i + 1] - offsets[i] - d,
+        bytes, offsets[j] + d, offsets[j + 1] - offsets[j] - d);
+    }
+
+    /**
+     * Write the sorted keys to <code>file</code> as a 4-byte length
+     * followed by the key, sampling every {@link #SAMPLE_INTERVAL}th key.
+     */
+    Spill spill(File file) throws IOException {
+      long size = offsets[n] + 4L * n;
+      Spill ret = new Spill(file, size);
+      RandomAccessFile raf = new RandomAccessFile(file, "rw");
+      try {
+        MappedByteBuffer out = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        for (int i = 0; i < n; i++) {
+          int k = idx[i];
+          int len = offsets[k + 1] - offsets[k];
+          if (i % SAMPLE_INTERVAL == 0) {
+            ret.sampleKeys.add(Arrays.copyOfRange(bytes, offsets[k], offsets[k + 1]));
+            ret.sampleOffsets.add(out.position());
+          }
+          out.putInt(len);
+          out.put(bytes, offsets[k], len);
+        }
+        out.force();
+      } finally {
+        raf.close();
+      }
+      return ret;
+    }
+  }
+
+  /**
+   * A sorted run spilled to disk.
+   */
+  private static class Spill {
+    final File file;
+    final long size;
+    final List<byte[]> sampleKeys = new ArrayList<byte[]>();
+    final List<Integer> sampleOffsets = new ArrayList<Integer>();
+    private ByteBuffer mapped;
+
+    Spill(File file, long size) {
+      this.file = file;
+      this.size = size;
+    }
+
+    private synchronized ByteBuffer mapped() throws IOException {
+      if (null == mapped) {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+          mapped = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, size);
+        } finally {
+          raf.close();
+        }
+      }
+      return mapped;
+    }
+
+    /**
+     * A cursor over the keys in <code>[lower, upper)</code>; a null bound is
+     * unbounded.
+     */
+    Cursor cursor(byte[] lower, byte[] upper) throws IOException {
+      ByteBuffer buff = mapped().duplicate();
+      if (null != lower) {
+        // keys preceding a sample below lower are below lower too.
+        int i = Collections.binarySearch(sampleKeys, lower, HSerializer.BYTES_COMPARATOR);
+        i = i < 0 ? -i - 2 : i - 1;
+        while (i >= 0 && HSerializer.compare(sampleKeys.get(i), lower) >= 0) i--;
+        if (i >= 0) buff.position(sampleOffsets.get(i));
+      }
+      return new Cursor(buff, lower, upper);
+    }
+  }
+
+  /**
+   * Reads keys from a spilled run, in order, within a partition.
+   */
+  private static class Cursor {
+    private final ByteBuffer buff;
+    private final byte[] upper;
+    byte[] key;
+
+    Cursor(ByteBuffer buff, byte[] lower, byte[] upper) {
+      this.buff = buff;
+      this.upper = upper;
+      advance();
+      while (null != key && null != lower && HSerializer.compare(key, lower) < 0) advance();
+    }
+
+    /**
+     * Move to the next key, or set <code>key</code> to null at the end of
+     * the partition.
+     */
+    void advance() {
+      if (!buff.hasRemaining()) {
+        key = null;
+        return;
+      }
+      key = new byte[buff.getInt()];
+      buff.get(key);
+      if (null != upper && HSerializer.compare(key, upper) >= 0) key = null;
+    }
+  }
+
+  private static final Comparator<Cursor> BY_KEY = new Comparator<Cursor>() {
+    @Override
+    public int compare(Cursor left, Cursor right) {
+      return HSerializer.compare(left.key, right.key);
+    }
+  };
+
+  /**
+   * A k-way merge of cursors over the same partition.
+   */
+  private static class Merge implements Iterator<byte[]> {
+    private final PriorityQueue<Cursor> heap;
+
+    Merge(List<Cursor> cursors) {
+      heap = new PriorityQueue<Cursor>(Math.max(1, cursors.size()), BY_KEY);
+      for (Cursor c : cursors) {
+        if (null != c.key) heap.add(c);
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return !heap.isEmpty();
+    }
+
+    @Override
+    public byte[] next() {
+      Cursor c = heap.poll();
+      if (null == c) throw new NoSuchElementException();
+      byte[] ret = c.key;
+      c.advance();
+      if (null != c.key) heap.add(c);
+      return ret;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
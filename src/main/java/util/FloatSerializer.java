@@ -0,0 +1,32 @@
+package util;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Implemented by {@link HSerializer}s able to encode and decode
+ * <code>float</code> values without boxing. Encoding respects the
+ * serializer's <code>Order</code>.
+ */
+public interface FloatSerializer {
+
+  /**
+   * Write <code>val</code> into <code>dst</code> at <code>offset</code>.
+   * @return the number of bytes written.
+   */
+  int encodeFloat(float val, byte[] dst, int offset);
+
+  /**
+   * Write <code>val</code> into <code>buff</code> at its position.
+   */
+  void encodeFloat(float val, ByteBuffer buff);
+
+  /**
+   * Read the value encoded in <code>src</code> at <code>offset</code>.
+   */
+  float decodeFloat(byte[] src, int offset);
+
+  /**
+   * Read the value encoded in <code>buff</code> at its position.
+   */
+  float decodeFloat(ByteBuffer buff);
+}
@@ -3,8 +3,6 @@ package util;
 import java.nio.ByteBuffer;
 import java.util.Comparator;
 
-import org.apache.hadoop.hbase.util.Bytes;
-
 public abstract class HSerializer<T> {
 
   /**
@@ -33,13 +31,97 @@ public abstract class HSerializer<T> {
     Order(byte mask) { this.mask = mask; }
   }
 
+  /**
+   * Lexicographic, unsigned comparison of encoded values. Suitable for any
+   * encoding produced by an <code>HSerializer</code>.
+   */
+  public static final Comparator<byte[]> BYTES_COMPARATOR = new Comparator<byte[]>() {
+    @Override
+    public int compare(byte[] left, byte[] right) {
+      return HSerializer.compare(left, right);
+    }
+  };
+
   public static int compare(byte[] left, byte[] right) {
-    return Bytes.compareTo(left, right);
+    return compare(left, 0, left.length, right, 0, right.length);
   }
 
+  /**
+   * Lexicographically compare two slices as unsigned bytes, 8 bytes at a
+   * time.
+   */
   public static int compare(byte[] left, int loffset, int llen, byte[] right,
       int roffset, int rlen) {
-    return Bytes.compareTo(left, loffset, llen, right, roffset, rlen);
+    int i = mismatch(left, loffset, llen, right, roffset, rlen);
+    if (i == Math.min(llen, rlen)) return llen - rlen;
+    return (left[loffset + i] & 0xFF) - (right[roffset + i] & 0xFF);
+  }
+
+  /**
+   * Lexicographically compare the remaining bytes of two buffers as unsigned
+   * bytes, 8 bytes at a time. Neither buffer's position is modified.
+   */
+  public static int compare(ByteBuffer left, ByteBuffer right) {
+    int i = mismatch(left, right);
+    int llen = left.remaining(), rlen = right.remaining();
+    if (i == Math.min(llen, rlen)) return llen - rlen;
+    return (left.get(left.position() + i) & 0xFF) - (right.get(right.position() + i) & 0xFF);
+  }
+
+  /**
+   * Locate the first byte at which two slices differ. This is the length of
+   * their common prefix.
+   * @return the index of the first differing byte relative to the start of
+   *         each slice, or the shorter slice length when one slice is a
+   *         prefix of the other.
+   */
+  public static int mismatch(byte[] left, int loffset, int llen, byte[] right,
+      int roffset, int rlen) {
+    final int min = Math.min(llen, rlen);
+    // heap buffer word loads compile to single, unaligned reads.
+    final ByteBuffer lw = ByteBuffer.wrap(left), rw = ByteBuffer.wrap(right);
+    int i = 0;
+    for (; i + SIZEOF_WORD <= min; i += SIZEOF_WORD) {
+      long l = lw.getLong(loffset + i), r = rw.getLong(roffset + i);
+      if (l != r) return i + firstDifferingByte(l, r);
+    }
+    for (; i < min; i++) {
+      if (left[loffset + i] != right[roffset + i]) return i;
+    }
+    return min;
+  }
+
+  /**
+   * Locate the first byte at which the remaining bytes of two buffers
+   * differ. Heap and direct buffers, in any <code>ByteOrder</code>, are
+   * supported. Neither buffer's position is modified.
+   * @return the index of the first differing byte relative to each buffer's
+   *         position, or the shorter remaining length when one is a prefix of
+   *         the other.
+   */
+  public static int mismatch(ByteBuffer left, ByteBuffer right) {
+    final int lpos = left.position(), rpos = right.position();
+    final int min = Math.min(left.remaining(), right.remaining());
+    // words are only compared for equality, so byte order doesn't matter
+    // until they differ.
+    int i = 0;
+    for (; i + SIZEOF_WORD <= min; i += SIZEOF_WORD) {
+      if (left.getLong(lpos + i) != right.getLong(rpos + i)) break;
+    }
+    for (; i < min; i++) {
+      if (left.get(lpos + i) != right.get(rpos + i)) return i;
+    }
+    return min;
+  }
+
+  protected static final int SIZEOF_WORD = Long.SIZE / Byte.SIZE;
+
+  /**
+   * Index of the most significant differing byte of two unequal big-endian
+   * words.
+   */
+  private static int firstDifferingByte(long l, long r) {
+    return Long.numberOfLeadingZeros(l ^ r) >>> 3;
   }
 
   /**
@@ -123,4 +205,28 @@ public abstract class HSerializer<T> {
   public abstract T fromBytes(byte[] bytes);
   public abstract void write(ByteBuffer buff, T val);
   public abstract T read(ByteBuffer buff);
+
+  /**
+   * Advance <code>buff</code> past one encoded value without decoding it.
+   * @return the number of bytes skipped.
+   */
+  public abstract int skip(ByteBuffer buff);
+
+  /**
+   * Locate the end of the encoded value starting at <code>offset</code>
+   * without decoding it.
+   * @return the number of bytes occupied by the encoded value.
+   */
+  public abstract int skip(byte[] bytes, int offset);
+
+  /**
+   * The number of bytes required to encode <code>val</code>.
+   */
+  public abstract int encodedLength(T val);
+
+  /**
+   * The number of bytes every encoded value occupies, null included, or -1
+   * when the encoded width varies with the value.
+   */
+  public int encodedWidth() { return -1; }
 }
@@ -0,0 +1,143 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.util.Bytes;
+
+/**
+ * A contiguous range of encoded row keys, <code>[start, stop)</code>. Either
+ * bound may be empty, meaning unbounded, following the HBase convention for
+ * scan start and stop rows.
+ */
+public class KeyRange {
+
+  private static final byte[] EMPTY = new byte[0];
+
+  /** The range spanning every key. */
+  public static final KeyRange ALL = new KeyRange(EMPTY, EMPTY);
+
+  /**
+   * Orders ranges by their start key.
+   */
+  public static final Comparator<KeyRange> BY_START = new Comparator<KeyRange>() {
+    @Override
+    public int compare(KeyRange left, KeyRange right) {
+      return HSerializer.compare(left.start, right.start);
+    }
+  };
+
+  private final byte[] start;
+  private final byte[] stop;
+
+  /**
+   * @param start the first key in the range, inclusive, or empty.
+   * @param stop the key following the range, exclusive, or empty.
+   */
+  public KeyRange(byte[] start, byte[] stop) {
+    if (null == start || null == stop) throw new NullPointerException("Use empty bounds, not null.");
+    this.start = start;
+    this.stop = stop;
+  }
+
+  /**
+   * The range of keys beginning with <code>prefix</code>.
+   */
+  public static KeyRange prefix(byte[] prefix) {
+    return new KeyRange(prefix, prefixSuccessor(prefix));
+  }
+
+  /**
+   * The smallest key greater than every key beginning with
+   * <code>prefix</code>: trailing <code>0xFF</code> bytes are dropped and the
+   * last remaining byte incremented. Returns the empty, unbounded key when
+   * no such key exists.
+   */
+  public static byte[] prefixSuccessor(byte[] prefix) {
+    int i = prefix.length - 1;
+    while (i >= 0 && prefix[i] == (byte) 0xFF) i--;
+    if (i < 0) return EMPTY;
+    byte[] ret = Arrays.copyOf(prefix, i + 1);
+    ret[i]++;
+    return ret;
+  }
+
+  /**
+   * Sort <code>ranges</code> and coalesce those that overlap or abut,
+   * dropping empty ranges.
+   * @return the minimal sorted list of disjoint ranges covering the same keys.
+   */
+  public static List<KeyRange> normalize(Collection<KeyRange> ranges) {
+    List<KeyRange> sorted = new ArrayList<KeyRange>(ranges.size());
+    for (KeyRange r : ranges) {
+      if (!r.isEmpty()) sorted.add(r);
+    }
+    Collections.sort(sorted, BY_START);
+
+    List<KeyRange> ret = new ArrayList<KeyRange>(sorted.size());
+    KeyRange cur = null;
+    for (KeyRange r : sorted) {
+      if (null == cur) {
+        cur = r;
+      } else if (cur.stop.length == 0) {
+        // cur is unbounded above and covers every range that follows.
+      } else if (HSerializer.compare(r.start, cur.stop) <= 0) {
+        // overlapping or adjacent; extend cur to the later stop.
+        if (r.stop.length == 0 || HSerializer.compare(r.stop, cur.stop) > 0)
+          cur = new KeyRange(cur.start, r.stop);
+      } else {
+        ret.add(cur);
+        cur = r;
+      }
+    }
+    if (null != cur) ret.add(cur);
+    return ret;
+  }
+
+  public byte[] getStart() { return start; }
+  public byte[] getStop() { return stop; }
+
+  /**
+   * Returns true when no key falls within this range.
+   */
+  public boolean isEmpty() {
+    return stop.length > 0 && HSerializer.compare(start, stop) >= 0;
+  }
+
+  /**
+   * Returns true when <code>key</code> falls within this range.
+   */
+  public boolean contains(byte[] key) {
+    return HSerializer.compare(start, key) <= 0
+        && (stop.length == 0 || HSerializer.compare(key, stop) < 0);
+  }
+
+  /**
+   * Create a {@link Scan} over this range.
+   */
+  public Scan toScan() {
+    return new Scan(start, stop);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (!(o instanceof KeyRange)) return false;
+    KeyRange that = (KeyRange) o;
+    return Arrays.equals(start, that.start) && Arrays.equals(stop, that.stop);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * Arrays.hashCode(start) + Arrays.hashCode(stop);
+  }
+
+  @Override
+  public String toString() {
+    return "[" + Bytes.toStringBinary(start) + ", " + Bytes.toStringBinary(stop) + ")";
+  }
+}
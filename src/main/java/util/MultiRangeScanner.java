@@ -0,0 +1,77 @@
+package util;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.hadoop.hbase.client.AbstractClientScanner;
+import org.apache.hadoop.hbase.client.HTableInterface;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+
+/**
+ * A {@link ResultScanner} over a sorted list of disjoint {@link KeyRange}s.
+ * Each range is scanned in turn, so rows between ranges are seeked past on
+ * the server rather than filtered on the client. Results are returned in
+ * key order when the ranges are sorted, as produced by
+ * {@link KeyRange#normalize(java.util.Collection)}.
+ */
+public class MultiRangeScanner extends AbstractClientScanner {
+
+  private final HTableInterface table;
+  private final Scan template;
+  private final Iterator<KeyRange> ranges;
+  private ResultScanner current;
+  private boolean closed;
+
+  /**
+   * @param table the table to scan.
+   * @param template a Scan carrying the families, filters and caching to
+   *          apply to each range. Its start and stop rows are ignored.
+   * @param ranges the ranges to scan, in order.
+   */
+  public MultiRangeScanner(HTableInterface table, Scan template, List<KeyRange> ranges) {
+    this.table = table;
+    this.template = template;
+    this.ranges = new ArrayList<KeyRange>(ranges).iterator();
+  }
+
+  @Override
+  public Result next() throws IOException {
+    while (!closed) {
+      if (null == current) {
+        if (!ranges.hasNext()) break;
+        KeyRange range = ranges.next();
+        Scan scan = new Scan(template);
+        scan.setStartRow(range.getStart());
+        scan.setStopRow(range.getStop());
+        current = table.getScanner(scan);
+      }
+      Result r = current.next();
+      if (null != r) return r;
+      current.close();
+      current = null;
+    }
+    return null;
+  }
+
+  @Override
+  public Result[] next(int nbRows) throws IOException {
+    List<Result> ret = new ArrayList<Result>(nbRows);
+    for (int i = 0; i < nbRows; i++) {
+      Result r = next();
+      if (null == r) break;
+      ret.add(r);
+    }
+    return ret.toArray(new Result[ret.size()]);
+  }
+
+  @Override
+  public void close() {
+    if (null != current) current.close();
+    current = null;
+    closed = true;
+  }
+}
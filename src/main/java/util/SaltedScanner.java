@@ -0,0 +1,204 @@
+package util;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.hadoop.hbase.client.AbstractClientScanner;
+import org.apache.hadoop.hbase.client.HTableInterface;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+
+/**
+ * A {@link ResultScanner} over one logical key range of a table whose row
+ * keys are prefixed with a one-byte salt, such as those encoded by
+ * <code>types.SALTED</code>.
+ * <p>
+ * The logical range, given unsalted by the template Scan's start and stop
+ * rows, is scanned once per bucket. Batches are fetched from every bucket in
+ * parallel on the supplied executor, one batch ahead of consumption, and
+ * merged back into the order of the unsalted keys. Each fetch holds a pool
+ * thread for the duration of its blocking <code>next(batch)</code> call, so
+ * the pool size bounds the number of concurrent bucket fetches; an executor
+ * with fewer threads than buckets serializes some of them.
+ * </p>
+ */
+public class SaltedScanner extends AbstractClientScanner {
+
+  private static final int DEFAULT_BATCH = 100;
+
+  /** Orders buckets by their current row, ignoring the salt byte. */
+  private static final Comparator<Bucket> BY_ROW = new Comparator<Bucket>() {
+    @Override
+    public int compare(Bucket left, Bucket right) {
+      byte[] l = left.current().getRow(), r = right.current().getRow();
+      return HSerializer.compare(l, 1, l.length - 1, r, 1, r.length - 1);
+    }
+  };
+
+  private final ExecutorService executor;
+  private final int batch;
+  private final List<Bucket> buckets = new ArrayList<Bucket>();
+  private final PriorityQueue<Bucket> heap;
+  private boolean started;
+  private boolean closed;
+
+  /**
+   * @param table the table to scan.
+   * @param template a Scan over the logical, unsalted key range, carrying
+   *          the families, filters and caching to apply to each bucket.
+   * @param buckets the number of salt buckets.
+   * @param executor the executor on which bucket batches are fetched; size
+   *          it to <code>buckets</code> threads to fetch every bucket at once.
+   */
+  public SaltedScanner(HTableInterface table, Scan template, int buckets,
+      ExecutorService executor) throws IOException {
+    this.executor = executor;
+    this.batch = template.getCaching() > 0 ? template.getCaching() : DEFAULT_BATCH;
+    this.heap = new PriorityQueue<Bucket>(buckets, BY_ROW);
+    KeyRange logical = new KeyRange(template.getStartRow(), template.getStopRow());
+    try {
+      for (KeyRange range : bucketRanges(logical, buckets)) {
+        Scan scan = new Scan(template);
+        scan.setStartRow(range.getStart());
+        scan.setStopRow(range.getStop());
+        this.buckets.add(new Bucket(table.getScanner(scan)));
+      }
+    } catch (IOException e) {
+      close();
+      throw e;
+    }
+  }
+
+  /**
+   * The ranges of salted keys holding the unsalted keys in
+   * <code>logical</code>, one per bucket, in bucket order.
+   */
+  public static List<KeyRange> bucketRanges(KeyRange logical, int buckets) {
+    List<KeyRange> ret = new ArrayList<KeyRange>(buckets);
+    for (int b = 0; b < buckets; b++) {
+      byte[] start = salt(b, logical.getStart());
+      byte[] stop = logical.getStop().length > 0 ? salt(b, logical.getStop())
+          : b == 255 ? new byte[0] : new byte[] { (byte) (b + 1) };
+      ret.add(new KeyRange(start, stop));
+    }
+    return ret;
+  }
+
+  private static byte[] salt(int bucket, byte[] key) {
+    byte[] ret = new byte[key.length + 1];
+    ret[0] = (byte) bucket;
+    System.arraycopy(key, 0, ret, 1, key.length);
+    return ret;
+  }
+
+  @Override
+  public Result next() throws IOException {
+    if (closed) return null;
+    if (!started) {
+      started = true;
+      for (Bucket b : buckets) b.fetch();
+      for (Bucket b : buckets) {
+        if (b.advance()) heap.add(b);
+      }
+    }
+    Bucket b = heap.poll();
+    if (null == b) return null;
+    Result ret = b.current();
+    if (b.advance()) heap.add(b);
+    return ret;
+  }
+
+  @Override
+  public Result[] next(int nbRows) throws IOException {
+    List<Result> ret = new ArrayList<Result>(nbRows);
+    for (int i = 0; i < nbRows; i++) {
+      Result r = next();
+      if (null == r) break;
+      ret.add(r);
+    }
+    return ret.toArray(new Result[ret.size()]);
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    for (Bucket b : buckets) b.close();
+    heap.clear();
+  }
+
+  /**
+   * One bucket's scanner, with its current batch and the fetch of the next.
+   */
+  private class Bucket {
+    private final ResultScanner scanner;
+    private Future<Result[]> next;
+    private Result[] results = new Result[0];
+    private int i = -1;
+    private boolean exhausted;
+
+    Bucket(ResultScanner scanner) {
+      this.scanner = scanner;
+    }
+
+    Result current() {
+      return results[i];
+    }
+
+    /**
+     * Start fetching the next batch.
+     */
+    void fetch() {
+      next = executor.submit(new Callable<Result[]>() {
+        @Override
+        public Result[] call() throws IOException {
+          return scanner.next(batch);
+        }
+      });
+    }
+
+    /**
+     * Move to the next row, waiting for the pending batch as necessary.
+     * @return false when the bucket is exhausted.
+     */
+    boolean advance() throws IOException {
+      if (++i < results.length) return true;
+      if (exhausted) return false;
+      try {
+        results = next.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted waiting for a batch.");
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+        throw new IOException(e.getCause());
+      }
+      i = 0;
+      if (results.length == 0) {
+        exhausted = true;
+        return false;
+      }
+      fetch();
+      return true;
+    }
+
+    void close() {
+      // a fetch in progress must finish before its scanner is closed.
+      if (null != next && !next.cancel(false)) {
+        try {
+          next.get();
+        } catch (Exception e) {
+          // closing regardless.
+        }
+      }
+      scanner.close();
+    }
+  }
+}
@@ -0,0 +1,32 @@
+package util;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Implemented by {@link HSerializer}s able to encode and decode
+ * <code>short</code> values without boxing. Encoding respects the
+ * serializer's <code>Order</code>.
+ */
+public interface ShortSerializer {
+
+  /**
+   * Write <code>val</code> into <code>dst</code> at <code>offset</code>.
+   * @return the number of bytes written.
+   */
+  int encodeShort(short val, byte[] dst, int offset);
+
+  /**
+   * Write <code>val</code> into <code>buff</code> at its position.
+   */
+  void encodeShort(short val, ByteBuffer buff);
+
+  /**
+   * Read the value encoded in <code>src</code> at <code>offset</code>.
+   */
+  short decodeShort(byte[] src, int offset);
+
+  /**
+   * Read the value encoded in <code>buff</code> at its position.
+   */
+  short decodeShort(ByteBuffer buff);
+}
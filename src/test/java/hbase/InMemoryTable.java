@@ -0,0 +1,73 @@
+package hbase;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.AbstractClientScanner;
+import org.apache.hadoop.hbase.client.HTableInterface;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.Scan;
+
+import util.HSerializer;
+import util.KeyRange;
+
+/**
+ * An HTableInterface serving scans from a sorted, in-memory set of rows.
+ * Only <code>getScanner(Scan)</code> is supported.
+ */
+public class InMemoryTable {
+
+  private static final byte[] F = new byte[] { 'f' };
+
+  private final TreeSet<byte[]> rows = new TreeSet<byte[]>(HSerializer.BYTES_COMPARATOR);
+
+  public void add(byte[] row) {
+    rows.add(row);
+  }
+
+  public TreeSet<byte[]> rows() {
+    return rows;
+  }
+
+  public HTableInterface table() {
+    return (HTableInterface) Proxy.newProxyInstance(HTableInterface.class.getClassLoader(),
+      new Class[] { HTableInterface.class }, new InvocationHandler() {
+        @Override
+        public Object invoke(Object proxy, Method m, Object[] args) {
+          if (!"getScanner".equals(m.getName()) || !(args[0] instanceof Scan))
+            throw new UnsupportedOperationException(m.getName());
+          return scanner((Scan) args[0]);
+        }
+      });
+  }
+
+  private AbstractClientScanner scanner(Scan scan) {
+    final KeyRange range = new KeyRange(scan.getStartRow(), scan.getStopRow());
+    final Iterator<byte[]> it = rows.tailSet(range.getStart(), true).iterator();
+    return new AbstractClientScanner() {
+      @Override
+      public synchronized Result next() {
+        if (!it.hasNext()) return null;
+        byte[] row = it.next();
+        if (!range.contains(row)) return null;
+        return new Result(new KeyValue[] { new KeyValue(row, F, F, row) });
+      }
+
+      @Override
+      public Result[] next(int nbRows) {
+        List<Result> ret = new ArrayList<Result>();
+        for (Result r; ret.size() < nbRows && null != (r = next());) ret.add(r);
+        return ret.toArray(new Result[ret.size()]);
+      }
+
+      @Override
+      public void close() {}
+    };
+  }
+}
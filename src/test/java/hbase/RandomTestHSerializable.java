@@ -17,14 +17,22 @@ public abstract class RandomTestHSerializable<T> extends TestHSerializable<T> {
   protected Random r;
   protected int numTests;
 
+  /**
+   * A <code>Random</code> seeded from <code>test.random.seed</code>, or the
+   * clock. The seed is logged, so that a failure can be reproduced.
+   */
+  static Random seeded() {
+    String seed = System.getProperty("test.random.seed", "" + System.currentTimeMillis());
+    LOG.info("Using test.random.seed value: " + seed);
+    return new Random(Long.valueOf(seed));
+  }
+
   /**
    * Initialize <code>Random</code> and <code>numTests</code>.
    */
   @Before
   public void setUp() {
-    String seed = System.getProperty("test.random.seed", "" + System.currentTimeMillis());
-    LOG.info("Using test.random.seed value: " + seed);
-    r = new Random(Long.valueOf(seed));
+    r = seeded();
     numTests = Integer.valueOf(System.getProperty("test.random.count", "8192"));
     LOG.info("Using test.random.count value: " + numTests);
   }
@@ -1,6 +1,111 @@
 package hbase;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static util.HSerializer.Order.ASCENDING;
+import static util.HSerializer.Order.DESCENDING;
 
-public class TestBYTES {
+import java.nio.ByteBuffer;
+import java.util.Comparator;
 
+import org.junit.Test;
+
+import types.BYTE;
+import util.HSerializer;
+import util.HSerializer.Order;
+
+public class TestBYTES extends RandomTestHSerializable<byte[]> {
+
+  protected Comparator<byte[]> getComparator() {
+    return HSerializer.BYTES_COMPARATOR;
+  }
+
+  protected byte[] create() {
+    // bias towards the bytes involved in escaping, and occasionally exceed
+    // a few words to exercise the word-at-a-time scans.
+    byte[] ret = new byte[r.nextInt(8) == 0 ? r.nextInt(256) : r.nextInt(24)];
+    for (int i = 0; i < ret.length; i++) {
+      switch (r.nextInt(4)) {
+        case 0: ret[i] = 0x00; break;
+        case 1: ret[i] = (byte) 0xFF; break;
+        case 2: ret[i] = 0x01; break;
+        default: ret[i] = (byte) r.nextInt(); break;
+      }
+    }
+    return ret;
+  }
+
+  protected HSerializer<byte[]> ascendingSerializer() { return new BYTE(ASCENDING); }
+  protected HSerializer<byte[]> descendingSerializer() { return new BYTE(DESCENDING); }
+
+  @Test
+  public void testSerialize() {
+    assertArrayEquals(new byte[] { 0x00, 0x01 }, BYTE.toBytes(new byte[0], ASCENDING));
+    assertArrayEquals(new byte[] { 0x00, 0x00 }, BYTE.toBytes(null, ASCENDING));
+    assertArrayEquals(new byte[] { 0x05, 0x00, (byte) 0xFF, 0x07, 0x00, 0x01 },
+      BYTE.toBytes(new byte[] { 0x05, 0x00, 0x07 }, ASCENDING));
+    assertArrayEquals(new byte[] { (byte) 0xFA, (byte) 0xFF, 0x00, (byte) 0xF8, (byte) 0xFF,
+        (byte) 0xFE }, BYTE.toBytes(new byte[] { 0x05, 0x00, 0x07 }, DESCENDING));
+  }
+
+  @Test
+  public void testNull() {
+    for (Order o : Order.values()) {
+      BYTE b = new BYTE(o);
+      byte[] encoded = b.toBytes(null);
+      assertNull(b.fromBytes(encoded));
+      assertNull(b.readSlice(ByteBuffer.wrap(encoded)));
+      assertEquals(2, b.skip(encoded, 0));
+    }
+  }
+
+  @Test
+  public void testZeroCopySlice() {
+    byte[] val = new byte[100];
+    for (int i = 0; i < val.length; i++) val[i] = (byte) (i + 1);
+    BYTE b = new BYTE(ASCENDING);
+    byte[] encoded = b.toBytes(val);
+    ByteBuffer buff = ByteBuffer.wrap(encoded);
+
+    ByteBuffer slice = b.readSlice(buff);
+    assertSame(encoded, slice.array());
+    assertEquals(0, slice.arrayOffset());
+    assertEquals(val.length, slice.remaining());
+    assertEquals(encoded.length, buff.position());
+    byte[] copy = new byte[slice.remaining()];
+    slice.get(copy);
+    assertArrayEquals(val, copy);
+
+    ByteBuffer direct = ByteBuffer.allocateDirect(encoded.length);
+    direct.put(encoded).flip();
+    slice = b.readSlice(direct);
+    assertEquals(val.length, slice.remaining());
+    assertEquals(val[99], slice.get(99));
+    direct.put(99, (byte) 42);
+    assertEquals(42, slice.get(99));
+  }
+
+  @Test
+  public void testSliceDecodesEscapes() {
+    byte[] val = new byte[] { 1, 0, 2, 0, 0, 3 };
+    for (Order o : Order.values()) {
+      BYTE b = new BYTE(o);
+      ByteBuffer slice = b.readSlice(ByteBuffer.wrap(b.toBytes(val)));
+      byte[] copy = new byte[slice.remaining()];
+      slice.get(copy);
+      assertArrayEquals(val, copy);
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testDecodeUnterminated() {
+    BYTE.decode(new byte[] { 0x05, 0x06, 0x00 }, 0, ASCENDING);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testDecodeInvalidEscape() {
+    BYTE.decode(new byte[] { 0x05, 0x00, 0x02, 0x00, 0x01 }, 0, ASCENDING);
+  }
 }
@@ -1,13 +1,19 @@
 package hbase;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static util.HSerializer.Order.ASCENDING;
 import static util.HSerializer.Order.DESCENDING;
 
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Date;
 
+import org.junit.Test;
+
 import types.DATETIME;
 import util.HSerializer;
+import util.HSerializer.Order;
 
 public class TestDATETIME extends RandomTestHSerializable<Date> {
 
@@ -27,4 +33,29 @@ public class TestDATETIME extends RandomTestHSerializable<Date> {
   protected HSerializer<Date> ascendingSerializer() { return new DATETIME(ASCENDING); }
   protected HSerializer<Date> descendingSerializer() { return new DATETIME(DESCENDING); }
 
+  @Test
+  public void testBatchRoundTrip() {
+    for (Order order : Order.values()) {
+      long[] vals = new long[257];
+      for (int i = 0; i < vals.length; i++) vals[i] = create().getTime();
+
+      // a run from inside vals, at an offset inside dst.
+      int from = 1 + r.nextInt(8), len = vals.length - from - r.nextInt(8), offset = 1 + r.nextInt(8);
+      byte[] encoded = new byte[offset + len * 8 + 3];
+      assertEquals(offset + len * 8, DATETIME.putBytes(encoded, offset, vals, from, len, order));
+      assertArrayEquals(new byte[offset], Arrays.copyOfRange(encoded, 0, offset));
+      for (int i = 0; i < len; i++) {
+        assertArrayEquals(DATETIME.toBytes(vals[from + i], order),
+          Arrays.copyOfRange(encoded, offset + i * 8, offset + (i + 1) * 8));
+      }
+      assertArrayEquals(Arrays.copyOfRange(DATETIME.toBytes(vals, order), from * 8, (from + len) * 8),
+        Arrays.copyOfRange(encoded, offset, offset + len * 8));
+
+      long[] decoded = new long[vals.length];
+      assertEquals(offset + len * 8, DATETIME.toLongs(encoded, offset, decoded, from, len, order));
+      assertArrayEquals(new long[from], Arrays.copyOfRange(decoded, 0, from));
+      assertArrayEquals(Arrays.copyOfRange(vals, from, from + len),
+        Arrays.copyOfRange(decoded, from, from + len));
+    }
+  }
 }
@@ -1,15 +1,23 @@
 package hbase;
 
+import static java.lang.Integer.signum;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static util.HSerializer.compare;
 import static util.HSerializer.Order.ASCENDING;
 import static util.HSerializer.Order.DESCENDING;
 
 import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.util.Comparator;
 
 import org.junit.Test;
 
 import types.DECIMAL;
 import util.HSerializer;
+import util.HSerializer.Order;
 
 public class TestDECIMAL extends RandomTestHSerializable<BigDecimal> {
 
@@ -23,21 +31,103 @@ public class TestDECIMAL extends RandomTestHSerializable<BigDecimal> {
   }
 
   protected BigDecimal create() {
-    return new BigDecimal(r.nextLong());
+    // mostly long-sized unscaled values at money-like scales, with some wide
+    // unscaled values and exponents beyond the single header byte.
+    switch (r.nextInt(4)) {
+      case 0: return BigDecimal.valueOf(r.nextInt(20000) - 10000, r.nextInt(5));
+      case 1: return BigDecimal.valueOf(r.nextLong(), r.nextInt(41) - 20);
+      case 2: return new BigDecimal(new BigInteger(r.nextInt(400), r), r.nextInt(81) - 40)
+          .multiply(BigDecimal.valueOf(r.nextBoolean() ? 1 : -1));
+      default: return BigDecimal.valueOf(r.nextInt() | 1, r.nextInt(801) - 400);
+    }
   }
 
   protected HSerializer<BigDecimal> ascendingSerializer() { return new DECIMAL(ASCENDING); }
   protected HSerializer<BigDecimal> descendingSerializer() { return new DECIMAL(DESCENDING); }
 
   @Test
-  @Override
-  public void testHSerializable() {}
+  public void testSerialize() {
+    assertArrayEquals(new byte[] { (byte) 0x80 }, DECIMAL.toBytes(BigDecimal.ZERO, ASCENDING));
+    assertArrayEquals(new byte[] { (byte) 0xC1, 0x02 },
+      DECIMAL.toBytes(BigDecimal.ONE, ASCENDING));
+    assertArrayEquals(new byte[] { 0x3F, (byte) 0xFD },
+      DECIMAL.toBytes(BigDecimal.ONE.negate(), ASCENDING));
+    assertArrayEquals(new byte[] { (byte) 0xC1, 0x19, 0x3C },
+      DECIMAL.toBytes(new BigDecimal("12.3"), ASCENDING));
+    assertArrayEquals(new byte[] { 0x00 }, DECIMAL.toBytes(null, ASCENDING));
+    assertArrayEquals(new byte[] { (byte) 0xFF }, DECIMAL.toBytes(null, DESCENDING));
+  }
+
+  @Test
+  public void testEqualValuesShareEncoding() {
+    for (Order o : Order.values()) {
+      byte[] expected = DECIMAL.toBytes(new BigDecimal("1"), o);
+      assertArrayEquals(expected, DECIMAL.toBytes(new BigDecimal("1.0"), o));
+      assertArrayEquals(expected, DECIMAL.toBytes(new BigDecimal("1.00"), o));
+      assertArrayEquals(expected, DECIMAL.toBytes(new BigDecimal("0.1E1"), o));
+      assertArrayEquals(expected, DECIMAL.toBytes(100, 2, o));
+      assertArrayEquals(DECIMAL.toBytes(new BigDecimal("-1200"), o),
+        DECIMAL.toBytes(new BigDecimal("-12E2"), o));
+    }
+  }
 
   @Test
-  @Override
-  public void testNullAwareCompareAsc() {}
+  public void testSortAcrossHeaders() {
+    String[] vals = new String[] { "-1E+300", "-1E+124", "-9.9E+123", "-1E+123", "-12345678901234567890123",
+        "-9223372036854775808", "-100", "-12.3", "-12.2", "-1", "-0.5", "-0.05", "-1E-124",
+        "-1E-125", "0", "1E-125", "1E-124", "0.05", "0.5", "0.50000000000000000000001", "1",
+        "1.0000001", "12", "12.2", "12.3", "100", "9223372036854775807",
+        "9223372036854775808", "1E+123", "9.9E+123", "1E+124", "1E+300" };
+    for (Order o : Order.values()) {
+      DECIMAL d = new DECIMAL(o);
+      byte[][] encoded = new byte[vals.length][];
+      for (int i = 0; i < vals.length; i++) {
+        BigDecimal val = new BigDecimal(vals[i]);
+        encoded[i] = d.toBytes(val);
+        assertEquals(0, val.compareTo(d.fromBytes(encoded[i])));
+        assertEquals(encoded[i].length, d.encodedLength(val));
+        assertEquals(encoded[i].length, d.skip(encoded[i], 0));
+      }
+      for (int i = 1; i < vals.length; i++) {
+        assertEquals(vals[i - 1] + " < " + vals[i] + " in " + o,
+          o.cmp(-1), signum(compare(encoded[i - 1], encoded[i])));
+      }
+      assertNull(d.fromBytes(d.toBytes(null)));
+    }
+  }
 
   @Test
-  @Override
-  public void testNullAwareCompareDsc() {}
+  public void testUnscaledRoundTrip() {
+    long[] vals = new long[] { 0, 1, -1, 10, -10, 12345, -12345, 1000000,
+        Long.MAX_VALUE, Long.MIN_VALUE, Long.MIN_VALUE + 1 };
+    for (Order o : Order.values()) {
+      for (long val : vals) {
+        for (int scale = -3; scale <= 3; scale++) {
+          byte[] encoded = DECIMAL.toBytes(val, scale, o);
+          assertArrayEquals(DECIMAL.toBytes(BigDecimal.valueOf(val, scale), o), encoded);
+          assertEquals(encoded.length, DECIMAL.encodedLength(val, scale));
+          assertEquals(val, DECIMAL.toLong(encoded, 0, scale, o));
+
+          ByteBuffer direct = ByteBuffer.allocateDirect(encoded.length);
+          DECIMAL.putBytes(direct, val, scale, o);
+          direct.flip();
+          assertEquals(val, DECIMAL.toLong(direct, scale, o));
+          assertEquals(encoded.length, direct.position());
+        }
+      }
+      // rescaling on decode
+      assertEquals(12300, DECIMAL.toLong(DECIMAL.toBytes(123, 1, o), 0, 3, o));
+      assertEquals(-12, DECIMAL.toLong(DECIMAL.toBytes(-1200, 2, o), 0, 0, o));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnscaledPrecisionLoss() {
+    DECIMAL.toLong(DECIMAL.toBytes(125, 2, ASCENDING), 0, 1, ASCENDING);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnscaledOverflow() {
+    DECIMAL.toLong(DECIMAL.toBytes(Long.MAX_VALUE, 0, DESCENDING), 0, 1, DESCENDING);
+  }
 }
@@ -1,12 +1,18 @@
 package hbase;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static util.HSerializer.Order.ASCENDING;
 import static util.HSerializer.Order.DESCENDING;
 
+import java.util.Arrays;
 import java.util.Comparator;
 
+import org.junit.Test;
+
 import types.DOUBLE;
 import util.HSerializer;
+import util.HSerializer.Order;
 
 public class TestDOUBLE extends RandomTestHSerializable<Double> {
 
@@ -19,11 +25,43 @@ public class TestDOUBLE extends RandomTestHSerializable<Double> {
     };
   }
 
+  private static final Double[] SPECIAL = { -0.0, 0.0, Double.NaN, Double.NEGATIVE_INFINITY,
+    Double.POSITIVE_INFINITY, Double.MIN_VALUE, -Double.MIN_VALUE, Double.MAX_VALUE, -Double.MAX_VALUE };
+
+  /**
+   * Any bit pattern, including negatives and NaN payloads, with the special
+   * values mixed in.
+   */
   protected Double create() {
-    return r.nextDouble();
+    if (r.nextInt(8) == 0) return SPECIAL[r.nextInt(SPECIAL.length)];
+    return Double.longBitsToDouble(r.nextLong());
   }
 
   protected HSerializer<Double> ascendingSerializer() { return new DOUBLE(ASCENDING); }
   protected HSerializer<Double> descendingSerializer() { return new DOUBLE(DESCENDING); }
 
+  @Test
+  public void testBatchRoundTrip() {
+    for (Order order : Order.values()) {
+      double[] vals = new double[257];
+      for (int i = 0; i < vals.length; i++) vals[i] = create();
+
+      // a run from inside vals, at an offset inside dst.
+      int from = 1 + r.nextInt(8), len = vals.length - from - r.nextInt(8), offset = 1 + r.nextInt(8);
+      byte[] encoded = new byte[offset + len * 8 + 3];
+      assertEquals(offset + len * 8, DOUBLE.putBytes(encoded, offset, vals, from, len, order));
+      assertArrayEquals(new byte[offset], Arrays.copyOfRange(encoded, 0, offset));
+      for (int i = 0; i < len; i++) {
+        assertArrayEquals(DOUBLE.toBytes(vals[from + i], order),
+          Arrays.copyOfRange(encoded, offset + i * 8, offset + (i + 1) * 8));
+      }
+      assertArrayEquals(Arrays.copyOfRange(DOUBLE.toBytes(vals, order), from * 8, (from + len) * 8),
+        Arrays.copyOfRange(encoded, offset, offset + len * 8));
+
+      double[] decoded = new double[vals.length];
+      assertEquals(offset + len * 8, DOUBLE.toDoubles(encoded, offset, decoded, from, len, order));
+      for (int i = 0; i < from; i++) assertEquals(0, Double.compare(0, decoded[i]));
+      for (int i = from; i < from + len; i++) assertEquals((Double) vals[i], (Double) decoded[i]);
+    }
+  }
 }
@@ -0,0 +1,152 @@
+package hbase;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import util.ExternalKeySorter;
+import util.HSerializer;
+
+public class TestExternalKeySorter {
+
+  private Random r;
+  private File dir;
+
+  @Before
+  public void setUp() {
+    r = RandomTestHSerializable.seeded();
+    dir = new File(System.getProperty("java.io.tmpdir"), "keysort-" + r.nextInt(Integer.MAX_VALUE));
+    assertTrue(dir.mkdirs());
+  }
+
+  @After
+  public void tearDown() {
+    File[] files = dir.listFiles();
+    assertEquals("spilled runs are deleted on close", 0, files.length);
+    dir.delete();
+  }
+
+  /**
+   * Keys with long shared prefixes, duplicates, and prefixes of one another.
+   */
+  private byte[] key() {
+    byte[] ret = new byte[r.nextInt(4) == 0 ? r.nextInt(200) : r.nextInt(12)];
+    int shared = r.nextInt(ret.length + 1);
+    for (int i = 0; i < ret.length; i++) {
+      ret[i] = i < shared ? (byte) 0x7F : (byte) (r.nextBoolean() ? r.nextInt(3) : r.nextInt());
+    }
+    return ret;
+  }
+
+  private static List<byte[]> drain(Iterator<byte[]> it) {
+    List<byte[]> ret = new ArrayList<byte[]>();
+    while (it.hasNext()) ret.add(it.next());
+    return ret;
+  }
+
+  private static void assertSameKeys(List<byte[]> expected, List<byte[]> actual) {
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) assertArrayEquals(expected.get(i), actual.get(i));
+  }
+
+  @Test
+  public void testSortSpillsAndMerges() throws IOException {
+    List<byte[]> keys = new ArrayList<byte[]>();
+    // a small budget forces dozens of runs.
+    ExternalKeySorter sorter = new ExternalKeySorter(dir, 64 * 1024, 3);
+    try {
+      for (int i = 0; i < 20000; i++) {
+        byte[] k = key();
+        keys.add(k);
+        sorter.add(k);
+      }
+      assertEquals(keys.size(), sorter.size());
+      Collections.sort(keys, HSerializer.BYTES_COMPARATOR);
+      assertTrue(dir.listFiles().length > 10);
+
+      assertSameKeys(keys, drain(sorter.iterator()));
+
+      for (int partitions : new int[] { 2, 7, 64 }) {
+        List<Iterator<byte[]>> parts = sorter.merge(partitions);
+        assertTrue(parts.size() <= partitions);
+        List<byte[]> all = new ArrayList<byte[]>();
+        byte[] last = null;
+        for (Iterator<byte[]> part : parts) {
+          List<byte[]> p = drain(part);
+          assertFalse("partitions are non-empty", p.isEmpty());
+          if (null != last) assertTrue(HSerializer.compare(last, p.get(0)) < 0);
+          last = p.get(p.size() - 1);
+          all.addAll(p);
+        }
+        assertSameKeys(keys, all);
+      }
+    } finally {
+      sorter.close();
+    }
+  }
+
+  @Test
+  public void testMemoryBudget() throws IOException {
+    List<byte[]> keys = new ArrayList<byte[]>();
+    long memory = 64 * 1024;
+    ExternalKeySorter sorter = new ExternalKeySorter(dir, memory, 3);
+    try {
+      // runs of empty keys, then of keys near a run's size, reuse the arrays.
+      for (int phase = 0; phase < 4; phase++) {
+        for (int i = 0; i < (phase % 2 == 0 ? 20000 : 200); i++) {
+          byte[] k = new byte[phase % 2 == 0 ? r.nextInt(2) : 4000 + r.nextInt(8000)];
+          r.nextBytes(k);
+          keys.add(k);
+          sorter.add(k);
+          assertTrue(sorter.memoryUsed() <= memory);
+        }
+      }
+      Collections.sort(keys, HSerializer.BYTES_COMPARATOR);
+      assertSameKeys(keys, drain(sorter.iterator()));
+    } finally {
+      sorter.close();
+    }
+  }
+
+  @Test
+  public void testEmptyAndSingle() throws IOException {
+    ExternalKeySorter sorter = new ExternalKeySorter(dir, 1 << 20);
+    try {
+      assertFalse(sorter.iterator().hasNext());
+    } finally {
+      sorter.close();
+    }
+    sorter = new ExternalKeySorter(dir, 1 << 20);
+    try {
+      sorter.add(new byte[] { 1, 2 }, 1, 1);
+      assertSameKeys(Arrays.asList(new byte[] { 2 }), drain(sorter.merge(4).get(0)));
+    } finally {
+      sorter.close();
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testAddAfterFinish() throws IOException {
+    ExternalKeySorter sorter = new ExternalKeySorter(dir, 1 << 20);
+    try {
+      sorter.finish();
+      sorter.add(new byte[1]);
+    } finally {
+      sorter.close();
+    }
+  }
+}
@@ -1,12 +1,18 @@
 package hbase;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static util.HSerializer.Order.ASCENDING;
 import static util.HSerializer.Order.DESCENDING;
 
+import java.util.Arrays;
 import java.util.Comparator;
 
+import org.junit.Test;
+
 import types.FLOAT;
 import util.HSerializer;
+import util.HSerializer.Order;
 
 public class TestFLOAT extends RandomTestHSerializable<Float> {
 
@@ -19,11 +25,43 @@ public class TestFLOAT extends RandomTestHSerializable<Float> {
     };
   }
 
+  private static final Float[] SPECIAL = { -0.0f, 0.0f, Float.NaN, Float.NEGATIVE_INFINITY,
+    Float.POSITIVE_INFINITY, Float.MIN_VALUE, -Float.MIN_VALUE, Float.MAX_VALUE, -Float.MAX_VALUE };
+
+  /**
+   * Any bit pattern, including negatives and NaN payloads, with the special
+   * values mixed in.
+   */
   protected Float create() {
-    return r.nextFloat();
+    if (r.nextInt(8) == 0) return SPECIAL[r.nextInt(SPECIAL.length)];
+    return Float.intBitsToFloat(r.nextInt());
   }
 
   protected HSerializer<Float> ascendingSerializer() { return new FLOAT(ASCENDING); }
   protected HSerializer<Float> descendingSerializer() { return new FLOAT(DESCENDING); }
 
+  @Test
+  public void testBatchRoundTrip() {
+    for (Order order : Order.values()) {
+      float[] vals = new float[257];
+      for (int i = 0; i < vals.length; i++) vals[i] = create();
+
+      // a run from inside vals, at an offset inside dst.
+      int from = 1 + r.nextInt(8), len = vals.length - from - r.nextInt(8), offset = 1 + r.nextInt(8);
+      byte[] encoded = new byte[offset + len * 4 + 3];
+      assertEquals(offset + len * 4, FLOAT.putBytes(encoded, offset, vals, from, len, order));
+      assertArrayEquals(new byte[offset], Arrays.copyOfRange(encoded, 0, offset));
+      for (int i = 0; i < len; i++) {
+        assertArrayEquals(FLOAT.toBytes(vals[from + i], order),
+          Arrays.copyOfRange(encoded, offset + i * 4, offset + (i + 1) * 4));
+      }
+      assertArrayEquals(Arrays.copyOfRange(FLOAT.toBytes(vals, order), from * 4, (from + len) * 4),
+        Arrays.copyOfRange(encoded, offset, offset + len * 4));
+
+      float[] decoded = new float[vals.length];
+      assertEquals(offset + len * 4, FLOAT.toFloats(encoded, offset, decoded, from, len, order));
+      for (int i = 0; i < from; i++) assertEquals(0, Float.compare(0, decoded[i]));
+      for (int i = from; i < from + len; i++) assertEquals((Float) vals[i], (Float) decoded[i]);
+    }
+  }
 }
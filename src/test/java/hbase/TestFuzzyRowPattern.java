@@ -0,0 +1,133 @@
+package hbase;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static util.HSerializer.Order.ASCENDING;
+import static util.HSerializer.Order.DESCENDING;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.hadoop.hbase.util.Pair;
+import org.junit.Before;
+import org.junit.Test;
+
+import types.FuzzyRowPattern;
+import types.INT;
+import types.LONG;
+import types.STRUCT;
+import types.VARCHAR;
+import util.HSerializer;
+
+@SuppressWarnings("rawtypes")
+public class TestFuzzyRowPattern {
+
+  private static final String[] TENANTS = { "a", "bb", "", null };
+
+  private Random r;
+
+  @Before
+  public void setUp() {
+    r = RandomTestHSerializable.seeded();
+  }
+
+  private static STRUCT struct() {
+    return new STRUCT(Arrays.<HSerializer> asList(new LONG(ASCENDING), new VARCHAR(ASCENDING),
+      new INT(DESCENDING), new LONG(ASCENDING)), ASCENDING);
+  }
+
+  private Object value(int field) {
+    switch (field) {
+    case 0: return r.nextInt(8) == 0 ? null : Long.valueOf(r.nextInt(3) - 1);
+    case 1: return TENANTS[r.nextInt(TENANTS.length)];
+    case 2: return r.nextInt(8) == 0 ? null : Integer.valueOf(r.nextInt(3));
+    default: return Long.valueOf(r.nextInt(3));
+    }
+  }
+
+  /**
+   * The matching rule applied by FuzzyRowFilter.
+   */
+  private static boolean matches(Pair<byte[], byte[]> fuzzy, byte[] row) {
+    byte[] key = fuzzy.getFirst(), mask = fuzzy.getSecond();
+    if (row.length < key.length) return false;
+    for (int i = 0; i < key.length; i++) {
+      if (mask[i] == 0 && row[i] != key[i]) return false;
+    }
+    return true;
+  }
+
+  private static boolean eq(Object a, Object b) {
+    return null == a ? null == b : a.equals(b);
+  }
+
+  @Test
+  public void testMatchesPattern() {
+    STRUCT s = struct();
+    List<List<Object>> rows = new ArrayList<List<Object>>();
+    for (int i = 0; i < 300; i++) {
+      rows.add(Arrays.asList(value(0), value(1), value(2), value(3)));
+    }
+
+    for (int n = 0; n < 200; n++) {
+      FuzzyRowPattern p = new FuzzyRowPattern(s);
+      int size = r.nextInt(5);
+      List<Object> fixed = new ArrayList<Object>();
+      boolean[] any = new boolean[size];
+      boolean expressible = true;
+      for (int i = 0; i < size; i++) {
+        any[i] = r.nextBoolean();
+        fixed.add(any[i] ? null : value(i));
+        if (any[i]) p.any();
+        else p.fixed(fixed.get(i));
+        if (!any[i] && i > 1 && any[1]) expressible = false;
+      }
+
+      Pair<byte[], byte[]> fuzzy;
+      try {
+        fuzzy = p.toPair();
+        if (!expressible) fail("wildcard on VARCHAR followed by a fixed field");
+      } catch (IllegalArgumentException e) {
+        if (expressible) throw e;
+        continue;
+      }
+      assertEquals(fuzzy.getFirst().length, fuzzy.getSecond().length);
+      for (List<Object> row : rows) {
+        boolean expected = true;
+        // trailing wildcards are dropped; others match only non-null values
+        // of marked fields.
+        int last = size - 1;
+        while (last >= 0 && any[last]) last--;
+        for (int i = 0; i <= last; i++) {
+          if (any[i] ? (i != 1 && null == row.get(i)) : !eq(fixed.get(i), row.get(i)))
+            expected = false;
+        }
+        assertEquals(row.toString(), expected, matches(fuzzy, s.toBytes(row)));
+      }
+    }
+  }
+
+  @Test
+  public void testKeyAndMask() {
+    STRUCT s = struct();
+    FuzzyRowPattern p = new FuzzyRowPattern(s).any().fixed("a").any();
+    byte[] prefix = s.codec().encodePrefix(Arrays.<Object> asList(0L, "a"));
+    byte[] key = p.toKey(), mask = p.toMask();
+    // trailing wildcards are dropped; the salt's isNull marker stays fixed.
+    assertEquals(prefix.length, key.length);
+    assertEquals(prefix[0], key[0]);
+    for (int i = 1; i < key.length; i++) {
+      assertEquals(i <= 8 ? 1 : 0, mask[i]);
+      assertEquals(i <= 8 ? 0 : prefix[i], key[i]);
+    }
+    assertArrayEquals(new byte[0], new FuzzyRowPattern(s).any().any().toKey());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testVariableWidthWildcard() {
+    new FuzzyRowPattern(struct()).fixed(1L).any().fixed(2).toPair();
+  }
+}
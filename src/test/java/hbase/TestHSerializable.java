@@ -12,7 +12,12 @@ import java.util.Comparator;
 
 import org.junit.Test;
 
+import util.DoubleSerializer;
+import util.FloatSerializer;
 import util.HSerializer;
+import util.IntSerializer;
+import util.LongSerializer;
+import util.ShortSerializer;
 
 public abstract class TestHSerializable<T> {
 
@@ -30,6 +35,24 @@ public abstract class TestHSerializable<T> {
       "round-trip byte[] serialization should be equal.",
       0, compare(getComparator(), serde, val, p));
 
+    // test skipping and sizing without decoding
+    assertEquals("encodedLength should match serialized length",
+      bytes.length, serde.encodedLength(val));
+    assertEquals("skip(byte[]) should span the serialized value",
+      bytes.length, serde.skip(bytes, 0));
+    ByteBuffer skipped = ByteBuffer.wrap(bytes);
+    assertEquals("skip(ByteBuffer) should span the serialized value",
+      bytes.length, serde.skip(skipped));
+    assertEquals(bytes.length, skipped.position());
+    skipped = ByteBuffer.allocateDirect(bytes.length);
+    skipped.put(bytes).flip();
+    assertEquals("skip(ByteBuffer) should span the serialized value",
+      bytes.length, serde.skip(skipped));
+    assertEquals(bytes.length, skipped.position());
+
+    // test the unboxed interfaces re-encode to identical bytes
+    testPrimitiveSerialization(bytes, serde);
+
     // test ByteBuffer serialization
     ByteBuffer buf = ByteBuffer.allocate(bytes.length);
     serde.write(buf, val);
@@ -37,6 +60,65 @@ public abstract class TestHSerializable<T> {
     p = serde.read(buf);
     assertEquals("round-trip ByteBuffer serialization should be equal",
       0, compare(getComparator(), serde, val, p));
+
+    // test heap ByteBuffer with a non-zero array offset
+    buf = ByteBuffer.allocate(bytes.length + 2);
+    buf.position(1);
+    buf = buf.slice();
+    serde.write(buf, val);
+    buf.flip();
+    p = serde.read(buf);
+    assertEquals("round-trip sliced ByteBuffer serialization should be equal",
+      0, compare(getComparator(), serde, val, p));
+
+    // test direct ByteBuffer serialization, read back through a read-only view
+    buf = ByteBuffer.allocateDirect(bytes.length);
+    serde.write(buf, val);
+    buf.flip();
+    byte[] written = new byte[bytes.length];
+    buf.duplicate().get(written);
+    assertEquals("direct ByteBuffer serialization should match byte[] serialization",
+      0, compare(bytes, written));
+    p = serde.read(buf.asReadOnlyBuffer());
+    assertEquals("round-trip direct ByteBuffer serialization should be equal",
+      0, compare(getComparator(), serde, val, p));
+  }
+
+  protected void testPrimitiveSerialization(byte[] bytes, HSerializer<T> serde) {
+    byte[] dst = new byte[bytes.length + 1];
+    ByteBuffer buf = ByteBuffer.allocateDirect(bytes.length);
+    int len = -1;
+    if (serde instanceof LongSerializer) {
+      LongSerializer s = (LongSerializer) serde;
+      len = s.encodeLong(s.decodeLong(bytes, 0), dst, 1);
+      s.encodeLong(s.decodeLong(ByteBuffer.wrap(bytes)), buf);
+    } else if (serde instanceof IntSerializer) {
+      IntSerializer s = (IntSerializer) serde;
+      len = s.encodeInt(s.decodeInt(bytes, 0), dst, 1);
+      s.encodeInt(s.decodeInt(ByteBuffer.wrap(bytes)), buf);
+    } else if (serde instanceof ShortSerializer) {
+      ShortSerializer s = (ShortSerializer) serde;
+      len = s.encodeShort(s.decodeShort(bytes, 0), dst, 1);
+      s.encodeShort(s.decodeShort(ByteBuffer.wrap(bytes)), buf);
+    } else if (serde instanceof DoubleSerializer) {
+      DoubleSerializer s = (DoubleSerializer) serde;
+      len = s.encodeDouble(s.decodeDouble(bytes, 0), dst, 1);
+      s.encodeDouble(s.decodeDouble(ByteBuffer.wrap(bytes)), buf);
+    } else if (serde instanceof FloatSerializer) {
+      FloatSerializer s = (FloatSerializer) serde;
+      len = s.encodeFloat(s.decodeFloat(bytes, 0), dst, 1);
+      s.encodeFloat(s.decodeFloat(ByteBuffer.wrap(bytes)), buf);
+    } else {
+      return;
+    }
+
+    assertEquals(bytes.length, len);
+    assertEquals("primitive byte[] serialization should match",
+      0, compare(bytes, 0, bytes.length, dst, 1, len));
+    buf.flip();
+    byte[] written = new byte[buf.remaining()];
+    buf.get(written);
+    assertEquals("primitive ByteBuffer serialization should match", 0, compare(bytes, written));
   }
 
   protected void testSort(T val1, T val2, HSerializer<T> serde) {
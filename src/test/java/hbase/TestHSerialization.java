@@ -0,0 +1,156 @@
+package hbase;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.serializer.Deserializer;
+import org.apache.hadoop.io.serializer.SerializationFactory;
+import org.apache.hadoop.io.serializer.Serializer;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.HSerialization;
+import io.KeyWritable;
+import io.TypeSpec;
+import types.CHAR;
+import types.STRUCT;
+import util.HSerializer;
+import util.HSerializer.Order;
+
+@SuppressWarnings({ "rawtypes", "unchecked" })
+public class TestHSerialization {
+
+  private Random r;
+  private Configuration conf;
+
+  @Before
+  public void setUp() {
+    r = RandomTestHSerializable.seeded();
+    conf = new Configuration();
+    HSerialization.register(conf, Long.class, "LONG DESC");
+    HSerialization.register(conf, List.class, "STRUCT(VARCHAR, INT DESC, LONG)");
+  }
+
+  private <T> List<T> roundTrip(Class<T> c, List<T> vals, T reuse) throws IOException {
+    SerializationFactory factory = new SerializationFactory(conf);
+    Serializer<T> ser = factory.getSerializer(c);
+    DataOutputBuffer out = new DataOutputBuffer();
+    ser.open(out);
+    List<Integer> ends = new ArrayList<Integer>();
+    for (T v : vals) {
+      ser.serialize(v);
+      ends.add(out.getLength());
+    }
+
+    // serialized records sort as their values under the raw comparator.
+    KeyWritable.Comparator cmp = new KeyWritable.Comparator();
+    for (int i = 1; i < vals.size(); i++) {
+      int s0 = i == 1 ? 0 : ends.get(i - 2), s1 = ends.get(i - 1), s2 = ends.get(i);
+      int raw = cmp.compare(out.getData(), s0, s1 - s0, out.getData(), s1, s2 - s1);
+      assertEquals(Integer.signum(raw),
+        Integer.signum(new KeyWritable(toBytes(c, vals.get(i - 1)))
+            .compareTo(new KeyWritable(toBytes(c, vals.get(i))))));
+    }
+
+    Deserializer<T> de = factory.getDeserializer(c);
+    DataInputBuffer in = new DataInputBuffer();
+    in.reset(out.getData(), out.getLength());
+    de.open(in);
+    List<T> ret = new ArrayList<T>();
+    for (int i = 0; i < vals.size(); i++) {
+      T t = de.deserialize(reuse);
+      if (null != reuse) assertSame(reuse, t);
+      ret.add(t instanceof List ? (T) new ArrayList((List) t) : t);
+    }
+    return ret;
+  }
+
+  private byte[] toBytes(Class<?> c, Object v) {
+    return Long.class == c ? TypeSpec.parse("LONG DESC").toBytes(v)
+        : TypeSpec.parse("STRUCT(VARCHAR, INT DESC, LONG)").toBytes(v);
+  }
+
+  @Test
+  public void testLong() throws IOException {
+    List<Long> vals = new ArrayList<Long>();
+    for (int i = 0; i < 100; i++) vals.add(r.nextLong());
+    assertEquals(vals, roundTrip(Long.class, vals, null));
+  }
+
+  @Test
+  public void testStructReusesList() throws IOException {
+    List<ArrayList> vals = new ArrayList<ArrayList>();
+    for (int i = 0; i < 100; i++) {
+      vals.add(new ArrayList<Object>(Arrays.<Object> asList(
+        r.nextBoolean() ? null : Long.toString(r.nextInt(1000)), r.nextInt(), r.nextLong())));
+    }
+    assertEquals(vals, roundTrip(ArrayList.class, vals, new ArrayList()));
+  }
+
+  @Test
+  public void testAccept() {
+    HSerialization s = new HSerialization();
+    s.setConf(conf);
+    assertTrue(s.accept(Long.class));
+    assertTrue(s.accept(ArrayList.class));
+    assertFalse(s.accept(String.class));
+    assertTrue(conf.get("io.serializations").endsWith(HSerialization.class.getName()));
+    HSerialization.register(conf, String.class, "VARCHAR");
+    assertEquals(1, conf.get("io.serializations").split(HSerialization.class.getName()).length);
+  }
+
+  @Test
+  public void testParse() {
+    HSerializer s = TypeSpec.parse(" struct ( varchar desc, CHAR(4), STRUCT(LONG) ) ");
+    assertTrue(s instanceof STRUCT);
+    assertEquals(Order.DESCENDING, ((STRUCT) s).order(0));
+    List<Object> val = Arrays.<Object> asList("a", "b", Arrays.<Object> asList(1L));
+    assertEquals(val, s.fromBytes(s.toBytes(val)));
+    assertTrue(TypeSpec.parse("CHAR(3)") instanceof CHAR);
+    assertTrue(((CHAR) TypeSpec.parse("char(3, padded) DESC")).isPadded());
+    assertEquals(3, TypeSpec.parse("CHAR(3, PADDED)").encodedWidth());
+    assertEquals(Order.ASCENDING, TypeSpec.parse("DECIMAL").order());
+  }
+
+  @Test
+  public void testParseNotNull() {
+    STRUCT s = (STRUCT) TypeSpec.parse("STRUCT(LONG DESC not null, INT, VARCHAR NOT NULL)");
+    assertTrue(s.isNotNull(0));
+    assertFalse(s.isNotNull(1));
+    assertTrue(s.isNotNull(2));
+    List<Object> val = Arrays.<Object> asList(1L, null, "c");
+    assertEquals(8 + 1 + 2, s.toBytes(val).length);
+    assertEquals(val, s.fromBytes(s.toBytes(val)));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testParseNotWithoutNull() {
+    TypeSpec.parse("STRUCT(LONG NOT)");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testParseStructOrder() {
+    TypeSpec.parse("STRUCT(VARCHAR, STRUCT(LONG) DESC)");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testParseUnknown() {
+    TypeSpec.parse("STRUCT(LONG, BLOB)");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testParseTrailing() {
+    TypeSpec.parse("LONG ASC DESC");
+  }
+}
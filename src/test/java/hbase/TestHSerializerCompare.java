@@ -0,0 +1,90 @@
+package hbase;
+
+import static java.lang.Integer.signum;
+import static org.junit.Assert.assertEquals;
+import static util.HSerializer.compare;
+import static util.HSerializer.mismatch;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Check the word-at-a-time comparator against {@link Bytes#compareTo}.
+ */
+public class TestHSerializerCompare {
+
+  private Random r;
+
+  @Before
+  public void setUp() {
+    r = RandomTestHSerializable.seeded();
+  }
+
+  /**
+   * Create a pair of arrays sharing a random-length common prefix.
+   */
+  private byte[][] pair() {
+    byte[] a = new byte[r.nextInt(40)];
+    r.nextBytes(a);
+    byte[] b = new byte[r.nextInt(40)];
+    r.nextBytes(b);
+    System.arraycopy(a, 0, b, 0, r.nextInt(Math.min(a.length, b.length) + 1));
+    return new byte[][] { a, b };
+  }
+
+  private static ByteBuffer direct(byte[] b, ByteOrder order) {
+    ByteBuffer ret = ByteBuffer.allocateDirect(b.length + 3).order(order);
+    ret.position(3);
+    ret.put(b);
+    ret.position(3);
+    return ret;
+  }
+
+  @Test
+  public void testAgreesWithBytes() {
+    for (int n = 0; n < 10000; n++) {
+      byte[][] p = pair();
+      byte[] a = p[0], b = p[1];
+      int expected = signum(Bytes.compareTo(a, b));
+      assertEquals(expected, signum(compare(a, b)));
+      assertEquals(expected, signum(compare(ByteBuffer.wrap(a), ByteBuffer.wrap(b))));
+      assertEquals(expected, signum(compare(
+        direct(a, ByteOrder.BIG_ENDIAN), direct(b, ByteOrder.LITTLE_ENDIAN))));
+
+      // slices
+      int lo = r.nextInt(a.length + 1), ro = r.nextInt(b.length + 1);
+      int ll = r.nextInt(a.length - lo + 1), rl = r.nextInt(b.length - ro + 1);
+      assertEquals(signum(Bytes.compareTo(a, lo, ll, b, ro, rl)),
+        signum(compare(a, lo, ll, b, ro, rl)));
+    }
+  }
+
+  @Test
+  public void testMismatch() {
+    for (int n = 0; n < 10000; n++) {
+      byte[][] p = pair();
+      byte[] a = p[0], b = p[1];
+      int expected = 0;
+      while (expected < Math.min(a.length, b.length) && a[expected] == b[expected]) expected++;
+      assertEquals(expected, mismatch(a, 0, a.length, b, 0, b.length));
+      assertEquals(expected, mismatch(
+        direct(a, ByteOrder.LITTLE_ENDIAN), direct(b, ByteOrder.BIG_ENDIAN)));
+    }
+  }
+
+  @Test
+  public void testUnsigned() {
+    byte[] lo = new byte[16], hi = new byte[16];
+    hi[11] = (byte) 0x80;
+    lo[11] = 0x7f;
+    assertEquals(11, mismatch(lo, 0, 16, hi, 0, 16));
+    assertEquals(-1, signum(compare(lo, hi)));
+    assertEquals(-1, signum(compare(ByteBuffer.wrap(lo), ByteBuffer.wrap(hi))));
+    assertEquals(1, signum(compare(new byte[] { 0, 0 }, new byte[] { 0 })));
+  }
+}
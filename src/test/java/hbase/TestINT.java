@@ -1,12 +1,18 @@
 package hbase;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static util.HSerializer.Order.ASCENDING;
 import static util.HSerializer.Order.DESCENDING;
 
+import java.util.Arrays;
 import java.util.Comparator;
 
+import org.junit.Test;
+
 import types.INT;
 import util.HSerializer;
+import util.HSerializer.Order;
 
 public class TestINT extends RandomTestHSerializable<Integer> {
 
@@ -26,4 +32,29 @@ public class TestINT extends RandomTestHSerializable<Integer> {
   protected HSerializer<Integer> ascendingSerializer() { return new INT(ASCENDING); }
   protected HSerializer<Integer> descendingSerializer() { return new INT(DESCENDING); }
 
+  @Test
+  public void testBatchRoundTrip() {
+    for (Order order : Order.values()) {
+      int[] vals = new int[257];
+      for (int i = 0; i < vals.length; i++) vals[i] = create();
+
+      // a run from inside vals, at an offset inside dst.
+      int from = 1 + r.nextInt(8), len = vals.length - from - r.nextInt(8), offset = 1 + r.nextInt(8);
+      byte[] encoded = new byte[offset + len * 4 + 3];
+      assertEquals(offset + len * 4, INT.putBytes(encoded, offset, vals, from, len, order));
+      assertArrayEquals(new byte[offset], Arrays.copyOfRange(encoded, 0, offset));
+      for (int i = 0; i < len; i++) {
+        assertArrayEquals(INT.toBytes(vals[from + i], order),
+          Arrays.copyOfRange(encoded, offset + i * 4, offset + (i + 1) * 4));
+      }
+      assertArrayEquals(Arrays.copyOfRange(INT.toBytes(vals, order), from * 4, (from + len) * 4),
+        Arrays.copyOfRange(encoded, offset, offset + len * 4));
+
+      int[] decoded = new int[vals.length];
+      assertEquals(offset + len * 4, INT.toInts(encoded, offset, decoded, from, len, order));
+      assertArrayEquals(new int[from], Arrays.copyOfRange(decoded, 0, from));
+      assertArrayEquals(Arrays.copyOfRange(vals, from, from + len),
+        Arrays.copyOfRange(decoded, from, from + len));
+    }
+  }
 }
@@ -0,0 +1,155 @@
+package hbase;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static util.HSerializer.Order.ASCENDING;
+import static util.HSerializer.Order.DESCENDING;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import types.BOOLEAN;
+import types.BYTE;
+import types.DATETIME;
+import types.DECIMAL;
+import types.DOUBLE;
+import types.FLOAT;
+import types.INT;
+import types.KeyBuilder;
+import types.KeyReader;
+import types.LONG;
+import types.SHORT;
+import types.STRUCT;
+import types.VARCHAR;
+import types.VARINT;
+import util.HSerializer;
+import util.HSerializer.Order;
+
+@SuppressWarnings("rawtypes")
+public class TestKeyBuilder {
+
+  private Random r;
+
+  @Before
+  public void setUp() {
+    r = RandomTestHSerializable.seeded();
+  }
+
+  private String string() {
+    if (r.nextInt(8) == 0) return null;
+    char[] cs = new char[r.nextInt(40)];
+    for (int i = 0; i < cs.length; i++) cs[i] = (char) (1 + r.nextInt(0x7FF));
+    return new String(cs);
+  }
+
+  private byte[] bytes() {
+    if (r.nextInt(8) == 0) return null;
+    byte[] ret = new byte[r.nextInt(40)];
+    for (int i = 0; i < ret.length; i++) ret[i] = (byte) (r.nextBoolean() ? 0 : r.nextInt());
+    return ret;
+  }
+
+  @Test
+  public void testMatchesSerializers() throws IOException {
+    STRUCT struct = new STRUCT(Arrays.<HSerializer> asList(new VARCHAR(), new LONG(DESCENDING)));
+    KeyBuilder b = new KeyBuilder(1);
+    KeyReader kr = new KeyReader();
+    for (int n = 0; n < 200; n++) {
+      Order o = r.nextBoolean() ? ASCENDING : DESCENDING;
+      long l = r.nextLong();
+      int i = r.nextInt();
+      short s = (short) r.nextInt();
+      double d = r.nextDouble() * r.nextInt();
+      float f = r.nextFloat() * r.nextInt();
+      Date date = new Date(r.nextLong());
+      Boolean bool = r.nextInt(3) == 0 ? null : r.nextBoolean();
+      String str = string();
+      byte[] bs = bytes();
+      long vi = r.nextLong() >> r.nextInt(64);
+      long unscaled = r.nextInt();
+      List<Object> row = Arrays.<Object> asList(string(), r.nextLong());
+
+      b.reset().appendLong(l, o).appendInt(i, o).appendShort(s, o).appendDouble(d, o)
+          .appendFloat(f, o).appendDate(date, o).appendBoolean(bool, o).appendString(str, o)
+          .appendBytes(bs, o).appendVarint(vi, o).appendDecimal(unscaled, 3, o)
+          .append(struct, row).appendNull(new VARCHAR(o));
+
+      // box primitives; the static toBytes(primitive) helpers ignore the
+      // instance's order.
+      ByteArrayOutputStream expected = new ByteArrayOutputStream();
+      expected.write(new LONG(o).toBytes(Long.valueOf(l)));
+      expected.write(new INT(o).toBytes(Integer.valueOf(i)));
+      expected.write(new SHORT(o).toBytes(Short.valueOf(s)));
+      expected.write(new DOUBLE(o).toBytes(Double.valueOf(d)));
+      expected.write(new FLOAT(o).toBytes(Float.valueOf(f)));
+      expected.write(new DATETIME(o).toBytes(date));
+      expected.write(new BOOLEAN(o).toBytes(bool));
+      expected.write(new VARCHAR(o).toBytes(str));
+      expected.write(new BYTE(o).toBytes(bs));
+      expected.write(VARINT.toBytes(vi, o));
+      expected.write(DECIMAL.toBytes(unscaled, 3, o));
+      expected.write(struct.toBytes(row));
+      expected.write(new VARCHAR(o).toBytes(null));
+      assertArrayEquals(expected.toByteArray(), b.toBytes());
+      assertEquals(b.length(), b.toBytes().length);
+
+      kr.reset(b.array(), 0, b.length());
+      assertEquals(l, kr.readLong(o));
+      assertEquals(i, kr.readInt(o));
+      assertEquals(s, kr.readShort(o));
+      assertEquals(d, kr.readDouble(o), 0.0);
+      assertEquals(f, kr.readFloat(o), 0.0f);
+      assertEquals(date, kr.readDate(o));
+      assertEquals(bool, kr.readBoolean(o));
+      assertEquals(str, kr.readString(o));
+      assertArrayEquals(bs, kr.readBytes(o));
+      assertEquals(vi, kr.readVarint(o));
+      assertEquals(unscaled, kr.readDecimal(3, o));
+      assertEquals(row, kr.read(struct));
+      assertNull(kr.read(new VARCHAR(o)));
+      assertFalse(kr.hasRemaining());
+    }
+  }
+
+  @Test
+  public void testReaderSlice() {
+    byte[] key = new KeyBuilder().appendString("a", ASCENDING).appendInt(7, ASCENDING)
+        .appendLong(9L, DESCENDING).toBytes();
+    byte[] padded = new byte[key.length + 6];
+    System.arraycopy(key, 0, padded, 3, key.length);
+    KeyReader kr = new KeyReader().reset(padded, 3, key.length);
+    kr.skip(new VARCHAR());
+    assertEquals(2, kr.position());
+    assertEquals(7, kr.readInt(ASCENDING));
+    assertEquals(9L, kr.readLong(DESCENDING));
+    assertEquals(0, kr.remaining());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testReadPastEnd() {
+    new KeyReader(new KeyBuilder().appendInt(1, ASCENDING).toBytes()).readLong(ASCENDING);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testAppendNullUnsupported() {
+    new KeyBuilder().appendNull(new LONG());
+  }
+
+  @Test
+  public void testLocal() {
+    KeyBuilder b = KeyBuilder.local();
+    b.appendLong(1L, ASCENDING);
+    assertSame(b, KeyBuilder.local());
+    assertEquals(0, KeyBuilder.local().length());
+  }
+}
@@ -0,0 +1,107 @@
+package hbase;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static util.HSerializer.Order.ASCENDING;
+import static util.HSerializer.Order.DESCENDING;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.WritableComparator;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.KeyWritable;
+import io.StructPrefixComparator;
+import types.DECIMAL;
+import types.INT;
+import types.LONG;
+import types.STRUCT;
+import types.VARCHAR;
+import util.HSerializer;
+
+@SuppressWarnings("rawtypes")
+public class TestKeyWritable {
+
+  private static final STRUCT STRUCT = new STRUCT(Arrays.<HSerializer> asList(
+    new VARCHAR(ASCENDING), new INT(DESCENDING), new LONG(ASCENDING)), ASCENDING);
+
+  private Random r;
+
+  @Before
+  public void setUp() {
+    r = RandomTestHSerializable.seeded();
+  }
+
+  private List<Object> row() {
+    String[] tenants = { "a", "ab", "b", "", null };
+    return Arrays.<Object> asList(tenants[r.nextInt(tenants.length)],
+      r.nextInt(5) == 0 ? null : r.nextInt(3), (long) r.nextInt(3));
+  }
+
+  private static byte[] serialize(KeyWritable k) throws IOException {
+    DataOutputBuffer out = new DataOutputBuffer();
+    // a leading byte to exercise non-zero offsets.
+    out.write(42);
+    k.write(out);
+    return Arrays.copyOf(out.getData(), out.getLength());
+  }
+
+  private static int sign(int cmp) {
+    return cmp < 0 ? -1 : cmp > 0 ? 1 : 0;
+  }
+
+  @Test
+  public void testRawCompare() throws IOException {
+    List<KeyWritable> keys = new ArrayList<KeyWritable>();
+    for (int i = 0; i < 100; i++) {
+      keys.add(new KeyWritable().set(STRUCT, row()));
+    }
+    // registered once KeyWritable is initialized.
+    WritableComparator cmp = WritableComparator.get(KeyWritable.class);
+    assertTrue(cmp instanceof KeyWritable.Comparator);
+    StructPrefixComparator group = new StructPrefixComparator(STRUCT, 2);
+    for (KeyWritable a : keys) {
+      byte[] sa = serialize(a);
+      for (KeyWritable b : keys) {
+        byte[] sb = serialize(b);
+        int expected = sign(a.compareTo(b));
+        assertEquals(expected,
+          sign(cmp.compare(sa, 1, sa.length - 1, sb, 1, sb.length - 1)));
+
+        List<Object> ra = a.get(STRUCT), rb = b.get(STRUCT);
+        boolean sameGroup = ra.subList(0, 2).equals(rb.subList(0, 2));
+        int g = sign(group.compare(sa, 1, sa.length - 1, sb, 1, sb.length - 1));
+        assertEquals(g, sign(group.compare(a, b)));
+        if (sameGroup) assertEquals(0, g);
+        else assertEquals(expected, g);
+      }
+    }
+  }
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    KeyWritable k = new KeyWritable();
+    DataInputBuffer in = new DataInputBuffer();
+    for (int i = 0; i < 50; i++) {
+      List<Object> row = row();
+      byte[] bytes = serialize(new KeyWritable().set(STRUCT, row));
+      in.reset(bytes, 1, bytes.length - 1);
+      k.readFields(in);
+      assertEquals(row, k.get(STRUCT));
+      assertEquals(row.get(2), k.view(STRUCT).get(2));
+    }
+
+    DECIMAL d = new DECIMAL(DESCENDING);
+    java.math.BigDecimal v = new java.math.BigDecimal("-12.5");
+    assertEquals(0, v.compareTo(new KeyWritable().set(d, v).get(d)));
+    assertEquals(new KeyWritable().set(d, v), new KeyWritable(d.toBytes(v)));
+    assertEquals(new KeyWritable().set(d, v).hashCode(), new KeyWritable(d.toBytes(v)).hashCode());
+  }
+}
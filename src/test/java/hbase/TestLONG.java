@@ -9,11 +9,13 @@ import static util.HSerializer.compare;
 import static util.HSerializer.Order.ASCENDING;
 import static util.HSerializer.Order.DESCENDING;
 
+import java.util.Arrays;
 import java.util.Comparator;
 
 import org.junit.Test;
 
 import types.LONG;
+import util.HSerializer.Order;
 
 public class TestLONG extends RandomTestHSerializable<Long> {
 
@@ -74,4 +76,30 @@ public class TestLONG extends RandomTestHSerializable<Long> {
     assertEquals(Long.MIN_VALUE, toLong(toBytes(Long.MIN_VALUE)));
     assertEquals(Long.MAX_VALUE, toLong(toBytes(Long.MAX_VALUE)));
   }
+
+  @Test
+  public void testBatchRoundTrip() {
+    for (Order order : Order.values()) {
+      long[] vals = new long[257];
+      for (int i = 0; i < vals.length; i++) vals[i] = create();
+
+      // a run from inside vals, at an offset inside dst.
+      int from = 1 + r.nextInt(8), len = vals.length - from - r.nextInt(8), offset = 1 + r.nextInt(8);
+      byte[] encoded = new byte[offset + len * 8 + 3];
+      assertEquals(offset + len * 8, LONG.putBytes(encoded, offset, vals, from, len, order));
+      assertArrayEquals(new byte[offset], Arrays.copyOfRange(encoded, 0, offset));
+      for (int i = 0; i < len; i++) {
+        assertArrayEquals(LONG.toBytes(vals[from + i], order),
+          Arrays.copyOfRange(encoded, offset + i * 8, offset + (i + 1) * 8));
+      }
+      assertArrayEquals(Arrays.copyOfRange(LONG.toBytes(vals, order), from * 8, (from + len) * 8),
+        Arrays.copyOfRange(encoded, offset, offset + len * 8));
+
+      long[] decoded = new long[vals.length];
+      assertEquals(offset + len * 8, LONG.toLongs(encoded, offset, decoded, from, len, order));
+      assertArrayEquals(new long[from], Arrays.copyOfRange(decoded, 0, from));
+      assertArrayEquals(Arrays.copyOfRange(vals, from, from + len),
+        Arrays.copyOfRange(decoded, from, from + len));
+    }
+  }
 }
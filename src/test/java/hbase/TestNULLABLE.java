@@ -0,0 +1,68 @@
+package hbase;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static util.HSerializer.Order.ASCENDING;
+import static util.HSerializer.Order.DESCENDING;
+
+import java.util.Comparator;
+
+import org.junit.Test;
+
+import types.LONG;
+import types.NULLABLE;
+import types.VARCHAR;
+import util.HSerializer;
+import util.HSerializer.Order;
+
+public class TestNULLABLE extends RandomTestHSerializable<Long> {
+
+  protected Comparator<Long> getComparator() {
+    return new Comparator<Long>() {
+      @Override
+      public int compare(Long o1, Long o2) {
+        return o1.compareTo(o2);
+      }
+    };
+  }
+
+  protected Long create() {
+    return r.nextInt(8) == 0 ? null : r.nextLong();
+  }
+
+  protected NULLABLE<Long> ascendingSerializer() { return new NULLABLE<Long>(new LONG(ASCENDING)); }
+  protected NULLABLE<Long> descendingSerializer() { return new NULLABLE<Long>(new LONG(DESCENDING)); }
+
+  @Test
+  public void testEncoding() {
+    for (Order o : Order.values()) {
+      LONG l = new LONG(o);
+      NULLABLE<Long> n = new NULLABLE<Long>(l);
+      assertArrayEquals(new byte[] { (byte) (0x01 ^ o.mask()) }, n.toBytes(null));
+      assertNull(n.fromBytes(n.toBytes(null)));
+
+      byte[] val = l.toBytes(Long.valueOf(42L)), expected = new byte[val.length + 1];
+      expected[0] = (byte) (0xFF ^ o.mask());
+      System.arraycopy(val, 0, expected, 1, val.length);
+      assertArrayEquals(expected, n.toBytes(42L));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRejectsNullableSerializer() {
+    new NULLABLE<String>(new VARCHAR());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRejectsUnknownMarker() {
+    new NULLABLE<Long>(new LONG()).fromBytes(new byte[] { 0x00 });
+  }
+
+  @Test
+  public void testToString() {
+    assertEquals("NULLABLE(LONG(ASCENDING))", new NULLABLE<Long>(new LONG()).toString());
+    HSerializer<Long> s = new NULLABLE<Long>(new LONG(DESCENDING));
+    assertEquals(DESCENDING, s.order());
+  }
+}
@@ -0,0 +1,114 @@
+package hbase;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static util.HSerializer.Order.ASCENDING;
+import static util.HSerializer.Order.DESCENDING;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.Test;
+
+import types.CHAR;
+import types.LONG;
+import types.STRUCT;
+import types.VARCHAR;
+import util.HSerializer;
+import util.HSerializer.Order;
+
+public class TestPaddedCHAR extends RandomTestHSerializable<String> {
+
+  /** Room for 16 code points of up to 4 bytes, and the termination byte. */
+  private static final int LENGTH = 16 * 4 + 1;
+
+  protected Comparator<String> getComparator() {
+    return new TestVARCHAR().getComparator();
+  }
+
+  protected String create() {
+    if (r.nextInt(16) == 0) return null;
+    int len = r.nextInt(17);
+    StringBuilder sb = new StringBuilder(len);
+    int surrogates = Character.MAX_SURROGATE - Character.MIN_SURROGATE + 1;
+    for (int i = 0; i < len; i++) {
+      // mostly ASCII, so that values share prefixes and exercise the padding.
+      int cp = r.nextBoolean() ? 'a' + r.nextInt(3)
+          : r.nextInt(Character.MAX_CODE_POINT + 1 - surrogates);
+      sb.appendCodePoint(cp < Character.MIN_SURROGATE ? cp : cp + surrogates);
+    }
+    return sb.toString();
+  }
+
+  protected CHAR ascendingSerializer() { return new CHAR(LENGTH, ASCENDING, true); }
+  protected CHAR descendingSerializer() { return new CHAR(LENGTH, DESCENDING, true); }
+
+  @Test
+  public void testPadding() {
+    for (Order o : Order.values()) {
+      CHAR c = new CHAR(6, o, true);
+      assertEquals(6, c.encodedWidth());
+      byte[] expected = Arrays.copyOf(VARCHAR.toBytes("ab", o), 6);
+      Arrays.fill(expected, 3, 6, (byte) (0x01 ^ o.mask()));
+      assertArrayEquals(expected, c.toBytes("ab"));
+
+      // padded values remain readable as VARCHARs.
+      assertEquals("ab", VARCHAR.toString(c.toBytes("ab"), 0, o));
+      assertEquals("", c.fromBytes(c.toBytes("")));
+      assertNull(c.fromBytes(c.toBytes(null)));
+      assertEquals("abcde", c.fromBytes(c.toBytes("abcde")));
+      assertEquals(6, c.toBytes(null).length);
+    }
+  }
+
+  @Test
+  public void testDirectBuffer() {
+    CHAR c = new CHAR(8, DESCENDING, true);
+    ByteBuffer buff = ByteBuffer.allocateDirect(10);
+    buff.put((byte) 7);
+    c.write(buff, "xyz");
+    assertEquals(9, buff.position());
+    buff.flip();
+    buff.get();
+    byte[] written = new byte[8];
+    buff.duplicate().get(written);
+    assertArrayEquals(c.toBytes("xyz"), written);
+    assertEquals("xyz", c.read(buff));
+    assertEquals(9, buff.position());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSerializeConstraints() {
+    new CHAR(3, ASCENDING, true).toBytes("foo");
+  }
+
+  @Test
+  public void testConstraintLeavesBufferUnmodified() {
+    ByteBuffer buff = ByteBuffer.allocate(8);
+    try {
+      new CHAR(3, ASCENDING, true).write(buff, "f\u00e9");
+    } catch (IllegalArgumentException e) {
+      assertEquals(0, buff.position());
+      assertArrayEquals(new byte[8], buff.array());
+      return;
+    }
+    throw new AssertionError("expected IllegalArgumentException");
+  }
+
+  @Test
+  @SuppressWarnings("rawtypes")
+  public void testFixedOffsetInStruct() {
+    STRUCT s = new STRUCT(Arrays.<HSerializer> asList(new CHAR(8, ASCENDING, true),
+      new LONG(DESCENDING)), ASCENDING, 1);
+    assertEquals(16, s.encodedWidth());
+    assertEquals(8, s.fixedOffset(1));
+    List<Object> val = Arrays.<Object> asList("tenant", 5L);
+    byte[] bytes = s.toBytes(val);
+    s.set(bytes, 0, 0, "other");
+    assertEquals(Arrays.<Object> asList("other", 5L), s.fromBytes(bytes));
+    assertEquals(5L, s.view(bytes).getLong(1));
+  }
+}
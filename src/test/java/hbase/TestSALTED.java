@@ -0,0 +1,140 @@
+package hbase;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static util.HSerializer.Order.ASCENDING;
+import static util.HSerializer.Order.DESCENDING;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.Scan;
+import org.junit.Before;
+import org.junit.Test;
+
+import types.DATETIME;
+import types.LONG;
+import types.SALTED;
+import types.STRUCT;
+import types.VARCHAR;
+import util.HSerializer;
+import util.KeyRange;
+import util.SaltedScanner;
+
+@SuppressWarnings("rawtypes")
+public class TestSALTED {
+
+  private Random r;
+
+  @Before
+  public void setUp() {
+    r = RandomTestHSerializable.seeded();
+  }
+
+  private static STRUCT struct() {
+    return new STRUCT(Arrays.<HSerializer> asList(new DATETIME(ASCENDING), new VARCHAR(ASCENDING),
+      new LONG(DESCENDING)), ASCENDING);
+  }
+
+  private List<Object> row(long t) {
+    return Arrays.<Object> asList(new Date(t), "host" + r.nextInt(10), r.nextLong());
+  }
+
+  @Test
+  public void testRoundTrip() {
+    SALTED<List<Object>> salted = new SALTED<List<Object>>(struct(), 16);
+    for (int i = 0; i < 100; i++) {
+      List<Object> row = row(r.nextLong());
+      byte[] bytes = salted.toBytes(row);
+      assertEquals(salted.bucket(row), bytes[0]);
+      assertArrayEquals(struct().toBytes(row), Arrays.copyOfRange(bytes, 1, bytes.length));
+      assertEquals(row, salted.fromBytes(bytes));
+      assertEquals(bytes.length, salted.encodedLength(row));
+      assertEquals(bytes.length, salted.skip(bytes, 0));
+
+      ByteBuffer buff = ByteBuffer.allocate(bytes.length + 3);
+      buff.position(3);
+      salted.write(buff.slice(), row);
+      assertArrayEquals(bytes, Arrays.copyOfRange(buff.array(), 3, buff.capacity()));
+    }
+    assertEquals(9, new SALTED<Long>(new LONG(), 4).encodedWidth());
+  }
+
+  @Test
+  public void testSpreadsMonotonicKeys() {
+    SALTED<Long> salted = new SALTED<Long>(new LONG(), 8);
+    int[] counts = new int[8];
+    for (long i = 0; i < 8000; i++) counts[salted.bucket(i)]++;
+    for (int c : counts) assertTrue(c > 800);
+  }
+
+  @Test
+  public void testHashFields() {
+    // hashing the host alone keeps each host's rows in one bucket.
+    SALTED<List<Object>> salted = new SALTED<List<Object>>(struct(), 32, 1);
+    for (int i = 0; i < 50; i++) {
+      List<Object> a = row(r.nextLong()), b = row(r.nextLong());
+      if (a.get(1).equals(b.get(1))) assertEquals(salted.bucket(a), salted.bucket(b));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testHashFieldsRequireStruct() {
+    new SALTED<Long>(new LONG(), 4, 0);
+  }
+
+  @Test
+  public void testScannerMergesBuckets() throws IOException {
+    STRUCT s = struct();
+    SALTED<List<Object>> salted = new SALTED<List<Object>>(s, 8);
+    InMemoryTable table = new InMemoryTable();
+    List<byte[]> logical = new ArrayList<byte[]>();
+    for (long t = 0; t < 500; t++) {
+      List<Object> row = row(t);
+      table.add(salted.toBytes(row));
+      logical.add(s.toBytes(row));
+    }
+    Collections.sort(logical, HSerializer.BYTES_COMPARATOR);
+
+    KeyRange range = s.scanRange(Collections.<Object> emptyList(), new Date(100), new Date(400));
+    List<byte[]> expected = new ArrayList<byte[]>();
+    for (byte[] k : logical) {
+      if (range.contains(k)) expected.add(k);
+    }
+
+    ExecutorService pool = Executors.newFixedThreadPool(3);
+    try {
+      Scan scan = range.toScan();
+      scan.setCaching(7);
+      SaltedScanner scanner = new SaltedScanner(table.table(), scan, 8, pool);
+      List<byte[]> actual = new ArrayList<byte[]>();
+      for (Result res : scanner) {
+        byte[] row = res.getRow();
+        actual.add(Arrays.copyOfRange(row, 1, row.length));
+      }
+      scanner.close();
+      assertEquals(300, actual.size());
+      for (int i = 0; i < expected.size(); i++) assertArrayEquals(expected.get(i), actual.get(i));
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void testBucketRanges() {
+    List<KeyRange> ranges = SaltedScanner.bucketRanges(KeyRange.ALL, 256);
+    assertArrayEquals(new byte[] { 0 }, ranges.get(0).getStart());
+    assertArrayEquals(new byte[] { 1 }, ranges.get(0).getStop());
+    assertArrayEquals(new byte[0], ranges.get(255).getStop());
+  }
+}
@@ -1,12 +1,18 @@
 package hbase;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static util.HSerializer.Order.ASCENDING;
 import static util.HSerializer.Order.DESCENDING;
 
+import java.util.Arrays;
 import java.util.Comparator;
 
+import org.junit.Test;
+
 import types.SHORT;
 import util.HSerializer;
+import util.HSerializer.Order;
 
 public class TestSHORT extends RandomTestHSerializable<Short> {
 
@@ -26,4 +32,29 @@ public class TestSHORT extends RandomTestHSerializable<Short> {
   protected HSerializer<Short> ascendingSerializer() { return new SHORT(ASCENDING); }
   protected HSerializer<Short> descendingSerializer() { return new SHORT(DESCENDING); }
 
+  @Test
+  public void testBatchRoundTrip() {
+    for (Order order : Order.values()) {
+      short[] vals = new short[257];
+      for (int i = 0; i < vals.length; i++) vals[i] = create();
+
+      // a run from inside vals, at an offset inside dst.
+      int from = 1 + r.nextInt(8), len = vals.length - from - r.nextInt(8), offset = 1 + r.nextInt(8);
+      byte[] encoded = new byte[offset + len * 2 + 3];
+      assertEquals(offset + len * 2, SHORT.putBytes(encoded, offset, vals, from, len, order));
+      assertArrayEquals(new byte[offset], Arrays.copyOfRange(encoded, 0, offset));
+      for (int i = 0; i < len; i++) {
+        assertArrayEquals(SHORT.toBytes(vals[from + i], order),
+          Arrays.copyOfRange(encoded, offset + i * 2, offset + (i + 1) * 2));
+      }
+      assertArrayEquals(Arrays.copyOfRange(SHORT.toBytes(vals, order), from * 2, (from + len) * 2),
+        Arrays.copyOfRange(encoded, offset, offset + len * 2));
+
+      short[] decoded = new short[vals.length];
+      assertEquals(offset + len * 2, SHORT.toShorts(encoded, offset, decoded, from, len, order));
+      assertArrayEquals(new short[from], Arrays.copyOfRange(decoded, 0, from));
+      assertArrayEquals(Arrays.copyOfRange(vals, from, from + len),
+        Arrays.copyOfRange(decoded, from, from + len));
+    }
+  }
 }
@@ -1,34 +1,338 @@
 package hbase;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static util.HSerializer.Order.ASCENDING;
+import static util.HSerializer.Order.DESCENDING;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Test;
 
+import types.BOOLEAN;
+import types.BYTE;
+import types.DATETIME;
+import types.DECIMAL;
+import types.DOUBLE;
+import types.FLOAT;
+import types.INT;
+import types.LONG;
+import types.SHORT;
+import types.STRUCT;
+import types.StructCodec;
+import types.VARCHAR;
+import types.VARINT;
 import util.HSerializer;
+import util.HSerializer.Order;
 
+@SuppressWarnings({ "rawtypes", "unchecked" })
+public class TestSTRUCT extends RandomTestHSerializable<List<Object>> {
 
-public class TestSTRUCT extends RandomTestHSerializable<Object[]> {
+  protected static List<HSerializer> schema(Order o) {
+    return Arrays.<HSerializer> asList(new LONG(o), new VARCHAR(o), new INT(o), new DOUBLE(o));
+  }
 
   @Override
-  protected Object[] create() {
-    // TODO Auto-generated method stub
-    return null;
+  protected List<Object> create() {
+    // restrict to the BMP below the surrogates, where String order is code
+    // point order.
+    StringBuilder sb = new StringBuilder();
+    for (int i = r.nextInt(16); i > 0; i--)
+      sb.append((char) r.nextInt(Character.MIN_SURROGATE));
+
+    List<Object> ret = new ArrayList<Object>(4);
+    ret.add(r.nextLong());
+    ret.add(sb.toString());
+    ret.add(r.nextInt(4)); // small range, to exercise ties in trailing fields
+    ret.add(r.nextDouble());
+    return ret;
   }
 
   @Override
-  protected HSerializer<Object[]> ascendingSerializer() {
-    // TODO Auto-generated method stub
-    return null;
+  protected HSerializer<List<Object>> ascendingSerializer() {
+    return new STRUCT(schema(ASCENDING), ASCENDING);
   }
 
   @Override
-  protected HSerializer<Object[]> descendingSerializer() {
-    // TODO Auto-generated method stub
-    return null;
+  protected HSerializer<List<Object>> descendingSerializer() {
+    return new STRUCT(schema(DESCENDING), DESCENDING);
   }
 
   @Override
-  protected Comparator<Object[]> getComparator() {
-    // TODO Auto-generated method stub
-    return null;
+  protected Comparator<List<Object>> getComparator() {
+    return new Comparator<List<Object>>() {
+      @Override
+      public int compare(List<Object> o1, List<Object> o2) {
+        for (int i = 0; i < o1.size(); i++) {
+          int cmp = HSerializer.compare(ASCENDING, (Comparable) o1.get(i), (Comparable) o2.get(i));
+          if (cmp != 0) return cmp;
+        }
+        return 0;
+      }
+    };
+  }
+
+  @Test
+  public void testRoundTripNulls() {
+    for (Order o : Order.values()) {
+      STRUCT s = new STRUCT(schema(o), o);
+      List<Object> val = Arrays.<Object> asList(null, null, 7, null);
+      assertEquals(val, s.fromBytes(s.toBytes(val)));
+    }
+  }
+
+  @Test
+  public void testCodecMatchesFieldEncoding() {
+    for (Order o : Order.values()) {
+      List<HSerializer> schema = Arrays.<HSerializer> asList(new LONG(o), new INT(o),
+        new SHORT(o), new DOUBLE(o), new FLOAT(o), new DATETIME(o), new BOOLEAN(o),
+        new VARCHAR(o), new BYTE(o), new VARINT(o), new DECIMAL(o), new LONG(o));
+      STRUCT s = new STRUCT(schema, o);
+      StructCodec codec = s.codec();
+      List<Object> vals = Arrays.<Object> asList(-1L, 2, (short) -3, 4.5, -5.5f,
+        new Date(6), false, "seven", new byte[] { 8, 0 }, BigInteger.TEN.pow(30),
+        new BigDecimal("-10.01"), null);
+      for (List<Object> val : Arrays.asList(vals, Arrays.asList(new Object[schema.size()]))) {
+        // expected: each field encoded on its own, non-nullable fields
+        // prefixed with their isNull marker.
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        byte notNull = (byte) (0xFF ^ o.mask()), isNull = (byte) (0x01 ^ o.mask());
+        for (int i = 0; i < schema.size(); i++) {
+          HSerializer f = schema.get(i);
+          Object v = val.get(i);
+          if (!f.supportsNull()) expected.write(null == v ? isNull : notNull);
+          if (f.supportsNull() || null != v) {
+            byte[] b = f.toBytes(v);
+            expected.write(b, 0, b.length);
+          }
+        }
+
+        byte[] encoded = codec.encode(val);
+        assertArrayEquals(expected.toByteArray(), encoded);
+        assertEquals(encoded.length, codec.encodedLength(val));
+
+        List<Object> decoded = codec.decode(encoded);
+        assertArrayEquals((byte[]) val.get(8), (byte[]) decoded.get(8));
+        decoded.set(8, val.get(8));
+        assertEquals(val, decoded);
+
+        // direct buffers are written field by field, to the same bytes.
+        ByteBuffer direct = ByteBuffer.allocateDirect(encoded.length + 2);
+        direct.put((byte) 0);
+        codec.encode(val, direct);
+        assertEquals(1 + encoded.length, direct.position());
+        byte[] written = new byte[encoded.length];
+        direct.position(1);
+        direct.get(written);
+        assertArrayEquals(encoded, written);
+        direct.position(1);
+        decoded = codec.decode(direct);
+        assertEquals(1 + encoded.length, direct.position());
+        assertEquals(val.get(9), decoded.get(9));
+      }
+    }
+  }
+
+  @Test
+  public void testComparatorMatchesEncoding() {
+    List<HSerializer> schema = Arrays.<HSerializer> asList(new VARCHAR(ASCENDING),
+      new DATETIME(DESCENDING), new LONG(ASCENDING), new INT(DESCENDING),
+      new BYTE(DESCENDING), new VARCHAR(DESCENDING));
+    STRUCT s = new STRUCT(schema, ASCENDING);
+    Comparator<List<Object>> cmp = s.comparator();
+    List<List<Object>> vals = new ArrayList<List<Object>>();
+    for (int i = 0; i < 500; i++) {
+      List<Object> val = new ArrayList<Object>(schema.size());
+      // small ranges and frequent nulls, to exercise ties and null markers.
+      val.add(r.nextInt(4) == 0 ? null : "t" + r.nextInt(3));
+      val.add(r.nextInt(4) == 0 ? null : new Date(r.nextInt(4) - 2));
+      val.add(r.nextInt(4) == 0 ? null : (long) r.nextInt(3) - 1);
+      val.add(r.nextInt(4) == 0 ? null : r.nextInt(3) - 1);
+      val.add(r.nextInt(4) == 0 ? null : new byte[r.nextInt(2)]);
+      val.add(r.nextInt(4) == 0 ? null : r.nextBoolean() ? "" : "\u00e9\ud83d\ude00");
+      vals.add(val);
+    }
+    for (int i = 1; i < vals.size(); i++) {
+      List<Object> left = vals.get(i - 1), right = vals.get(i);
+      assertEquals(Integer.signum(HSerializer.compare(s.toBytes(left), s.toBytes(right))),
+        Integer.signum(cmp.compare(left, right)));
+    }
+  }
+
+  @Test
+  public void testNullsFirstInFieldOrder() {
+    for (Order o : Order.values()) {
+      STRUCT s = new STRUCT(Arrays.<HSerializer> asList(new LONG(o)), ASCENDING);
+      byte[] nil = s.toBytes(Arrays.<Object> asList((Object) null));
+      byte[] min = s.toBytes(Arrays.<Object> asList(o == ASCENDING ? Long.MIN_VALUE : Long.MAX_VALUE));
+      assertEquals(o.cmp(-1), Integer.signum(HSerializer.compare(nil, min)));
+    }
+  }
+
+  @Test
+  public void testLatestFirstWithinTenant() {
+    STRUCT s = new STRUCT(Arrays.<HSerializer> asList(new VARCHAR(ASCENDING),
+      new DATETIME(DESCENDING), new LONG(ASCENDING)), ASCENDING);
+    List<byte[]> keys = new ArrayList<byte[]>();
+    for (String tenant : new String[] { "a", "b" }) {
+      for (long t = 0; t < 5; t++) keys.add(s.toBytes(Arrays.<Object> asList(tenant, new Date(t), t)));
+    }
+    Collections.shuffle(keys, r);
+    Collections.sort(keys, HSerializer.BYTES_COMPARATOR);
+
+    // a forward scan from the tenant's first key yields its newest rows first.
+    byte[] start = new VARCHAR(ASCENDING).toBytes("b");
+    int i = 0;
+    while (HSerializer.compare(keys.get(i), start) < 0) i++;
+    for (long t = 4; t >= 2; t--, i++) {
+      List<Object> row = s.fromBytes(keys.get(i));
+      assertEquals("b", row.get(0));
+      assertEquals(new Date(t), row.get(1));
+    }
+  }
+
+  @Test
+  public void testNotNullDropsMarker() {
+    for (Order o : Order.values()) {
+      STRUCT nullable = new STRUCT(schema(o), o);
+      STRUCT notNull = new STRUCT(schema(o), o, 0, 2, 3);
+      List<Object> val = Arrays.<Object> asList(7L, "seven", 7, 7.0);
+      byte[] bytes = notNull.toBytes(val);
+      assertEquals(nullable.toBytes(val).length - 3, bytes.length);
+      assertEquals(bytes.length, notNull.skip(bytes, 0));
+      assertEquals(val, notNull.fromBytes(bytes));
+      assertEquals(val, notNull.read(ByteBuffer.wrap(bytes)));
+      assertEquals(7L, notNull.view(bytes).getLong(0));
+      assertEquals(7.0, notNull.view(bytes).getDouble(3), 0.0);
+    }
   }
 
+  @Test(expected = IllegalArgumentException.class)
+  public void testNotNullRejectsNull() {
+    new STRUCT(schema(ASCENDING), ASCENDING, 1).toBytes(Arrays.<Object> asList(7L, null, 7, 7.0));
+  }
+
+  @Test
+  public void testNotNullKeepsOrder() {
+    STRUCT s = new STRUCT(Arrays.<HSerializer> asList(new VARCHAR(ASCENDING),
+      new DATETIME(DESCENDING), new LONG(ASCENDING)), ASCENDING, 0, 1, 2);
+    Comparator<List<Object>> cmp = s.comparator();
+    for (int i = 0; i < 500; i++) {
+      List<Object> left = Arrays.<Object> asList("t" + r.nextInt(3), new Date(r.nextInt(3)), (long) r.nextInt(3));
+      List<Object> right = Arrays.<Object> asList("t" + r.nextInt(3), new Date(r.nextInt(3)), (long) r.nextInt(3));
+      assertEquals(Integer.signum(HSerializer.compare(s.toBytes(left), s.toBytes(right))),
+        Integer.signum(cmp.compare(left, right)));
+    }
+  }
+
+  @Test
+  public void testFixedOffsets() {
+    STRUCT s = new STRUCT(Arrays.<HSerializer> asList(new INT(ASCENDING), new LONG(DESCENDING),
+      new BOOLEAN(ASCENDING), new DATETIME(ASCENDING)), ASCENDING, 0, 1, 3);
+    assertEquals(4 + 8 + 1 + 8, s.encodedWidth());
+    assertEquals(Arrays.asList(0, 4, 12, 13, 21), Arrays.asList(s.fixedOffset(0),
+      s.fixedOffset(1), s.fixedOffset(2), s.fixedOffset(3), s.fixedOffset(4)));
+    List<Object> val = Arrays.<Object> asList(3, -5L, null, new Date(7));
+    byte[] bytes = s.toBytes(val);
+    assertEquals(s.encodedWidth(), bytes.length);
+    assertEquals(bytes.length, s.skip(ByteBuffer.wrap(bytes)));
+    assertEquals(new Date(7), s.view(bytes).get(3));
+
+    // nullable fields are not fixed-width, and end the fixed prefix.
+    s = new STRUCT(Arrays.<HSerializer> asList(new LONG(ASCENDING), new LONG(ASCENDING),
+      new VARCHAR(ASCENDING), new LONG(ASCENDING)), ASCENDING, 0, 3);
+    assertEquals(-1, s.encodedWidth());
+    assertEquals(8, s.fixedOffset(1));
+    assertEquals(-1, s.fixedOffset(2));
+    bytes = s.toBytes(Arrays.<Object> asList(1L, null, "a", 2L));
+    assertEquals(2L, s.view(bytes).getLong(3));
+    assertEquals(8 + 1 + 2, s.skip(bytes, 0, 3));
+  }
+
+  @Test
+  public void testSetInPlace() {
+    STRUCT s = new STRUCT(Arrays.<HSerializer> asList(new SHORT(ASCENDING), new LONG(DESCENDING),
+      new VARCHAR(ASCENDING)), ASCENDING, 0, 1);
+    for (int i = 0; i < 100; i++) {
+      List<Object> val = new ArrayList<Object>(Arrays.<Object> asList((short) r.nextInt(16),
+        r.nextLong(), "k" + r.nextInt()));
+      byte[] encoded = s.toBytes(val);
+      byte[] buff = new byte[encoded.length + 3];
+      System.arraycopy(encoded, 0, buff, 2, encoded.length);
+
+      val.set(0, (short) r.nextInt(16));
+      s.set(buff, 2, 0, val.get(0));
+      val.set(1, r.nextLong());
+      s.set(buff, 2, 1, val.get(1));
+      assertEquals(val, s.codec().decode(buff, 2, encoded.length));
+      assertArrayEquals(s.toBytes(val), Arrays.copyOfRange(buff, 2, 2 + encoded.length));
+    }
+  }
+
+  @Test
+  public void testDecodeBoundedBySlice() {
+    List<HSerializer> fields = Arrays.<HSerializer> asList(new LONG(ASCENDING), new VARCHAR(DESCENDING),
+      new INT(ASCENDING), new BOOLEAN(ASCENDING), new DOUBLE(DESCENDING), new BYTE(ASCENDING));
+    List<Object> val = Arrays.<Object> asList(1L, "one", 1, true, 1.0, new byte[] { 1 });
+    for (STRUCT s : new STRUCT[] { new STRUCT(fields, ASCENDING), new STRUCT(fields, ASCENDING, 0, 1, 2, 4) }) {
+      // the whole value follows each truncated slice, as in a reused buffer.
+      byte[] bytes = s.toBytes(val);
+      for (int length = 0; length < bytes.length; length++) {
+        try {
+          s.codec().decode(bytes, 0, length);
+          fail("decoded past a slice of " + length + " bytes");
+        } catch (BufferUnderflowException e) {
+        } catch (IllegalArgumentException e) {
+        }
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSetVariableWidth() {
+    STRUCT s = new STRUCT(Arrays.<HSerializer> asList(new LONG(ASCENDING), new VARCHAR(ASCENDING)),
+      ASCENDING, 0);
+    byte[] bytes = s.toBytes(Arrays.<Object> asList(1L, "a"));
+    s.set(bytes, 0, 1, "b");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSetNullable() {
+    STRUCT s = new STRUCT(Arrays.<HSerializer> asList(new LONG(ASCENDING)), ASCENDING);
+    s.set(s.toBytes(Arrays.<Object> asList(1L)), 0, 0, 2L);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNestedStructOrderRejected() {
+    STRUCT inner = new STRUCT(Arrays.<HSerializer> asList(new LONG(ASCENDING)), DESCENDING);
+    new STRUCT(Arrays.<HSerializer> asList(inner, new LONG(ASCENDING)), ASCENDING);
+  }
+
+  @Test
+  public void testNestedComparatorMatchesEncoding() {
+    // a descending nested value is expressed by its fields' orders.
+    STRUCT inner = new STRUCT(Arrays.<HSerializer> asList(new LONG(DESCENDING),
+      new VARCHAR(ASCENDING)), ASCENDING);
+    STRUCT outer = new STRUCT(Arrays.<HSerializer> asList(inner, new LONG(ASCENDING)), ASCENDING);
+    Comparator<List<Object>> cmp = outer.comparator();
+    for (int i = 0; i < 500; i++) {
+      List<Object> left = Arrays.<Object> asList(Arrays.<Object> asList((long) r.nextInt(3),
+        "k" + r.nextInt(2)), (long) r.nextInt(3));
+      List<Object> right = Arrays.<Object> asList(Arrays.<Object> asList((long) r.nextInt(3),
+        "k" + r.nextInt(2)), (long) r.nextInt(3));
+      assertEquals(Integer.signum(HSerializer.compare(outer.toBytes(left), outer.toBytes(right))),
+        Integer.signum(cmp.compare(left, right)));
+    }
+  }
 }
@@ -0,0 +1,108 @@
+package hbase;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static util.HSerializer.Order.ASCENDING;
+import static util.HSerializer.Order.DESCENDING;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import types.DATETIME;
+import types.LONG;
+import types.STRUCT;
+import types.VARCHAR;
+import util.HSerializer;
+import util.KeyRange;
+
+/**
+ * Check STRUCT scan ranges select exactly the keys matching their
+ * predicate, over schemas mixing sort orders.
+ */
+@SuppressWarnings("rawtypes")
+public class TestScanRange {
+
+  private static final String[] TENANTS = { "", "a", "ab", "b", "ÿ", null };
+
+  private Random r;
+
+  @Before
+  public void setUp() {
+    r = RandomTestHSerializable.seeded();
+  }
+
+  private static STRUCT struct(HSerializer.Order tenant, HSerializer.Order day) {
+    return new STRUCT(Arrays.<HSerializer> asList(
+      new VARCHAR(tenant), new DATETIME(day), new LONG(ASCENDING)), ASCENDING);
+  }
+
+  private List<Object> row() {
+    return Arrays.<Object> asList(TENANTS[r.nextInt(TENANTS.length)],
+      r.nextInt(8) == 0 ? null : new Date(r.nextInt(10)), r.nextLong());
+  }
+
+  private static boolean matches(List<Object> row, Object tenant, Date lower, boolean li,
+      Date upper, boolean ui) {
+    if (null == tenant ? null != row.get(0) : !tenant.equals(row.get(0))) return false;
+    Date day = (Date) row.get(1);
+    if (null != lower && (null == day || day.compareTo(lower) < (li ? 0 : 1))) return false;
+    if (null != upper && (null == day || day.compareTo(upper) > (ui ? 0 : -1))) return false;
+    return true;
+  }
+
+  @Test
+  public void testRangesMatchPredicate() {
+    for (HSerializer.Order tenantOrder : HSerializer.Order.values()) {
+      for (HSerializer.Order dayOrder : HSerializer.Order.values()) {
+        STRUCT s = struct(tenantOrder, dayOrder);
+        List<List<Object>> rows = new ArrayList<List<Object>>();
+        for (int i = 0; i < 500; i++) rows.add(row());
+
+        for (int n = 0; n < 200; n++) {
+          String tenant = TENANTS[r.nextInt(TENANTS.length)];
+          Date lower = r.nextInt(4) == 0 ? null : new Date(r.nextInt(10));
+          Date upper = r.nextInt(4) == 0 ? null : new Date(r.nextInt(10));
+          boolean li = r.nextBoolean(), ui = r.nextBoolean();
+          KeyRange range = s.scanRange(Collections.<Object> singletonList(tenant), lower, li,
+            upper, ui);
+          for (List<Object> row : rows) {
+            boolean expected = matches(row, tenant, lower, li, upper, ui);
+            // unbounded ranges also include null days.
+            if (null == lower && null == upper) expected = matches(row, tenant, null, true,
+              null, true);
+            assertEquals(String.format("%s in %s for %s [%s, %s] %s %s", row, range, tenant,
+              lower, upper, li, ui), expected, range.contains(s.toBytes(row)));
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testPrefixRange() {
+    STRUCT s = struct(DESCENDING, ASCENDING);
+    KeyRange range = s.scanRange(Arrays.<Object> asList("t"));
+    assertTrue(range.contains(s.toBytes(Arrays.<Object> asList("t", new Date(0), 0L))));
+    assertTrue(!range.contains(s.toBytes(Arrays.<Object> asList("tt", new Date(0), 0L))));
+    assertTrue(!range.contains(s.toBytes(Arrays.<Object> asList("", new Date(0), 0L))));
+  }
+
+  @Test
+  public void testPrefixSuccessor() {
+    assertArrayEquals(new byte[] { 1, 3 }, KeyRange.prefixSuccessor(new byte[] { 1, 2 }));
+    assertArrayEquals(new byte[] { 2 },
+      KeyRange.prefixSuccessor(new byte[] { 1, (byte) 0xFF, (byte) 0xFF }));
+    assertArrayEquals(new byte[0],
+      KeyRange.prefixSuccessor(new byte[] { (byte) 0xFF, (byte) 0xFF }));
+    assertArrayEquals(new byte[0], KeyRange.prefixSuccessor(new byte[0]));
+    assertTrue(KeyRange.prefix(new byte[] { (byte) 0xFF }).contains(new byte[] { (byte) 0xFF, 0 }));
+  }
+}
@@ -0,0 +1,135 @@
+package hbase;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static util.HSerializer.Order.ASCENDING;
+import static util.HSerializer.Order.DESCENDING;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.Scan;
+import org.junit.Before;
+import org.junit.Test;
+
+import types.INT;
+import types.LONG;
+import types.STRUCT;
+import types.SkipScanPlanner;
+import types.VARCHAR;
+import util.HSerializer;
+import util.KeyRange;
+import util.MultiRangeScanner;
+
+@SuppressWarnings("rawtypes")
+public class TestSkipScanPlanner {
+
+  private static final String[] TENANTS = { "a", "b", "c", "d", "" };
+
+  private Random r;
+
+  @Before
+  public void setUp() {
+    r = RandomTestHSerializable.seeded();
+  }
+
+  private static STRUCT struct() {
+    return new STRUCT(Arrays.<HSerializer> asList(new VARCHAR(ASCENDING), new INT(DESCENDING),
+      new LONG(ASCENDING), new LONG(ASCENDING)), ASCENDING);
+  }
+
+  private List<Object> row() {
+    return Arrays.<Object> asList(TENANTS[r.nextInt(TENANTS.length)], r.nextInt(4),
+      (long) r.nextInt(20), r.nextLong());
+  }
+
+  private List<Object> subset(Object[] vals) {
+    List<Object> ret = new ArrayList<Object>();
+    for (Object v : vals) {
+      if (r.nextBoolean()) ret.add(v);
+    }
+    if (ret.isEmpty()) ret.add(vals[0]);
+    return ret;
+  }
+
+  private static boolean contains(List<KeyRange> ranges, byte[] key) {
+    for (KeyRange range : ranges) {
+      if (range.contains(key)) return true;
+    }
+    return false;
+  }
+
+  @Test
+  public void testPlanMatchesPredicate() {
+    STRUCT s = struct();
+    List<List<Object>> rows = new ArrayList<List<Object>>();
+    for (int i = 0; i < 400; i++) rows.add(row());
+
+    for (int n = 0; n < 100; n++) {
+      List<Object> tenants = subset(TENANTS);
+      List<Object> regions = subset(new Object[] { 0, 1, 2, 3 });
+      long lo = r.nextInt(20), hi = r.nextInt(20);
+      List<KeyRange> plan = new SkipScanPlanner(s).in(tenants).in(regions)
+          .range(lo, true, hi, false).plan();
+
+      for (int i = 1; i < plan.size(); i++) {
+        assertTrue("ranges must be sorted and disjoint",
+          HSerializer.compare(plan.get(i - 1).getStop(), plan.get(i).getStart()) < 0);
+      }
+      for (List<Object> row : rows) {
+        long ts = (Long) row.get(2);
+        boolean expected = tenants.contains(row.get(0)) && regions.contains(row.get(1))
+            && lo <= ts && ts < hi;
+        assertEquals(row + " in " + plan, expected, contains(plan, s.toBytes(row)));
+      }
+    }
+  }
+
+  @Test
+  public void testCoalesce() {
+    STRUCT s = struct();
+    // consecutive regions of a tenant coalesce; region is descending.
+    List<KeyRange> plan = new SkipScanPlanner(s).in("a", "b", "a").in(0, 1, 2, 3).plan();
+    assertEquals(2, plan.size());
+    assertArrayEquals(s.scanRange(Arrays.<Object> asList("a", 3)).getStart(), plan.get(0).getStart());
+    assertArrayEquals(s.scanRange(Arrays.<Object> asList("a", 0)).getStop(), plan.get(0).getStop());
+
+    assertEquals(1, new SkipScanPlanner(s).plan().size());
+    assertEquals(0, new SkipScanPlanner(s).in().plan().size());
+  }
+
+  @Test
+  public void testNormalize() {
+    byte[] a = { 1 }, b = { 2 }, c = { 3 }, d = { 4 }, none = {};
+    List<KeyRange> ranges = KeyRange.normalize(Arrays.asList(new KeyRange(c, d),
+      new KeyRange(a, b), new KeyRange(b, c), new KeyRange(d, d)));
+    assertEquals(Arrays.asList(new KeyRange(a, d)), ranges);
+    ranges = KeyRange.normalize(Arrays.asList(new KeyRange(a, none), new KeyRange(b, c)));
+    assertEquals(Arrays.asList(new KeyRange(a, none)), ranges);
+  }
+
+  @Test
+  public void testMultiRangeScanner() throws IOException {
+    STRUCT s = struct();
+    InMemoryTable table = new InMemoryTable();
+    for (int i = 0; i < 400; i++) table.add(s.toBytes(row()));
+
+    List<KeyRange> plan = new SkipScanPlanner(s).in("d", "a").in(3, 0).plan();
+    List<byte[]> expected = new ArrayList<byte[]>();
+    for (byte[] row : table.rows()) {
+      if (contains(plan, row)) expected.add(row);
+    }
+
+    MultiRangeScanner scanner = new MultiRangeScanner(table.table(), new Scan(), plan);
+    List<byte[]> actual = new ArrayList<byte[]>();
+    for (Result result : scanner) actual.add(result.getRow());
+    scanner.close();
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) assertArrayEquals(expected.get(i), actual.get(i));
+  }
+}
@@ -0,0 +1,108 @@
+package hbase;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static util.HSerializer.Order.ASCENDING;
+import static util.HSerializer.Order.DESCENDING;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Test;
+
+import types.BOOLEAN;
+import types.DATETIME;
+import types.DOUBLE;
+import types.FLOAT;
+import types.INT;
+import types.LONG;
+import types.SHORT;
+import types.STRUCT;
+import types.StructView;
+import types.VARCHAR;
+import util.HSerializer;
+import util.HSerializer.Order;
+
+@SuppressWarnings("rawtypes")
+public class TestStructView {
+
+  private static STRUCT struct(Order o) {
+    return new STRUCT(Arrays.<HSerializer> asList(
+      new VARCHAR(o), new LONG(o), new INT(o), new SHORT(o), new DOUBLE(o),
+      new FLOAT(o), new BOOLEAN(o), new DATETIME(o), new VARCHAR(o)), o);
+  }
+
+  private static final List<Object> ROW = Arrays.<Object> asList(
+    "tenant", -42L, 7, (short) -3, 1.5, -2.25f, true, new Date(1356998400000L), "last");
+
+  @Test
+  public void testTypedGetters() {
+    for (Order o : Order.values()) {
+      STRUCT s = struct(o);
+      StructView v = s.view(s.toBytes(ROW));
+      assertEquals(9, v.size());
+      // access out of order to exercise boundary caching
+      assertEquals("last", v.getString(8));
+      assertEquals(-42L, v.getLong(1));
+      assertEquals("tenant", v.getString(0));
+      assertEquals(7, v.getInt(2));
+      assertEquals(-3, v.getShort(3));
+      assertEquals(1.5, v.getDouble(4), 0.0);
+      assertEquals(-2.25f, v.getFloat(5), 0.0f);
+      assertTrue(v.getBoolean(6));
+      assertEquals(1356998400000L, v.getLong(7));
+      assertEquals(ROW, Arrays.asList(v.get(0), v.get(1), v.get(2), v.get(3), v.get(4),
+        v.get(5), v.get(6), v.get(7), v.get(8)));
+      assertEquals(s.toBytes(ROW).length, v.length());
+    }
+  }
+
+  @Test
+  public void testNulls() {
+    STRUCT s = struct(DESCENDING);
+    List<Object> row = Arrays.<Object> asList(null, null, 1, null, null, null, null, null, "x");
+    StructView v = s.view(s.toBytes(row));
+    assertTrue(v.isNull(0));
+    assertTrue(v.isNull(1));
+    assertFalse(v.isNull(2));
+    assertNull(v.getString(0));
+    assertNull(v.get(1));
+    assertEquals(1, v.getInt(2));
+    assertEquals("x", v.getString(8));
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void testPrimitiveNull() {
+    STRUCT s = struct(ASCENDING);
+    s.view(s.toBytes(Arrays.<Object> asList("a", null, 1, (short) 1, 1.0, 1.0f, false,
+      new Date(0), "b"))).getLong(1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testTypeMismatch() {
+    STRUCT s = struct(ASCENDING);
+    s.view(s.toBytes(ROW)).getInt(1);
+  }
+
+  @Test
+  public void testResetAndSlices() {
+    STRUCT s = struct(ASCENDING);
+    byte[] encoded = s.toBytes(ROW);
+    byte[] padded = new byte[encoded.length + 4];
+    System.arraycopy(encoded, 0, padded, 2, encoded.length);
+
+    StructView v = s.view(new byte[0]);
+    assertEquals(7, v.reset(padded, 2, encoded.length).getInt(2));
+    assertEquals("last", v.getString(8));
+
+    ByteBuffer direct = ByteBuffer.allocateDirect(encoded.length);
+    direct.put(encoded).flip();
+    assertEquals("tenant", v.reset(direct).getString(0));
+    assertEquals(-42L, v.getLong(1));
+    assertEquals(0, direct.position());
+  }
+}
@@ -8,11 +8,15 @@ import static util.HSerializer.compare;
 import static util.HSerializer.Order.ASCENDING;
 import static util.HSerializer.Order.DESCENDING;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
 import java.util.Comparator;
 
 import org.junit.Test;
 
 import types.VARCHAR;
+import util.HSerializer;
 
 public class TestVARCHAR extends RandomTestHSerializable<String> {
 
@@ -20,7 +24,16 @@ public class TestVARCHAR extends RandomTestHSerializable<String> {
     return new Comparator<String>() {
       @Override
       public int compare(String o1, String o2) {
-        return o1.compareTo(o2);
+        // UTF-8 bytes sort in code point order, which differs from the UTF-16
+        // code unit order of String#compareTo for supplementary characters.
+        int i = 0, j = 0;
+        while (i < o1.length() && j < o2.length()) {
+          int c1 = o1.codePointAt(i), c2 = o2.codePointAt(j);
+          if (c1 != c2) return c1 - c2;
+          i += Character.charCount(c1);
+          j += Character.charCount(c2);
+        }
+        return (o1.length() - i) - (o2.length() - j);
       }
     };
   }
@@ -29,8 +42,12 @@ public class TestVARCHAR extends RandomTestHSerializable<String> {
     int len = r.nextInt(1024);
     StringBuilder sb = new StringBuilder(len);
 
-    for (int i = 0; i < len; i++)
-      sb.appendCodePoint(r.nextInt(Character.MAX_CODE_POINT + 1));
+    // unpaired surrogates have no UTF-8 representation; skip over them.
+    int surrogates = Character.MAX_SURROGATE - Character.MIN_SURROGATE + 1;
+    for (int i = 0; i < len; i++) {
+      int cp = r.nextInt(Character.MAX_CODE_POINT + 1 - surrogates);
+      sb.appendCodePoint(cp < Character.MIN_SURROGATE ? cp : cp + surrogates);
+    }
     return sb.toString();
   }
 
@@ -59,4 +76,99 @@ public class TestVARCHAR extends RandomTestHSerializable<String> {
     assertEquals("", dsc.fromBytes(dsc.toBytes("")));
     assertArrayEquals("foo".toCharArray(), dsc.fromBytes(dsc.toBytes("foo")).toCharArray());
   }
+
+  /**
+   * The pre-single-pass encoder: UTF-8 via String#getBytes, then shift and
+   * mask.
+   */
+  private static byte[] legacyToBytes(String val, HSerializer.Order order) {
+    byte[] encoded = val.getBytes(Charset.forName("UTF-8"));
+    byte[] ret = new byte[encoded.length + 1];
+    for (int i = 0; i < encoded.length; i++) {
+      ret[i] = (byte) ((encoded[i] + 2) ^ order.mask());
+    }
+    ret[encoded.length] = (byte) (0x01 ^ order.mask());
+    return ret;
+  }
+
+  @Test
+  public void testEncoderMatchesLegacy() {
+    String[] vals = new String[] { "", "foo", "caf\u00e9", "\u20ac100", "\ud83d\ude00",
+      "lone \ud800 high", "lone \udc00 low", "trailing \ud800" };
+    for (String val : vals) {
+      for (HSerializer.Order order : HSerializer.Order.values()) {
+        byte[] expected = legacyToBytes(val, order);
+        assertArrayEquals(val, expected, toBytes(val, order));
+        assertEquals(val, expected.length, new VARCHAR(order).encodedLength(val));
+
+        byte[] dst = new byte[expected.length + 2];
+        VARCHAR.putBytes(dst, 1, val, order);
+        assertArrayEquals(val, expected, Arrays.copyOfRange(dst, 1, dst.length - 1));
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(expected.length);
+        VARCHAR.putBytes(direct, val, order);
+        assertEquals(val, expected.length, direct.position());
+        direct.flip();
+        byte[] written = new byte[expected.length];
+        direct.get(written);
+        assertArrayEquals(val, expected, written);
+      }
+    }
+
+    for (int i = 0; i < 1024; i++) {
+      String val = create();
+      assertArrayEquals(legacyToBytes(val, ASCENDING), toBytes(val, ASCENDING));
+      assertArrayEquals(legacyToBytes(val, DESCENDING), toBytes(val, DESCENDING));
+    }
+  }
+
+  @Test
+  public void testDecodeSlice() {
+    for (HSerializer.Order order : HSerializer.Order.values()) {
+      for (String val : new String[] { null, "", "foo", "caf\u00e9", "\ud83d\ude00 bar" }) {
+        byte[] encoded = toBytes(val, order);
+        byte[] row = new byte[encoded.length + 6];
+        Arrays.fill(row, (byte) 0x7f);
+        System.arraycopy(encoded, 0, row, 3, encoded.length);
+        assertEquals(val, VARCHAR.toString(row, 3, encoded.length, order));
+        assertEquals(val, VARCHAR.toString(row, 3, order));
+
+        ByteBuffer buff = ByteBuffer.wrap(row, 3, row.length - 3).slice();
+        assertEquals(val, VARCHAR.toString(buff, order));
+        assertEquals(encoded.length, buff.position());
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testDecodeUnterminatedSlice() {
+    byte[] encoded = toBytes("foo", ASCENDING);
+    VARCHAR.toString(encoded, 0, encoded.length - 1, ASCENDING);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testDecodeMalformed() {
+    // a lone UTF-8 continuation byte (0x80), shifted by 2.
+    VARCHAR.toString(new byte[] { (byte) 0x82, 0x01 }, 0, ASCENDING);
+  }
+
+  @Test
+  public void testBatchRoundTrip() {
+    for (HSerializer.Order order : HSerializer.Order.values()) {
+      String[] vals = new String[64];
+      for (int i = 0; i < vals.length; i++) vals[i] = i % 7 == 0 ? null : create();
+
+      int[] offsets = new int[vals.length + 1];
+      byte[] encoded = VARCHAR.toBytes(vals, offsets, order);
+      assertEquals(encoded.length, offsets[vals.length]);
+      for (int i = 0; i < vals.length; i++) {
+        assertArrayEquals(toBytes(vals[i], order),
+          Arrays.copyOfRange(encoded, offsets[i], offsets[i + 1]));
+      }
+
+      String[] decoded = new String[vals.length];
+      VARCHAR.toStrings(encoded, offsets, decoded, order);
+      assertArrayEquals(vals, decoded);
+    }
+  }
 }
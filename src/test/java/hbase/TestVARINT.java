@@ -1,15 +1,29 @@
 package hbase;
 
+import static java.lang.Integer.signum;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static util.HSerializer.compare;
+import static util.HSerializer.Order.ASCENDING;
+import static util.HSerializer.Order.DESCENDING;
+
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.Comparator;
 
 import org.junit.Test;
 
 import types.VARINT;
 import util.HSerializer;
+import util.HSerializer.Order;
 
 public class TestVARINT extends RandomTestHSerializable<BigInteger> {
 
+  private static final BigInteger LONG_MIN = BigInteger.valueOf(Long.MIN_VALUE);
+  private static final BigInteger LONG_MAX = BigInteger.valueOf(Long.MAX_VALUE);
+
   protected Comparator<BigInteger> getComparator() {
     return new Comparator<BigInteger>() {
       @Override
@@ -20,22 +34,105 @@ public class TestVARINT extends RandomTestHSerializable<BigInteger> {
   }
 
   protected BigInteger create() {
-    int maxNumBits = r.nextInt(10);
-    return new BigInteger(maxNumBits, r);
+    // favor the inline and long-sized encodings, but cover the extended
+    // length header too.
+    int maxNumBits;
+    switch (r.nextInt(4)) {
+      case 0: maxNumBits = r.nextInt(8); break;
+      case 1: maxNumBits = r.nextInt(24); break;
+      case 2: maxNumBits = r.nextInt(66); break;
+      default: maxNumBits = r.nextInt(1024); break;
+    }
+    BigInteger ret = new BigInteger(maxNumBits, r);
+    return r.nextBoolean() ? ret.negate() : ret;
   }
 
-  protected HSerializer<BigInteger> ascendingSerializer() { return new VARINT(); }
-  protected HSerializer<BigInteger> descendingSerializer() { return new VARINT(); }
+  protected HSerializer<BigInteger> ascendingSerializer() { return new VARINT(ASCENDING); }
+  protected HSerializer<BigInteger> descendingSerializer() { return new VARINT(DESCENDING); }
 
-  @Test
   @Override
-  public void testHSerializable() {}
+  protected void testPrimitiveSerialization(byte[] bytes, HSerializer<BigInteger> serde) {
+    // only values within the range of a long have an unboxed form.
+    BigInteger val = serde.fromBytes(bytes);
+    if (null != val && val.bitLength() < Long.SIZE)
+      super.testPrimitiveSerialization(bytes, serde);
+  }
 
   @Test
-  @Override
-  public void testNullAwareCompareAsc() {}
+  public void testSerialize() {
+    assertArrayEquals(new byte[] { (byte) 0x80 }, VARINT.toBytes(0L, ASCENDING));
+    assertArrayEquals(new byte[] { (byte) 0xBF }, VARINT.toBytes(63L, ASCENDING));
+    assertArrayEquals(new byte[] { 0x41 }, VARINT.toBytes(-63L, ASCENDING));
+    assertArrayEquals(new byte[] { (byte) 0xC1, 0x40 }, VARINT.toBytes(64L, ASCENDING));
+    assertArrayEquals(new byte[] { 0x3F, (byte) 0xBF }, VARINT.toBytes(-64L, ASCENDING));
+    assertArrayEquals(new byte[] { (byte) 0xC2, (byte) 0xFF, (byte) 0xFF },
+      VARINT.toBytes(65535L, ASCENDING));
+    assertArrayEquals(new byte[] { 0x00 }, VARINT.toBytes(null, ASCENDING));
+    assertArrayEquals(new byte[] { (byte) 0xFF }, VARINT.toBytes(null, DESCENDING));
+    assertEquals(9, VARINT.encodedLength(Long.MIN_VALUE));
+    assertEquals(9, VARINT.encodedLength(Long.MAX_VALUE));
+  }
 
   @Test
-  @Override
-  public void testNullAwareCompareDsc() {}
+  public void testSortAcrossHeaders() {
+    BigInteger big = BigInteger.ONE.shiftLeft(62 * 8);
+    BigInteger[] vals = new BigInteger[] {
+      big.shiftLeft(8).negate(), big.negate(), big.negate().add(BigInteger.ONE),
+      LONG_MIN.subtract(BigInteger.ONE), LONG_MIN, BigInteger.valueOf(-65536),
+      BigInteger.valueOf(-256), BigInteger.valueOf(-255), BigInteger.valueOf(-64),
+      BigInteger.valueOf(-63), BigInteger.valueOf(-1), BigInteger.ZERO, BigInteger.ONE,
+      BigInteger.valueOf(63), BigInteger.valueOf(64), BigInteger.valueOf(255),
+      BigInteger.valueOf(256), LONG_MAX, LONG_MAX.add(BigInteger.ONE),
+      big.subtract(BigInteger.ONE), big, big.shiftLeft(8) };
+    for (Order o : Order.values()) {
+      VARINT v = new VARINT(o);
+      byte[][] encoded = new byte[vals.length][];
+      for (int i = 0; i < vals.length; i++) {
+        encoded[i] = v.toBytes(vals[i]);
+        assertEquals(vals[i], v.fromBytes(encoded[i]));
+        assertEquals(encoded[i].length, v.skip(encoded[i], 0));
+      }
+      for (int i = 1; i < vals.length; i++) {
+        assertEquals(vals[i - 1] + " < " + vals[i] + " in " + o,
+          o.cmp(-1), signum(compare(encoded[i - 1], encoded[i])));
+      }
+      assertNull(v.fromBytes(v.toBytes(null)));
+    }
+  }
+
+  @Test
+  public void testLongRoundTrip() {
+    long[] vals = new long[] { 0, 1, -1, 63, -63, 64, -64, 255, -255, 256, -256,
+        Integer.MAX_VALUE, Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE,
+        Long.MAX_VALUE - 1, Long.MIN_VALUE + 1 };
+    for (Order o : Order.values()) {
+      VARINT v = new VARINT(o);
+      for (long val : vals) {
+        byte[] dst = new byte[11];
+        int len = v.encodeLong(val, dst, 1);
+        byte[] expected = v.toBytes(BigInteger.valueOf(val));
+        assertEquals(expected.length, len);
+        assertArrayEquals(expected, Arrays.copyOfRange(dst, 1, 1 + len));
+        assertEquals(val, v.decodeLong(dst, 1));
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(len);
+        v.encodeLong(val, direct);
+        direct.flip();
+        assertEquals(val, v.decodeLong(direct));
+        assertEquals(len, direct.position());
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testDecodeLongOverflow() {
+    VARINT v = new VARINT(ASCENDING);
+    v.decodeLong(v.toBytes(LONG_MAX.add(BigInteger.ONE)), 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testDecodeLongNull() {
+    VARINT v = new VARINT(DESCENDING);
+    v.decodeLong(v.toBytes(null), 0);
+  }
 }